@@ -7,9 +7,6 @@ import io.temporal.activity.ActivityMethod;
 @ActivityInterface
 public interface OrderActivities {
     
-    @ActivityMethod
-    void createOrder(OrderRequest orderRequest);
-    
     @ActivityMethod
     PaymentResult authorizePayment(OrderRequest orderRequest);
     
@@ -26,7 +23,7 @@ public interface OrderActivities {
     FraudCheckResult performFraudCheck(OrderRequest orderRequest);
     
     @ActivityMethod
-    void confirmOrder(String orderId);
+    FraudCheckResult assessFraudRisk(OrderRequest orderRequest);
     
     @ActivityMethod
     ShippingResult arrangeShipping(OrderRequest orderRequest);
@@ -39,10 +36,4 @@ public interface OrderActivities {
     
     @ActivityMethod
     void completeOrder(String orderId);
-    
-    @ActivityMethod
-    void markOrderAsFailed(String orderId, String reason);
-    
-    @ActivityMethod
-    void updateOrderStatus(String orderId, OrderStatus status);
 }
@@ -1,37 +1,85 @@
 package com.example.ordersaga.activities;
 
+import com.example.ordersaga.event.OrderEventBus;
+import com.example.ordersaga.gateway.StandInGateway;
+import com.example.ordersaga.id.IdGenerator;
+import com.example.ordersaga.inventory.ReservationCoalescer;
+import com.example.ordersaga.inventory.StockLedger;
 import com.example.ordersaga.model.*;
+import com.example.ordersaga.outbox.OrderOutbox;
 import com.example.ordersaga.repository.OrderRepository;
+import com.example.ordersaga.service.OrderStatusWriter;
+import io.temporal.activity.Activity;
+import io.temporal.client.ActivityNotExistsException;
+import io.temporal.failure.ApplicationFailure;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.Base64;
 import java.util.Random;
-import java.util.UUID;
+import java.util.Set;
 
 @Component
-public class OrderActivitiesImpl implements OrderActivities {
+public class OrderActivitiesImpl implements OrderActivities, OrderStoreActivities {
     
     private static final Logger log = LoggerFactory.getLogger(OrderActivitiesImpl.class);
     
+    /** Activity types that, with gateway callbacks enabled, complete from a callback rather than on return. */
+    private static final Set<String> CALLBACK_ACTIVITY_TYPES = Set.of("AuthorizePayment", "ArrangeShipping");
+    
     private final OrderRepository orderRepository;
+    private final OrderStatusWriter statusWriter;
+    private final OrderOutbox outbox;
+    private final StandInGateway gateway;
+    private final IdGenerator idGenerator;
+    private final StockLedger stockLedger;
+    private final ReservationCoalescer reservations;
+    private final OrderEventBus eventBus;
+    private final boolean asyncCallbacks;
+    private final double delayScale;
     private final Random random = new Random();
     
-    public OrderActivitiesImpl(OrderRepository orderRepository) {
+    public OrderActivitiesImpl(OrderRepository orderRepository, OrderStatusWriter statusWriter,
+                               OrderOutbox outbox, StandInGateway gateway, IdGenerator idGenerator,
+                               StockLedger stockLedger, ReservationCoalescer reservations, OrderEventBus eventBus,
+                               @Value("${order.gateway.async-callbacks:false}") boolean asyncCallbacks,
+                               @Value("${order.activities.delay-scale:1.0}") double delayScale) {
         this.orderRepository = orderRepository;
+        this.statusWriter = statusWriter;
+        this.outbox = outbox;
+        this.gateway = gateway;
+        this.idGenerator = idGenerator;
+        this.stockLedger = stockLedger;
+        this.reservations = reservations;
+        this.eventBus = eventBus;
+        this.asyncCallbacks = asyncCallbacks;
+        this.delayScale = delayScale;
+    }
+    
+    public Set<String> callbackCompletedActivityTypes() {
+        return asyncCallbacks ? CALLBACK_ACTIVITY_TYPES : Set.of();
     }
     
     @Override
     public void createOrder(OrderRequest orderRequest) {
         log.info("Creating order: {}", orderRequest.getOrderId());
         
+        // A retry after the insert committed, or a second workflow for the same order id
+        if (orderRepository.existsByOrderId(orderRequest.getOrderId())) {
+            log.warn("Order {} already exists; not creating it again", orderRequest.getOrderId());
+            return;
+        }
+        
         Order order = new Order();
         order.setOrderId(orderRequest.getOrderId());
         order.setCustomerId(orderRequest.getCustomerId());
         order.setTotalAmount(orderRequest.getTotalAmount());
         order.setStatus(OrderStatus.PENDING);
+        order.setRoute(orderRequest.getRoute());
         
         orderRequest.getItems().forEach(itemRequest -> {
             OrderItem item = new OrderItem();
@@ -40,10 +88,16 @@ public class OrderActivitiesImpl implements OrderActivities {
             item.setQuantity(itemRequest.getQuantity());
             item.setUnitPrice(itemRequest.getUnitPrice());
             item.setTotalPrice(itemRequest.getUnitPrice().multiply(new BigDecimal(itemRequest.getQuantity())));
+            item.setCategory(itemRequest.getCategory());
             order.addItem(item);
         });
         
-        orderRepository.save(order);
+        // Each status change commits together with its outbox row
+        OrderStatusEvent created = outbox.write(() -> {
+            orderRepository.save(order);
+            return OrderStatusEvent.created(order);
+        });
+        eventBus.publish(created);
         log.info("Order created successfully: {}", orderRequest.getOrderId());
     }
     
@@ -51,27 +105,48 @@ public class OrderActivitiesImpl implements OrderActivities {
     public PaymentResult authorizePayment(OrderRequest orderRequest) {
         log.info("Authorizing payment for order: {}", orderRequest.getOrderId());
         
+        if (asyncCallbacks) {
+            // Completed by the gateway's callback; the worker slot is released on return
+            String callbackToken = awaitCallback(orderRequest.getOrderId());
+            gateway.requestPaymentAuthorization(orderRequest.getOrderId(), orderRequest.getTotalAmount(),
+                    callbackToken);
+            Activity.getExecutionContext().doNotCompleteOnReturn();
+            return null;
+        }
+        
         // Simulate payment processing
         simulateDelay(1000, 2000);
         
         // Simulate occasional payment failures (10% chance)
         if (random.nextInt(100) < 10) {
-            log.warn("Payment authorization failed for order: {}", orderRequest.getOrderId());
-            return new PaymentResult(false, null, null, "Insufficient funds");
+            return recordPaymentResult(orderRequest.getOrderId(), null,
+                    new PaymentResult(false, null, null, "Insufficient funds"));
         }
         
-        String paymentId = "PAY-" + UUID.randomUUID().toString().substring(0, 8);
-        String transactionId = "TXN-" + UUID.randomUUID().toString().substring(0, 8);
+        String paymentId = idGenerator.nextId("PAY-");
+        String transactionId = idGenerator.nextId("TXN-");
         
-        Order order = orderRepository.findByOrderId(orderRequest.getOrderId())
-                .orElseThrow(() -> new RuntimeException("Order not found"));
-        order.setPaymentId(paymentId);
-        order.setStatus(OrderStatus.PAYMENT_AUTHORIZED);
-        orderRepository.save(order);
+        return recordPaymentResult(orderRequest.getOrderId(), null,
+                new PaymentResult(true, paymentId, transactionId, "Payment authorized successfully"));
+    }
+    
+    /**
+     * Applies a payment gateway response to the order, whether it came back from the call or by callback;
+     * {@code callbackToken} is the callback's, or null for a response the call returned.
+     */
+    public PaymentResult recordPaymentResult(String orderId, String callbackToken, PaymentResult result) {
+        if (!result.isSuccess()) {
+            log.warn("Payment authorization failed for order: {}", orderId);
+            return result;
+        }
         
-        log.info("Payment authorized successfully: {} for order: {}", paymentId, orderRequest.getOrderId());
+        OrderStatus status = OrderStatus.PAYMENT_AUTHORIZED;
+        applied(orderId, status, callbackToken, outbox.write(orderId, status, () -> orderRepository.recordPayment(
+                orderId, status.allowedPredecessors(), status, result.getPaymentId(), callbackToken,
+                LocalDateTime.now())));
         
-        return new PaymentResult(true, paymentId, transactionId, "Payment authorized successfully");
+        log.info("Payment authorized successfully: {} for order: {}", result.getPaymentId(), orderId);
+        return result;
     }
     
     @Override
@@ -80,10 +155,7 @@ public class OrderActivitiesImpl implements OrderActivities {
         
         simulateDelay(500, 1000);
         
-        Order order = orderRepository.findByOrderId(orderId)
-                .orElseThrow(() -> new RuntimeException("Order not found"));
-        order.setStatus(OrderStatus.COMPENSATING);
-        orderRepository.save(order);
+        transition(orderId, OrderStatus.COMPENSATING);
         
         log.info("Payment compensation completed for order: {}", orderId);
     }
@@ -92,43 +164,43 @@ public class OrderActivitiesImpl implements OrderActivities {
     public InventoryResult reserveInventory(OrderRequest orderRequest) {
         log.info("Reserving inventory for order: {}", orderRequest.getOrderId());
         
-        simulateDelay(1500, 2500);
+        // Applied together with the reservations of other orders arriving at the same time
+        InventoryResult result = reservations.reserve(orderRequest);
         
-        // Simulate occasional inventory failures (5% chance)
-        if (random.nextInt(100) < 5) {
-            log.warn("Inventory reservation failed for order: {}", orderRequest.getOrderId());
-            return new InventoryResult(false, null, "Insufficient inventory");
+        if (result.isSuccess()) {
+            log.info("Inventory reserved successfully: {} for order: {}", result.getReservationId(),
+                    orderRequest.getOrderId());
         }
         
-        String reservationId = "RES-" + UUID.randomUUID().toString().substring(0, 8);
-        
-        Order order = orderRepository.findByOrderId(orderRequest.getOrderId())
-                .orElseThrow(() -> new RuntimeException("Order not found"));
-        order.setReservationId(reservationId);
-        order.setStatus(OrderStatus.INVENTORY_RESERVED);
-        orderRepository.save(order);
-        
-        log.info("Inventory reserved successfully: {} for order: {}", reservationId, orderRequest.getOrderId());
-        
-        return new InventoryResult(true, reservationId, "Inventory reserved successfully");
+        return result;
     }
     
     @Override
     public void compensateInventory(String orderId, String reservationId) {
         log.info("Compensating inventory reservation: {} for order: {}", reservationId, orderId);
         
-        simulateDelay(500, 1000);
+        if (!stockLedger.release(orderId)) {
+            log.info("Order {} holds no stock; nothing to release", orderId);
+        }
         
-        Order order = orderRepository.findByOrderId(orderId)
-                .orElseThrow(() -> new RuntimeException("Order not found"));
-        order.setStatus(OrderStatus.COMPENSATING);
-        orderRepository.save(order);
+        transition(orderId, OrderStatus.COMPENSATING);
         
         log.info("Inventory compensation completed for order: {}", orderId);
     }
     
     @Override
     public FraudCheckResult performFraudCheck(OrderRequest orderRequest) {
+        FraudCheckResult result = assessFraudRisk(orderRequest);
+        
+        if (result.isPassed()) {
+            transition(orderRequest.getOrderId(), OrderStatus.FRAUD_CHECK_PASSED);
+        }
+        
+        return result;
+    }
+    
+    @Override
+    public FraudCheckResult assessFraudRisk(OrderRequest orderRequest) {
         log.info("Performing fraud check for order: {}", orderRequest.getOrderId());
         
         simulateDelay(2000, 3000);
@@ -144,11 +216,6 @@ public class OrderActivitiesImpl implements OrderActivities {
             return new FraudCheckResult(false, riskScore, "High fraud risk detected");
         }
         
-        Order order = orderRepository.findByOrderId(orderRequest.getOrderId())
-                .orElseThrow(() -> new RuntimeException("Order not found"));
-        order.setStatus(OrderStatus.FRAUD_CHECK_PASSED);
-        orderRepository.save(order);
-        
         log.info("Fraud check passed for order: {} with risk score: {}", orderRequest.getOrderId(), riskScore);
         
         return new FraudCheckResult(true, riskScore, "Fraud check passed");
@@ -160,10 +227,7 @@ public class OrderActivitiesImpl implements OrderActivities {
         
         simulateDelay(500, 1000);
         
-        Order order = orderRepository.findByOrderId(orderId)
-                .orElseThrow(() -> new RuntimeException("Order not found"));
-        order.setStatus(OrderStatus.CONFIRMED);
-        orderRepository.save(order);
+        transition(orderId, OrderStatus.CONFIRMED);
         
         log.info("Order confirmed: {}", orderId);
     }
@@ -172,29 +236,48 @@ public class OrderActivitiesImpl implements OrderActivities {
     public ShippingResult arrangeShipping(OrderRequest orderRequest) {
         log.info("Arranging shipping for order: {}", orderRequest.getOrderId());
         
+        if (asyncCallbacks) {
+            // Completed by the carrier's callback; the worker slot is released on return
+            String callbackToken = awaitCallback(orderRequest.getOrderId());
+            gateway.requestShipment(orderRequest.getOrderId(), callbackToken);
+            Activity.getExecutionContext().doNotCompleteOnReturn();
+            return null;
+        }
+        
         simulateDelay(1000, 2000);
         
         // Simulate occasional shipping failures (2% chance)
         if (random.nextInt(100) < 2) {
-            log.warn("Shipping arrangement failed for order: {}", orderRequest.getOrderId());
-            return new ShippingResult(false, null, null, null, null, "Shipping carrier unavailable");
+            return recordShippingResult(orderRequest.getOrderId(), null,
+                    new ShippingResult(false, null, null, null, null, "Shipping carrier unavailable"));
         }
         
-        String shippingId = "SHIP-" + UUID.randomUUID().toString().substring(0, 8);
-        String trackingNumber = "TRK" + System.currentTimeMillis();
+        String shippingId = idGenerator.nextId("SHIP-");
+        String trackingNumber = idGenerator.nextId("TRK");
         String[] carriers = {"FedEx", "UPS", "DHL", "USPS"};
         String carrier = carriers[random.nextInt(carriers.length)];
         
-        Order order = orderRepository.findByOrderId(orderRequest.getOrderId())
-                .orElseThrow(() -> new RuntimeException("Order not found"));
-        order.setShippingId(shippingId);
-        order.setTrackingNumber(trackingNumber);
-        order.setStatus(OrderStatus.SHIPPING_ARRANGED);
-        orderRepository.save(order);
+        return recordShippingResult(orderRequest.getOrderId(), null, new ShippingResult(true, shippingId, trackingNumber,
+                carrier, "3-5 business days", "Shipping arranged successfully"));
+    }
+    
+    /**
+     * Applies a carrier response to the order, whether it came back from the call or by callback;
+     * {@code callbackToken} is the callback's, or null for a response the call returned.
+     */
+    public ShippingResult recordShippingResult(String orderId, String callbackToken, ShippingResult result) {
+        if (!result.isSuccess()) {
+            log.warn("Shipping arrangement failed for order: {}", orderId);
+            return result;
+        }
         
-        log.info("Shipping arranged successfully: {} for order: {}", shippingId, orderRequest.getOrderId());
+        OrderStatus status = OrderStatus.SHIPPING_ARRANGED;
+        applied(orderId, status, callbackToken, outbox.write(orderId, status, () -> orderRepository.recordShipping(
+                orderId, status.allowedPredecessors(), status, result.getShippingId(), result.getTrackingNumber(),
+                callbackToken, LocalDateTime.now())));
         
-        return new ShippingResult(true, shippingId, trackingNumber, carrier, "3-5 business days", "Shipping arranged successfully");
+        log.info("Shipping arranged successfully: {} for order: {}", result.getShippingId(), orderId);
+        return result;
     }
     
     @Override
@@ -203,10 +286,7 @@ public class OrderActivitiesImpl implements OrderActivities {
         
         simulateDelay(500, 1000);
         
-        Order order = orderRepository.findByOrderId(orderId)
-                .orElseThrow(() -> new RuntimeException("Order not found"));
-        order.setStatus(OrderStatus.COMPENSATING);
-        orderRepository.save(order);
+        transition(orderId, OrderStatus.COMPENSATING);
         
         log.info("Shipping compensation completed for order: {}", orderId);
     }
@@ -217,10 +297,7 @@ public class OrderActivitiesImpl implements OrderActivities {
         
         simulateDelay(1000, 1500);
         
-        Order order = orderRepository.findByOrderId(orderId)
-                .orElseThrow(() -> new RuntimeException("Order not found"));
-        order.setStatus(OrderStatus.IN_DELIVERY);
-        orderRepository.save(order);
+        transition(orderId, OrderStatus.IN_DELIVERY);
         
         log.info("Delivery tracking updated for order: {}", orderId);
     }
@@ -231,11 +308,11 @@ public class OrderActivitiesImpl implements OrderActivities {
         
         simulateDelay(500, 1000);
         
-        Order order = orderRepository.findByOrderId(orderId)
-                .orElseThrow(() -> new RuntimeException("Order not found"));
-        order.setStatus(OrderStatus.COMPLETED);
-        order.setCompletedAt(LocalDateTime.now());
-        orderRepository.save(order);
+        OrderStatus status = OrderStatus.COMPLETED;
+        applied(orderId, status, outbox.write(orderId, status, () -> orderRepository.recordCompletion(
+                orderId, status.allowedPredecessors(), status, LocalDateTime.now())));
+        // The order is completed, and its reserved stock has left with the shipment
+        stockLedger.commit(orderId);
         
         log.info("Order completed: {}", orderId);
     }
@@ -244,11 +321,9 @@ public class OrderActivitiesImpl implements OrderActivities {
     public void markOrderAsFailed(String orderId, String reason) {
         log.info("Marking order as failed: {} with reason: {}", orderId, reason);
         
-        Order order = orderRepository.findByOrderId(orderId)
-                .orElseThrow(() -> new RuntimeException("Order not found"));
-        order.setStatus(OrderStatus.FAILED);
-        order.setFailureReason(reason);
-        orderRepository.save(order);
+        OrderStatus status = OrderStatus.FAILED;
+        applied(orderId, status, outbox.write(orderId, status, () -> orderRepository.recordFailure(
+                orderId, status.allowedPredecessors(), status, reason, LocalDateTime.now())));
         
         log.info("Order marked as failed: {}", orderId);
     }
@@ -257,15 +332,67 @@ public class OrderActivitiesImpl implements OrderActivities {
     public void updateOrderStatus(String orderId, OrderStatus status) {
         log.info("Updating order status: {} to {}", orderId, status);
         
-        Order order = orderRepository.findByOrderId(orderId)
-                .orElseThrow(() -> new RuntimeException("Order not found"));
-        order.setStatus(status);
-        orderRepository.save(order);
+        transition(orderId, status);
+    }
+    
+    private boolean transition(String orderId, OrderStatus status) {
+        // Group-committed, with its outbox row, alongside the transitions of other orders; durable once this
+        // returns, and published by the writer
+        return statusWriter.transition(orderId, status) > 0 || skipped(orderId, status);
+    }
+    
+    /**
+     * A guarded update that changed nothing means the order is missing, has already reached the
+     * target (e.g. a stale retry), or is somewhere the target can't be reached from, such as an
+     * order being compensated; only the second is a success.
+     */
+    private boolean applied(String orderId, OrderStatus status, int updatedRows) {
+        return applied(orderId, status, null, updatedRows);
+    }
+    
+    /**
+     * As above, for a gateway result that came by the callback with {@code callbackToken}: if the order
+     * is no longer waiting on that token, the attempt it answers has timed out or been retried.
+     */
+    private boolean applied(String orderId, OrderStatus status, String callbackToken, int updatedRows) {
+        if (updatedRows > 0) {
+            // The guarded update has committed
+            eventBus.publish(OrderStatusEvent.moved(orderId, status));
+            return true;
+        }
+        if (callbackToken != null && !orderRepository.existsByOrderIdAndCallbackToken(orderId, callbackToken)) {
+            throw new ActivityNotExistsException("Order " + orderId + " is no longer waiting for this callback", null);
+        }
+        return skipped(orderId, status);
+    }
+    
+    private boolean skipped(String orderId, OrderStatus status) {
+        OrderStatus current = orderRepository.findByOrderId(orderId)
+                .orElseThrow(() -> new RuntimeException("Order not found"))
+                .getStatus();
+        if (current != status && !current.follows(status)) {
+            // Retrying won't help: the order only moves on from here
+            throw ApplicationFailure.newNonRetryableFailure(
+                    "Order " + orderId + " is " + current + " and cannot move to " + status, "TransitionRejected");
+        }
+        log.warn("Skipped transition of order {} to {}: order is already {}", orderId, status, current);
+        return false;
+    }
+    
+    /** The current attempt's callback token, recorded on the order as the one its result must come with. */
+    private String awaitCallback(String orderId) {
+        String callbackToken = Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(Activity.getExecutionContext().getTaskToken());
+        orderRepository.awaitCallback(orderId, callbackToken);
+        return callbackToken;
     }
     
     private void simulateDelay(int minMillis, int maxMillis) {
+        long delay = Math.round((minMillis + random.nextInt(maxMillis - minMillis)) * delayScale);
+        if (delay <= 0) {
+            return;
+        }
         try {
-            int delay = minMillis + random.nextInt(maxMillis - minMillis);
             Thread.sleep(delay);
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
@@ -0,0 +1,31 @@
+package com.example.ordersaga.activities;
+
+import com.example.ordersaga.model.OrderRequest;
+import com.example.ordersaga.model.OrderStatus;
+import io.temporal.activity.ActivityInterface;
+import io.temporal.activity.ActivityMethod;
+
+/**
+ * Saga steps that only touch the local order store. They are cheap enough to run as local
+ * activities inside the workflow task; {@code order.saga.local-activities} picks which ones do.
+ */
+@ActivityInterface
+public interface OrderStoreActivities {
+    
+    String CREATE_ORDER = "createOrder";
+    String CONFIRM_ORDER = "confirmOrder";
+    String MARK_ORDER_AS_FAILED = "markOrderAsFailed";
+    String UPDATE_ORDER_STATUS = "updateOrderStatus";
+    
+    @ActivityMethod
+    void createOrder(OrderRequest orderRequest);
+    
+    @ActivityMethod
+    void confirmOrder(String orderId);
+    
+    @ActivityMethod
+    void markOrderAsFailed(String orderId, String reason);
+    
+    @ActivityMethod
+    void updateOrderStatus(String orderId, OrderStatus status);
+}
@@ -0,0 +1,46 @@
+package com.example.ordersaga.config;
+
+import com.example.ordersaga.id.IdGenerator;
+import com.example.ordersaga.id.SnowflakeIdGenerator;
+import com.example.ordersaga.id.UlidGenerator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+
+@Configuration
+public class IdGeneratorConfig {
+    
+    private static final Logger log = LoggerFactory.getLogger(IdGeneratorConfig.class);
+    
+    @Bean
+    public IdGenerator idGenerator(@Value("${order.id.generator:snowflake}") String generator,
+                                   @Value("${order.id.node-id:}") Integer nodeId) {
+        switch (generator) {
+            case "snowflake":
+                int node = nodeId != null ? nodeId : derivedNodeId();
+                log.info("Generating Snowflake ids on node {}", node);
+                return new SnowflakeIdGenerator(node);
+            case "ulid":
+                log.info("Generating ULIDs");
+                return new UlidGenerator();
+            default:
+                throw new IllegalArgumentException("Unknown order.id.generator: " + generator + " (snowflake or ulid)");
+        }
+    }
+    
+    /** Hash of host name and process id; set order.id.node-id when several workers may collide on it. */
+    private static int derivedNodeId() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            host = "localhost";
+        }
+        return (host + ":" + ProcessHandle.current().pid()).hashCode() & SnowflakeIdGenerator.MAX_NODE_ID;
+    }
+}
@@ -1,27 +1,53 @@
 package com.example.ordersaga.config;
 
 import com.example.ordersaga.activities.OrderActivitiesImpl;
+import com.example.ordersaga.activities.OrderStoreActivities;
+import com.example.ordersaga.metrics.SagaMetrics;
+import com.example.ordersaga.metrics.SagaMetricsClientInterceptor;
+import com.example.ordersaga.metrics.SagaMetricsWorkerInterceptor;
+import com.example.ordersaga.workflow.OrderWorkflow;
 import com.example.ordersaga.workflow.OrderWorkflowImpl;
+import com.example.ordersaga.workflow.SagaSettings;
+import com.example.ordersaga.worker.AdaptiveConcurrencyController;
+import com.example.ordersaga.worker.VirtualThreadActivityInterceptor;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.temporal.client.ActivityCompletionClient;
 import io.temporal.client.WorkflowClient;
+import io.temporal.api.enums.v1.QueryRejectCondition;
 import io.temporal.client.WorkflowClientOptions;
+import io.temporal.common.interceptors.WorkerInterceptor;
 import io.temporal.serviceclient.WorkflowServiceStubs;
 import io.temporal.serviceclient.WorkflowServiceStubsOptions;
 import io.temporal.worker.Worker;
 import io.temporal.worker.WorkerFactory;
+import io.temporal.worker.WorkerFactoryOptions;
+import io.temporal.worker.WorkerOptions;
 import jakarta.annotation.PostConstruct;
 import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
 @Configuration
+@EnableConfigurationProperties(TemporalWorkerProperties.class)
 public class TemporalConfig {
     
     private static final Logger log = LoggerFactory.getLogger(TemporalConfig.class);
     
     private final OrderActivitiesImpl orderActivities;
+    private final TemporalWorkerProperties workerProperties;
+    private final SagaMetrics sagaMetrics;
     
     @Value("${temporal.service.url:localhost:7233}")
     private String temporalServiceUrl;
@@ -32,10 +58,23 @@ public class TemporalConfig {
     @Value("${temporal.task-queue:order-processing-queue}")
     private String taskQueue;
     
+    @Value("${order.saga.parallel-fraud-check:false}")
+    private boolean parallelFraudCheck;
+    
+    @Value("${order.saga.cancel-parallel-fraud-check:true}")
+    private boolean cancelFraudCheck;
+    
+    @Value("${order.saga.local-activities:}")
+    private Set<String> localActivities;
+    
     private WorkerFactory workerFactory;
+    private AdaptiveConcurrencyController adaptiveConcurrency;
     
-    public TemporalConfig(OrderActivitiesImpl orderActivities) {
+    public TemporalConfig(OrderActivitiesImpl orderActivities, TemporalWorkerProperties workerProperties,
+                          MeterRegistry meterRegistry) {
         this.orderActivities = orderActivities;
+        this.workerProperties = workerProperties;
+        this.sagaMetrics = new SagaMetrics(meterRegistry);
     }
     
     @Bean
@@ -55,15 +94,57 @@ public class TemporalConfig {
         
         WorkflowClientOptions clientOptions = WorkflowClientOptions.newBuilder()
                 .setNamespace(namespace)
+                .setInterceptors(new SagaMetricsClientInterceptor(sagaMetrics))
+                // Closed workflows answer progress queries from the database instead of a replay
+                .setQueryRejectCondition(QueryRejectCondition.QUERY_REJECT_CONDITION_NOT_OPEN)
                 .build();
         
         return WorkflowClient.newInstance(workflowServiceStubs, clientOptions);
     }
     
+    @Bean
+    public ActivityCompletionClient activityCompletionClient(WorkflowClient workflowClient) {
+        return workflowClient.newActivityCompletionClient();
+    }
+    
     @Bean
     public WorkerFactory workerFactory(WorkflowClient workflowClient) {
         log.info("Creating Temporal WorkerFactory");
-        return WorkerFactory.newInstance(workflowClient);
+        
+        WorkerFactoryOptions.Builder options = WorkerFactoryOptions.newBuilder();
+        if (workerProperties.getWorkflowCacheSize() != null) {
+            options.setWorkflowCacheSize(workerProperties.getWorkflowCacheSize());
+        }
+        if (workerProperties.getMaxWorkflowThreadCount() != null) {
+            options.setMaxWorkflowThreadCount(workerProperties.getMaxWorkflowThreadCount());
+        }
+        // The last interceptor is the outermost, so activities are handed to a virtual thread before
+        // any other interceptor blocks, and metrics time the activity alone
+        List<WorkerInterceptor> interceptors = new ArrayList<>();
+        interceptors.add(new SagaMetricsWorkerInterceptor(sagaMetrics));
+        MeterRegistry registry = sagaMetrics.getRegistry();
+        if (workerProperties.getAdaptive().isEnabled()) {
+            adaptiveConcurrency = new AdaptiveConcurrencyController(workerProperties.getAdaptive());
+            interceptors.add(adaptiveConcurrency);
+            Gauge.builder("temporal.worker.activity.limit", adaptiveConcurrency, AdaptiveConcurrencyController::getLimit)
+                    .description("Activities the adaptive controller currently lets execute at once")
+                    .register(registry);
+        }
+        if (workerProperties.getVirtualThreads().isEnabled()) {
+            log.info("Running activities on virtual threads, at most {} in flight",
+                    workerProperties.getVirtualThreads().getMaxConcurrentActivities());
+            VirtualThreadActivityInterceptor virtualThreads = VirtualThreadActivityInterceptor.create(
+                    workerProperties.getVirtualThreads().getMaxConcurrentActivities(),
+                    orderActivities.callbackCompletedActivityTypes());
+            interceptors.add(virtualThreads);
+            Gauge.builder("temporal.worker.virtual.activities.in.flight", virtualThreads,
+                            VirtualThreadActivityInterceptor::getInFlight)
+                    .description("Activities dispatched to virtual threads and not yet completed")
+                    .register(registry);
+        }
+        options.setWorkerInterceptors(interceptors.toArray(new WorkerInterceptor[0]));
+        
+        return WorkerFactory.newInstance(workflowClient, options.build());
     }
     
     @PostConstruct
@@ -71,10 +152,12 @@ public class TemporalConfig {
         log.info("Starting Temporal worker on task queue: {}", taskQueue);
         
         WorkerFactory factory = workerFactory(workflowClient(workflowServiceStubs()));
-        Worker worker = factory.newWorker(taskQueue);
+        Worker worker = factory.newWorker(taskQueue, workerOptions());
         
         // Register workflow implementations
-        worker.registerWorkflowImplementationTypes(OrderWorkflowImpl.class);
+        SagaSettings sagaSettings = sagaSettings();
+        worker.registerWorkflowImplementationFactory(OrderWorkflow.class,
+                () -> new OrderWorkflowImpl(sagaSettings));
         
         // Register activity implementations
         worker.registerActivitiesImplementations(orderActivities);
@@ -82,12 +165,60 @@ public class TemporalConfig {
         // Start the worker
         factory.start();
         this.workerFactory = factory;
+        if (adaptiveConcurrency != null) {
+            adaptiveConcurrency.start();
+        }
         
         log.info("Temporal worker started successfully");
     }
     
+    private WorkerOptions workerOptions() {
+        WorkerOptions.Builder options = WorkerOptions.newBuilder();
+        if (workerProperties.getVirtualThreads().isEnabled()) {
+            // Dispatched activities keep their slot until completed; the slots no longer size a thread pool
+            options.setMaxConcurrentActivityExecutionSize(workerProperties.getVirtualThreads().getMaxConcurrentActivities());
+        } else if (workerProperties.getAdaptive().isEnabled()) {
+            // The adaptive controller gates execution below this ceiling
+            options.setMaxConcurrentActivityExecutionSize(workerProperties.getAdaptive().getMaxConcurrency());
+        } else if (workerProperties.getMaxConcurrentActivityExecutionSize() != null) {
+            options.setMaxConcurrentActivityExecutionSize(workerProperties.getMaxConcurrentActivityExecutionSize());
+        }
+        if (workerProperties.getMaxConcurrentLocalActivityExecutionSize() != null) {
+            options.setMaxConcurrentLocalActivityExecutionSize(workerProperties.getMaxConcurrentLocalActivityExecutionSize());
+        }
+        if (workerProperties.getMaxConcurrentWorkflowTaskExecutionSize() != null) {
+            options.setMaxConcurrentWorkflowTaskExecutionSize(workerProperties.getMaxConcurrentWorkflowTaskExecutionSize());
+        }
+        if (workerProperties.getMaxConcurrentActivityTaskPollers() != null) {
+            options.setMaxConcurrentActivityTaskPollers(workerProperties.getMaxConcurrentActivityTaskPollers());
+        }
+        if (workerProperties.getMaxConcurrentWorkflowTaskPollers() != null) {
+            options.setMaxConcurrentWorkflowTaskPollers(workerProperties.getMaxConcurrentWorkflowTaskPollers());
+        }
+        return options.build();
+    }
+    
+    private SagaSettings sagaSettings() {
+        Set<String> storeActivities = Arrays.stream(OrderStoreActivities.class.getMethods())
+                .map(Method::getName)
+                .collect(Collectors.toSet());
+        for (String activity : localActivities) {
+            if (!storeActivities.contains(activity)) {
+                throw new IllegalArgumentException("Only order store activities " + storeActivities
+                        + " can run as local activities, not: " + activity);
+            }
+        }
+        
+        log.info("Saga settings: parallel fraud check={} (cancelled on failure: {}), local activities={}",
+                parallelFraudCheck, cancelFraudCheck, localActivities);
+        return new SagaSettings(parallelFraudCheck, cancelFraudCheck, localActivities);
+    }
+    
     @PreDestroy
     public void shutdown() {
+        if (adaptiveConcurrency != null) {
+            adaptiveConcurrency.close();
+        }
         if (workerFactory != null) {
             log.info("Shutting down Temporal worker");
             workerFactory.shutdown();
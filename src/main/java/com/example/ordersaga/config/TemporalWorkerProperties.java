@@ -0,0 +1,181 @@
+package com.example.ordersaga.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Worker tuning bound from {@code temporal.worker.*}. Options left unset keep the Temporal SDK defaults.
+ */
+@ConfigurationProperties(prefix = "temporal.worker")
+public class TemporalWorkerProperties {
+    
+    private Integer maxConcurrentActivityExecutionSize;
+    private Integer maxConcurrentLocalActivityExecutionSize;
+    private Integer maxConcurrentWorkflowTaskExecutionSize;
+    private Integer maxConcurrentActivityTaskPollers;
+    private Integer maxConcurrentWorkflowTaskPollers;
+    private Integer workflowCacheSize;
+    private Integer maxWorkflowThreadCount;
+    private final Adaptive adaptive = new Adaptive();
+    private final VirtualThreads virtualThreads = new VirtualThreads();
+
+    public Integer getMaxConcurrentActivityExecutionSize() {
+        return maxConcurrentActivityExecutionSize;
+    }
+
+    public void setMaxConcurrentActivityExecutionSize(Integer maxConcurrentActivityExecutionSize) {
+        this.maxConcurrentActivityExecutionSize = maxConcurrentActivityExecutionSize;
+    }
+
+    public Integer getMaxConcurrentLocalActivityExecutionSize() {
+        return maxConcurrentLocalActivityExecutionSize;
+    }
+
+    public void setMaxConcurrentLocalActivityExecutionSize(Integer maxConcurrentLocalActivityExecutionSize) {
+        this.maxConcurrentLocalActivityExecutionSize = maxConcurrentLocalActivityExecutionSize;
+    }
+
+    public Integer getMaxConcurrentWorkflowTaskExecutionSize() {
+        return maxConcurrentWorkflowTaskExecutionSize;
+    }
+
+    public void setMaxConcurrentWorkflowTaskExecutionSize(Integer maxConcurrentWorkflowTaskExecutionSize) {
+        this.maxConcurrentWorkflowTaskExecutionSize = maxConcurrentWorkflowTaskExecutionSize;
+    }
+
+    public Integer getMaxConcurrentActivityTaskPollers() {
+        return maxConcurrentActivityTaskPollers;
+    }
+
+    public void setMaxConcurrentActivityTaskPollers(Integer maxConcurrentActivityTaskPollers) {
+        this.maxConcurrentActivityTaskPollers = maxConcurrentActivityTaskPollers;
+    }
+
+    public Integer getMaxConcurrentWorkflowTaskPollers() {
+        return maxConcurrentWorkflowTaskPollers;
+    }
+
+    public void setMaxConcurrentWorkflowTaskPollers(Integer maxConcurrentWorkflowTaskPollers) {
+        this.maxConcurrentWorkflowTaskPollers = maxConcurrentWorkflowTaskPollers;
+    }
+
+    public Integer getWorkflowCacheSize() {
+        return workflowCacheSize;
+    }
+
+    public void setWorkflowCacheSize(Integer workflowCacheSize) {
+        this.workflowCacheSize = workflowCacheSize;
+    }
+
+    public Integer getMaxWorkflowThreadCount() {
+        return maxWorkflowThreadCount;
+    }
+
+    public void setMaxWorkflowThreadCount(Integer maxWorkflowThreadCount) {
+        this.maxWorkflowThreadCount = maxWorkflowThreadCount;
+    }
+
+    public Adaptive getAdaptive() {
+        return adaptive;
+    }
+
+    public VirtualThreads getVirtualThreads() {
+        return virtualThreads;
+    }
+    
+    /**
+     * Adaptive activity concurrency. The worker's activity slots are sized to {@code maxConcurrency}
+     * and the controller moves the number of activities allowed to execute between the two bounds.
+     */
+    public static class Adaptive {
+        private boolean enabled;
+        private int minConcurrency = 8;
+        private int maxConcurrency = 400;
+        private Duration interval = Duration.ofSeconds(5);
+        private double targetUtilization = 0.8;
+        private Duration targetScheduleToStartLatency = Duration.ofMillis(200);
+        private double maxCpuLoad = 0.85;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getMinConcurrency() {
+            return minConcurrency;
+        }
+
+        public void setMinConcurrency(int minConcurrency) {
+            this.minConcurrency = minConcurrency;
+        }
+
+        public int getMaxConcurrency() {
+            return maxConcurrency;
+        }
+
+        public void setMaxConcurrency(int maxConcurrency) {
+            this.maxConcurrency = maxConcurrency;
+        }
+
+        public Duration getInterval() {
+            return interval;
+        }
+
+        public void setInterval(Duration interval) {
+            this.interval = interval;
+        }
+
+        public double getTargetUtilization() {
+            return targetUtilization;
+        }
+
+        public void setTargetUtilization(double targetUtilization) {
+            this.targetUtilization = targetUtilization;
+        }
+
+        public Duration getTargetScheduleToStartLatency() {
+            return targetScheduleToStartLatency;
+        }
+
+        public void setTargetScheduleToStartLatency(Duration targetScheduleToStartLatency) {
+            this.targetScheduleToStartLatency = targetScheduleToStartLatency;
+        }
+
+        public double getMaxCpuLoad() {
+            return maxCpuLoad;
+        }
+
+        public void setMaxCpuLoad(double maxCpuLoad) {
+            this.maxCpuLoad = maxCpuLoad;
+        }
+    }
+    
+    /**
+     * Runs activities on virtual threads (Java 21). In-flight activities no longer hold a worker thread,
+     * so {@code maxConcurrentActivities} bounds them instead of the executor's pool size.
+     */
+    public static class VirtualThreads {
+        private boolean enabled;
+        private int maxConcurrentActivities = 2000;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getMaxConcurrentActivities() {
+            return maxConcurrentActivities;
+        }
+
+        public void setMaxConcurrentActivities(int maxConcurrentActivities) {
+            this.maxConcurrentActivities = maxConcurrentActivities;
+        }
+    }
+}
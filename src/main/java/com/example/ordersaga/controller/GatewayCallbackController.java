@@ -0,0 +1,45 @@
+package com.example.ordersaga.controller;
+
+import com.example.ordersaga.model.PaymentCallback;
+import com.example.ordersaga.model.ShippingCallback;
+import com.example.ordersaga.service.GatewayCallbackService;
+import io.temporal.client.ActivityNotExistsException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/callbacks")
+public class GatewayCallbackController {
+    
+    private final GatewayCallbackService callbackService;
+    
+    public GatewayCallbackController(GatewayCallbackService callbackService) {
+        this.callbackService = callbackService;
+    }
+    
+    @PostMapping("/payments")
+    public ResponseEntity<Void> paymentCompleted(@RequestBody PaymentCallback callback) {
+        callbackService.paymentCompleted(callback);
+        return ResponseEntity.noContent().build();
+    }
+    
+    @PostMapping("/shipments")
+    public ResponseEntity<Void> shipmentCompleted(@RequestBody ShippingCallback callback) {
+        callbackService.shipmentCompleted(callback);
+        return ResponseEntity.noContent().build();
+    }
+    
+    @ExceptionHandler(ActivityNotExistsException.class)
+    public ResponseEntity<Map<String, String>> handleGone(ActivityNotExistsException e) {
+        // Already completed, timed out or retried under a new token
+        return ResponseEntity.status(HttpStatus.GONE).body(Map.of("error", "Activity is no longer waiting for this callback"));
+    }
+    
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<Map<String, String>> handleBadRequest(IllegalArgumentException e) {
+        return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+    }
+}
@@ -1,13 +1,30 @@
 package com.example.ordersaga.controller;
 
-import com.example.ordersaga.model.Order;
+import com.example.ordersaga.model.OrderPage;
+import com.example.ordersaga.model.OrderProgress;
 import com.example.ordersaga.model.OrderRequest;
+import com.example.ordersaga.model.OrderStats;
+import com.example.ordersaga.model.OrderStatusEvent;
 import com.example.ordersaga.model.OrderStatus;
+import com.example.ordersaga.model.OrderView;
 import com.example.ordersaga.service.OrderService;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
 
@@ -16,9 +33,14 @@ import java.util.Map;
 public class OrderController {
     
     private final OrderService orderService;
+    private final ObjectMapper objectMapper;
+    private final Duration eventStreamTimeout;
     
-    public OrderController(OrderService orderService) {
+    public OrderController(OrderService orderService, ObjectMapper objectMapper,
+                           @Value("${order.events.stream-timeout:30m}") Duration eventStreamTimeout) {
         this.orderService = orderService;
+        this.objectMapper = objectMapper;
+        this.eventStreamTimeout = eventStreamTimeout;
     }
     
     @PostMapping
@@ -32,27 +54,122 @@ public class OrderController {
                 ));
     }
     
+    /**
+     * Accepts a JSON array or an NDJSON stream of orders and answers with one NDJSON
+     * result line per order as soon as its workflow start completes.
+     */
+    @PostMapping(value = "/batch",
+            consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE},
+            produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> createOrders(HttpServletRequest request) {
+        StreamingResponseBody body = outputStream -> {
+            try (MappingIterator<OrderRequest> orderRequests = objectMapper.readerFor(OrderRequest.class)
+                    .readValues(request.getInputStream())) {
+                orderService.createOrders(orderRequests, result -> writeLine(outputStream, result));
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+    
     @GetMapping("/{orderId}")
-    public ResponseEntity<Order> getOrder(@PathVariable String orderId) {
-        Order order = orderService.getOrder(orderId);
+    public ResponseEntity<OrderView> getOrder(@PathVariable String orderId) {
+        OrderView order = orderService.getOrder(orderId);
         return ResponseEntity.ok(order);
     }
     
+    /**
+     * Current step, step results and step timings; answered by the workflow while the saga runs.
+     */
+    @GetMapping("/{orderId}/progress")
+    public ResponseEntity<OrderProgress> getOrderProgress(@PathVariable String orderId) {
+        return ResponseEntity.ok(orderService.getProgress(orderId));
+    }
+    
+    @GetMapping("/stats")
+    public ResponseEntity<OrderStats> getStats(@RequestParam(required = false) String customerId) {
+        return ResponseEntity.ok(orderService.getStats(customerId));
+    }
+    
+    @GetMapping("/stats/buckets")
+    public ResponseEntity<List<OrderStats>> getStatsByBucket(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        return ResponseEntity.ok(orderService.getStatsByBucket(from, to));
+    }
+    
+    /**
+     * Streams the order's status as Server-Sent Events: the current status, then each change as it
+     * commits, ending after a terminal status. The connection holds no request thread while open.
+     */
+    @GetMapping(value = "/{orderId}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamOrderEvents(@PathVariable String orderId) {
+        SseEmitter emitter = new SseEmitter(eventStreamTimeout.toMillis());
+        OrderEventStream stream = new OrderEventStream(emitter);
+        stream.subscribed(orderService.subscribe(orderId, stream));
+        stream.start(orderService.findOrder(orderId).map(OrderStatusEvent::current).orElse(null));
+        return emitter;
+    }
+    
     @GetMapping("/customer/{customerId}")
-    public ResponseEntity<List<Order>> getOrdersByCustomer(@PathVariable String customerId) {
-        List<Order> orders = orderService.getOrdersByCustomer(customerId);
-        return ResponseEntity.ok(orders);
+    public ResponseEntity<OrderPage> getOrdersByCustomer(@PathVariable String customerId,
+                                                         @RequestParam(required = false) String cursor,
+                                                         @RequestParam(defaultValue = "50") int limit) {
+        return ResponseEntity.ok(orderService.getOrders(null, customerId, cursor, limit));
+    }
+    
+    @GetMapping(value = "/customer/{customerId}", params = "stream=true")
+    public ResponseEntity<StreamingResponseBody> streamOrdersByCustomer(@PathVariable String customerId) {
+        return streamOrders(null, customerId);
     }
     
     @GetMapping("/status/{status}")
-    public ResponseEntity<List<Order>> getOrdersByStatus(@PathVariable OrderStatus status) {
-        List<Order> orders = orderService.getOrdersByStatus(status);
-        return ResponseEntity.ok(orders);
+    public ResponseEntity<OrderPage> getOrdersByStatus(@PathVariable OrderStatus status,
+                                                       @RequestParam(required = false) String cursor,
+                                                       @RequestParam(defaultValue = "50") int limit) {
+        return ResponseEntity.ok(orderService.getOrders(status, null, cursor, limit));
+    }
+    
+    @GetMapping(value = "/status/{status}", params = "stream=true")
+    public ResponseEntity<StreamingResponseBody> streamOrdersByStatus(@PathVariable OrderStatus status) {
+        return streamOrders(status, null);
     }
     
     @GetMapping
-    public ResponseEntity<List<Order>> getAllOrders() {
-        List<Order> orders = orderService.getAllOrders();
-        return ResponseEntity.ok(orders);
+    public ResponseEntity<OrderPage> getAllOrders(@RequestParam(required = false) String cursor,
+                                                  @RequestParam(defaultValue = "50") int limit) {
+        return ResponseEntity.ok(orderService.getOrders(null, null, cursor, limit));
+    }
+    
+    @GetMapping(params = "stream=true")
+    public ResponseEntity<StreamingResponseBody> streamAllOrders() {
+        return streamOrders(null, null);
+    }
+    
+    private ResponseEntity<StreamingResponseBody> streamOrders(OrderStatus status, String customerId) {
+        StreamingResponseBody body = outputStream ->
+                orderService.streamOrders(status, customerId, order -> writeLine(outputStream, order));
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+    
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<Map<String, String>> handleBadRequest(IllegalArgumentException e) {
+        return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+    }
+    
+    private void writeLine(OutputStream outputStream, Object result) {
+        try {
+            byte[] line = objectMapper.writeValueAsBytes(result);
+            synchronized (outputStream) {
+                outputStream.write(line);
+                outputStream.write('\n');
+                outputStream.flush();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
     }
 }
@@ -0,0 +1,41 @@
+package com.example.ordersaga.controller;
+
+import com.example.ordersaga.model.OrderLogPage;
+import com.example.ordersaga.outbox.OrderEventLog;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+/**
+ * Order status changes for downstream systems, read from the order event log by offset: start at 0,
+ * then ask again from each page's {@code nextOffset}.
+ */
+@RestController
+@RequestMapping("/api/order-events")
+public class OrderEventLogController {
+    
+    private final OrderEventLog eventLog;
+    private final int maxLimit;
+    
+    public OrderEventLogController(OrderEventLog eventLog,
+                                   @Value("${order.event-log.max-read:1000}") int maxLimit) {
+        this.eventLog = eventLog;
+        this.maxLimit = maxLimit;
+    }
+    
+    @GetMapping
+    public ResponseEntity<OrderLogPage> read(@RequestParam(defaultValue = "0") long offset,
+                                             @RequestParam(defaultValue = "100") int limit) {
+        if (limit < 1 || limit > maxLimit) {
+            throw new IllegalArgumentException("limit must be between 1 and " + maxLimit);
+        }
+        return ResponseEntity.ok(eventLog.read(offset, limit));
+    }
+    
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<Map<String, String>> handleBadRequest(IllegalArgumentException e) {
+        return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.ordersaga.controller;
+
+import com.example.ordersaga.event.OrderEventBus;
+import com.example.ordersaga.model.OrderStatus;
+import com.example.ordersaga.model.OrderStatusEvent;
+import org.springframework.http.MediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Writes one order's status events to a Server-Sent Events response.
+ * <p>
+ * Events that arrive while the current status is being read are held back and sent after it. Any
+ * event whose status does not follow the one last sent, such as a held-back event the current
+ * status already includes, or a repeat, is skipped, so the watcher sees statuses in commit order.
+ * The stream ends after a terminal status.
+ */
+class OrderEventStream implements Consumer<OrderStatusEvent> {
+    
+    private final SseEmitter emitter;
+    private final List<OrderStatusEvent> heldBack = new ArrayList<>();
+    private OrderEventBus.Subscription subscription;
+    private boolean started;
+    private boolean closed;
+    private OrderStatus lastSent;
+    
+    OrderEventStream(SseEmitter emitter) {
+        this.emitter = emitter;
+        emitter.onCompletion(this::close);
+        emitter.onTimeout(this::close);
+        emitter.onError(error -> close());
+    }
+    
+    synchronized void subscribed(OrderEventBus.Subscription subscription) {
+        this.subscription = subscription;
+        if (closed) {
+            subscription.close();
+        }
+    }
+    
+    /** Sends the status read after subscribing, if the order exists yet, then anything held back. */
+    synchronized void start(OrderStatusEvent current) {
+        if (current != null) {
+            send(current);
+        }
+        heldBack.forEach(this::send);
+        heldBack.clear();
+        started = true;
+    }
+    
+    @Override
+    public synchronized void accept(OrderStatusEvent event) {
+        if (!started) {
+            heldBack.add(event);
+        } else {
+            send(event);
+        }
+    }
+    
+    private void send(OrderStatusEvent event) {
+        if (closed || lastSent != null && !event.getStatus().follows(lastSent)) {
+            return;
+        }
+        try {
+            emitter.send(SseEmitter.event()
+                    .name("status")
+                    .data(event, MediaType.APPLICATION_JSON));
+            lastSent = event.getStatus();
+            if (event.getStatus().isTerminal()) {
+                emitter.complete();
+                close();
+            }
+        } catch (IOException | IllegalStateException e) {
+            // The client went away
+            emitter.completeWithError(e);
+            close();
+        }
+    }
+    
+    private synchronized void close() {
+        closed = true;
+        if (subscription != null) {
+            subscription.close();
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.example.ordersaga.event;
+
+import com.example.ordersaga.model.OrderStatusEvent;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * In-process fan-out of committed order status changes.
+ * <p>
+ * Listeners see every event on the publishing thread, before {@link #publish} returns, so they can
+ * keep derived state (the order view cache, status counts) in step with the database. Subscribers
+ * watch one order and are called from a small pool of dispatch threads, so a slow watcher never holds
+ * up a saga step. Each order is always dispatched on the same thread, which keeps its events in order.
+ */
+@Component
+public class OrderEventBus {
+    
+    private static final Logger log = LoggerFactory.getLogger(OrderEventBus.class);
+    
+    private final List<Consumer<OrderStatusEvent>> listeners = new CopyOnWriteArrayList<>();
+    private final Map<String, List<Consumer<OrderStatusEvent>>> subscribers = new ConcurrentHashMap<>();
+    private final AtomicInteger subscriberCount = new AtomicInteger();
+    private final ExecutorService[] dispatchers;
+    
+    public OrderEventBus(@Value("${order.events.dispatch-threads:2}") int dispatchThreads) {
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("order-events-");
+        threadFactory.setDaemon(true);
+        this.dispatchers = new ExecutorService[dispatchThreads];
+        for (int i = 0; i < dispatchThreads; i++) {
+            dispatchers[i] = Executors.newSingleThreadExecutor(threadFactory);
+        }
+    }
+    
+    /** Adds a listener for every order's events, called on the publishing thread. */
+    public void addListener(Consumer<OrderStatusEvent> listener) {
+        listeners.add(listener);
+    }
+    
+    /**
+     * Subscribes to the events of one order until the returned subscription is closed.
+     */
+    public Subscription subscribe(String orderId, Consumer<OrderStatusEvent> subscriber) {
+        subscribers.compute(orderId, (key, watching) -> {
+            List<Consumer<OrderStatusEvent>> list = watching != null ? watching : new CopyOnWriteArrayList<>();
+            list.add(subscriber);
+            return list;
+        });
+        subscriberCount.incrementAndGet();
+        return () -> unsubscribe(orderId, subscriber);
+    }
+    
+    public int getSubscriberCount() {
+        return subscriberCount.get();
+    }
+    
+    /** Call once the change has committed. */
+    public void publish(OrderStatusEvent event) {
+        for (Consumer<OrderStatusEvent> listener : listeners) {
+            try {
+                listener.accept(event);
+            } catch (RuntimeException e) {
+                log.warn("Order event listener failed on {}", event, e);
+            }
+        }
+        
+        if (!subscribers.containsKey(event.getOrderId())) {
+            return;
+        }
+        try {
+            dispatcher(event.getOrderId()).execute(() -> {
+                List<Consumer<OrderStatusEvent>> watching = subscribers.get(event.getOrderId());
+                if (watching == null) {
+                    return;
+                }
+                for (Consumer<OrderStatusEvent> subscriber : watching) {
+                    try {
+                        subscriber.accept(event);
+                    } catch (RuntimeException e) {
+                        log.debug("Order event subscriber failed on {}: {}", event, e.getMessage());
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            log.debug("Dropped {}: event bus is shut down", event);
+        }
+    }
+    
+    private void unsubscribe(String orderId, Consumer<OrderStatusEvent> subscriber) {
+        subscribers.computeIfPresent(orderId, (key, watching) -> {
+            if (watching.remove(subscriber)) {
+                subscriberCount.decrementAndGet();
+            }
+            return watching.isEmpty() ? null : watching;
+        });
+    }
+    
+    private ExecutorService dispatcher(String orderId) {
+        return dispatchers[Math.floorMod(orderId.hashCode(), dispatchers.length)];
+    }
+    
+    public interface Subscription extends AutoCloseable {
+        @Override
+        void close();
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        for (ExecutorService dispatcher : dispatchers) {
+            dispatcher.shutdown();
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.ordersaga.gateway;
+
+import com.example.ordersaga.id.IdGenerator;
+import com.example.ordersaga.model.PaymentCallback;
+import com.example.ordersaga.model.PaymentResult;
+import com.example.ordersaga.model.ShippingCallback;
+import com.example.ordersaga.model.ShippingResult;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClient;
+
+import java.math.BigDecimal;
+import java.util.Random;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Local stand-in for the payment gateway and shipping carrier. Requests are accepted immediately and
+ * answered 1-2 seconds later by an HTTP callback to {@code order.gateway.callback-url}, the way the
+ * real services confirm.
+ */
+@Component
+public class StandInGateway {
+    
+    private static final Logger log = LoggerFactory.getLogger(StandInGateway.class);
+    private static final String[] CARRIERS = {"FedEx", "UPS", "DHL", "USPS"};
+    
+    private final RestClient restClient;
+    private final IdGenerator idGenerator;
+    private final ScheduledExecutorService scheduler =
+            Executors.newScheduledThreadPool(2, new CustomizableThreadFactory("gateway-"));
+    private final Random random = new Random();
+    
+    public StandInGateway(RestClient.Builder restClientBuilder, IdGenerator idGenerator,
+                          @Value("${order.gateway.callback-url:http://localhost:${server.port:8080}/api/callbacks}") String callbackUrl) {
+        this.restClient = restClientBuilder.baseUrl(callbackUrl).build();
+        this.idGenerator = idGenerator;
+    }
+    
+    public void requestPaymentAuthorization(String orderId, BigDecimal amount, String callbackToken) {
+        log.info("Gateway accepted payment authorization of {} for order: {}", amount, orderId);
+        
+        later(() -> {
+            // Occasional declines (10% chance)
+            PaymentResult result = random.nextInt(100) < 10
+                    ? new PaymentResult(false, null, null, "Insufficient funds")
+                    : new PaymentResult(true, idGenerator.nextId("PAY-"),
+                            idGenerator.nextId("TXN-"), "Payment authorized successfully");
+            post("/payments", new PaymentCallback(callbackToken, orderId, result));
+        });
+    }
+    
+    public void requestShipment(String orderId, String callbackToken) {
+        log.info("Carrier accepted shipment request for order: {}", orderId);
+        
+        later(() -> {
+            // Occasional carrier outages (2% chance)
+            ShippingResult result = random.nextInt(100) < 2
+                    ? new ShippingResult(false, null, null, null, null, "Shipping carrier unavailable")
+                    : new ShippingResult(true, idGenerator.nextId("SHIP-"),
+                            idGenerator.nextId("TRK"), CARRIERS[random.nextInt(CARRIERS.length)],
+                            "3-5 business days", "Shipping arranged successfully");
+            post("/shipments", new ShippingCallback(callbackToken, orderId, result));
+        });
+    }
+    
+    private void later(Runnable callback) {
+        scheduler.schedule(callback, 1000 + random.nextInt(1000), TimeUnit.MILLISECONDS);
+    }
+    
+    private void post(String path, Object callback) {
+        try {
+            restClient.post()
+                    .uri(path)
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body(callback)
+                    .retrieve()
+                    .toBodilessEntity();
+        } catch (RuntimeException e) {
+            // The waiting activity times out and is retried, which asks the gateway again
+            log.error("Callback {} to {} failed: {}", callback, path, e.getMessage());
+        }
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+}
@@ -0,0 +1,27 @@
+package com.example.ordersaga.id;
+
+/**
+ * Crockford base32 in fixed width. The alphabet is in ASCII order, so encoded ids compare as
+ * strings the same way the numbers do.
+ */
+final class Base32 {
+    
+    private static final char[] ALPHABET = "0123456789ABCDEFGHJKMNPQRSTVWXYZ".toCharArray();
+    
+    private Base32() {
+    }
+    
+    /** Writes the low {@code 5 * length} bits of {@code value} into {@code dest}, most significant first. */
+    static void encode(long value, char[] dest, int offset, int length) {
+        for (int i = offset + length - 1; i >= offset; i--) {
+            dest[i] = ALPHABET[(int) (value & 31)];
+            value >>>= 5;
+        }
+    }
+    
+    static char[] withPrefix(String prefix, int length) {
+        char[] chars = new char[prefix.length() + length];
+        prefix.getChars(0, prefix.length(), chars, 0);
+        return chars;
+    }
+}
@@ -0,0 +1,12 @@
+package com.example.ordersaga.id;
+
+/**
+ * Generates the ids of orders and saga artifacts (payments, transactions, reservations, shipments,
+ * tracking numbers). Ids from one generator are unique and increase with time, so they sort by
+ * creation order and append to the end of a B-tree index.
+ */
+public interface IdGenerator {
+    
+    /** Returns {@code prefix} followed by a new id. */
+    String nextId(String prefix);
+}
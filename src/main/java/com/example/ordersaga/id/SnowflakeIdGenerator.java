@@ -0,0 +1,54 @@
+package com.example.ordersaga.id;
+
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 64-bit Snowflake-style ids: 41 bits of milliseconds since 2024-01-01, a 10-bit node id and a
+ * 12-bit sequence, written as 13 base32 characters.
+ * <p>
+ * Generation is a single CAS on the last (millisecond, sequence) pair. When the sequence of a
+ * millisecond is used up, or the clock steps back, ids continue from the last millisecond issued
+ * instead of waiting, so they stay unique and increasing on this node.
+ */
+public class SnowflakeIdGenerator implements IdGenerator {
+    
+    public static final int MAX_NODE_ID = (1 << 10) - 1;
+    
+    private static final long EPOCH = Instant.parse("2024-01-01T00:00:00Z").toEpochMilli();
+    private static final int SEQUENCE_BITS = 12;
+    private static final int NODE_BITS = 10;
+    private static final int LENGTH = 13;
+    
+    private final long node;
+    private final AtomicLong last = new AtomicLong();
+    
+    public SnowflakeIdGenerator(int nodeId) {
+        if (nodeId < 0 || nodeId > MAX_NODE_ID) {
+            throw new IllegalArgumentException("Node id must be between 0 and " + MAX_NODE_ID + ": " + nodeId);
+        }
+        this.node = (long) nodeId << SEQUENCE_BITS;
+    }
+    
+    public long nextLong() {
+        long now = (System.currentTimeMillis() - EPOCH) << SEQUENCE_BITS;
+        long previous;
+        long next;
+        do {
+            previous = last.get();
+            // A full sequence carries into the millisecond bits
+            next = Math.max(previous + 1, now);
+        } while (!last.compareAndSet(previous, next));
+        
+        long millis = next >>> SEQUENCE_BITS;
+        long sequence = next & ((1L << SEQUENCE_BITS) - 1);
+        return millis << (NODE_BITS + SEQUENCE_BITS) | node | sequence;
+    }
+    
+    @Override
+    public String nextId(String prefix) {
+        char[] chars = Base32.withPrefix(prefix, LENGTH);
+        Base32.encode(nextLong(), chars, prefix.length(), LENGTH);
+        return new String(chars);
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.ordersaga.id;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Monotonic ULIDs: 48 bits of milliseconds and 80 random bits, written as 26 base32 characters.
+ * <p>
+ * The random part needs no node id to stay unique across nodes. Within a millisecond it is
+ * incremented rather than redrawn, so ids from this generator strictly increase.
+ */
+public class UlidGenerator implements IdGenerator {
+    
+    private static final int LENGTH = 26;
+    private static final long RANDOM_HIGH_MASK = 0xFFFF;
+    
+    private long lastMillis = -1;
+    private long randomHigh;
+    private long randomLow;
+    
+    @Override
+    public String nextId(String prefix) {
+        long millis;
+        long high;
+        long low;
+        synchronized (this) {
+            millis = System.currentTimeMillis();
+            if (millis > lastMillis) {
+                lastMillis = millis;
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                randomHigh = random.nextLong() & RANDOM_HIGH_MASK;
+                randomLow = random.nextLong();
+            } else {
+                // Same millisecond, or the clock stepped back
+                millis = lastMillis;
+                if (++randomLow == 0 && (randomHigh = (randomHigh + 1) & RANDOM_HIGH_MASK) == 0) {
+                    lastMillis = ++millis;
+                }
+            }
+            high = randomHigh;
+            low = randomLow;
+        }
+        
+        // 10 characters of time, then 16 of randomness (4 for the high 20 bits, 12 for the low 60)
+        char[] chars = Base32.withPrefix(prefix, LENGTH);
+        int offset = prefix.length();
+        Base32.encode(millis, chars, offset, 10);
+        Base32.encode(high << 4 | low >>> 60, chars, offset + 10, 4);
+        Base32.encode(low, chars, offset + 14, 12);
+        return new String(chars);
+    }
+}
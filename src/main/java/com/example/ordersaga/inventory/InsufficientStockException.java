@@ -0,0 +1,24 @@
+package com.example.ordersaga.inventory;
+
+/**
+ * An order asked for more of a product than is available. Nothing was reserved for the order.
+ */
+public class InsufficientStockException extends RuntimeException {
+    
+    private final String productId;
+    private final long requested;
+    
+    public InsufficientStockException(String productId, long requested) {
+        super("Insufficient stock of " + productId + " for " + requested);
+        this.productId = productId;
+        this.requested = requested;
+    }
+    
+    public String getProductId() {
+        return productId;
+    }
+    
+    public long getRequested() {
+        return requested;
+    }
+}
@@ -0,0 +1,290 @@
+package com.example.ordersaga.inventory;
+
+import com.example.ordersaga.event.OrderEventBus;
+import com.example.ordersaga.id.IdGenerator;
+import com.example.ordersaga.model.InventoryResult;
+import com.example.ordersaga.model.Order;
+import com.example.ordersaga.model.OrderRequest;
+import com.example.ordersaga.model.OrderStatus;
+import com.example.ordersaga.model.OrderStatusEvent;
+import com.example.ordersaga.outbox.OrderOutbox;
+import com.example.ordersaga.repository.OrderRepository;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Statement;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Inventory reservations from concurrent {@code reserveInventory} activities, applied in batches.
+ * <p>
+ * Requests arriving within {@code order.inventory.coalesce.window} of the first one, up to
+ * {@code order.inventory.coalesce.max-batch}, are taken from the {@link StockLedger} one order at a
+ * time, and the orders that got their stock are moved to {@code INVENTORY_RESERVED}, with their outbox
+ * rows, in one transaction of batched guarded updates. Each waiting activity gets its own order's result: an order short of
+ * stock fails alone, and a failed commit fails only the orders it carried, whose activities retry, and
+ * gives back the stock it took for them. An order no longer waiting for inventory when its update
+ * runs fails too, and its stock is given back.
+ * With coalescing disabled every request is applied on its caller's thread.
+ */
+@Component
+public class ReservationCoalescer {
+
+    private static final Logger log = LoggerFactory.getLogger(ReservationCoalescer.class);
+    private static final OrderStatus RESERVED = OrderStatus.INVENTORY_RESERVED;
+    /** Statuses of an order whose stock is reserved; a completed order's stock has already shipped. */
+    private static final Set<OrderStatus> HOLDING_STOCK = EnumSet.range(RESERVED, OrderStatus.IN_DELIVERY);
+
+    private final StockLedger stockLedger;
+    private final IdGenerator idGenerator;
+    private final OrderRepository orderRepository;
+    private final OrderEventBus eventBus;
+    private final OrderOutbox outbox;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transaction;
+    private final String recordReservation;
+    private final boolean enabled;
+    private final long windowNanos;
+    private final int maxBatch;
+    private final BlockingQueue<Request> queue = new LinkedBlockingQueue<>();
+    private final ExecutorService flusher;
+    private final DistributionSummary batchSizes;
+
+    public ReservationCoalescer(StockLedger stockLedger, IdGenerator idGenerator, OrderRepository orderRepository,
+                                OrderEventBus eventBus, OrderOutbox outbox, JdbcTemplate jdbcTemplate,
+                                PlatformTransactionManager transactionManager, MeterRegistry meterRegistry,
+                                @Value("${order.inventory.coalesce.enabled:true}") boolean enabled,
+                                @Value("${order.inventory.coalesce.window:5ms}") Duration window,
+                                @Value("${order.inventory.coalesce.max-batch:200}") int maxBatch) {
+        if (maxBatch < 1) {
+            throw new IllegalArgumentException("order.inventory.coalesce.max-batch must be at least 1");
+        }
+        this.stockLedger = stockLedger;
+        this.idGenerator = idGenerator;
+        this.orderRepository = orderRepository;
+        this.eventBus = eventBus;
+        this.outbox = outbox;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.recordReservation = "update orders set status = ?, reservation_id = ?, updated_at = ?, "
+                + "version = version + 1 where order_id = ? and status in ("
+                + String.join(", ", Collections.nCopies(RESERVED.allowedPredecessors().size(), "?")) + ")";
+        this.enabled = enabled;
+        this.windowNanos = window.toNanos();
+        this.maxBatch = maxBatch;
+        this.batchSizes = DistributionSummary.builder("inventory.reservation.batch.size")
+                .description("Reservations applied per database transaction")
+                .register(meterRegistry);
+        if (enabled) {
+            CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("inventory-coalescer-");
+            threadFactory.setDaemon(true);
+            this.flusher = Executors.newSingleThreadExecutor(threadFactory);
+            this.flusher.execute(this::run);
+        } else {
+            this.flusher = null;
+        }
+    }
+
+    /**
+     * Reserves the stock of every item of the order and records the reservation on the order. Blocks
+     * until the batch carrying the request has committed.
+     */
+    public InventoryResult reserve(OrderRequest orderRequest) {
+        Request request = new Request(orderRequest);
+        if (enabled) {
+            queue.add(request);
+        } else {
+            apply(List.of(request));
+        }
+        try {
+            return request.result.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted waiting for the reservation of order " + orderRequest.getOrderId(), e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    private void run() {
+        List<Request> batch = new ArrayList<>(maxBatch);
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                batch.add(queue.take());
+                long deadline = System.nanoTime() + windowNanos;
+                while (batch.size() < maxBatch) {
+                    Request next = queue.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (!batch.isEmpty()) {
+                try {
+                    apply(batch);
+                } catch (RuntimeException e) {
+                    log.error("Applying {} inventory reservations failed", batch.size(), e);
+                    batch.forEach(request -> request.result.completeExceptionally(e));
+                }
+                batch.clear();
+            }
+        }
+    }
+
+    private void apply(List<Request> batch) {
+        List<Request> reserved = new ArrayList<>(batch.size());
+        for (Request request : batch) {
+            String orderId = request.order.getOrderId();
+            try {
+                request.tookStock = stockLedger.reserve(orderId, request.order.getItems());
+                request.reservationId = idGenerator.nextId("RES-");
+                reserved.add(request);
+            } catch (InsufficientStockException e) {
+                log.warn("Inventory reservation failed for order: {}: {}", orderId, e.getMessage());
+                request.result.complete(new InventoryResult(false, null, "Insufficient inventory of " + e.getProductId()));
+            } catch (RuntimeException e) {
+                request.result.completeExceptionally(e);
+            }
+        }
+        if (reserved.isEmpty()) {
+            return;
+        }
+
+        int[] updated;
+        try {
+            updated = record(reserved);
+        } catch (RuntimeException e) {
+            // No reservation was recorded, so no compensation will give back the stock taken for it; a
+            // retried activity takes it again. Stock an order already held is left to the earlier attempt.
+            log.warn("Recording {} inventory reservations failed", reserved.size(), e);
+            reserved.forEach(request -> {
+                if (request.tookStock) {
+                    stockLedger.release(request.order.getOrderId());
+                }
+                request.result.completeExceptionally(e);
+            });
+            return;
+        }
+        batchSizes.record(reserved.size());
+
+        for (int i = 0; i < reserved.size(); i++) {
+            Request request = reserved.get(i);
+            String orderId = request.order.getOrderId();
+            try {
+                if (updated[i] != 0) {
+                    eventBus.publish(OrderStatusEvent.moved(orderId, RESERVED));
+                    request.result.complete(new InventoryResult(true, request.reservationId,
+                            "Inventory reserved successfully"));
+                } else {
+                    request.result.complete(notApplied(orderId));
+                }
+            } catch (RuntimeException e) {
+                request.result.completeExceptionally(e);
+            }
+        }
+    }
+
+    /**
+     * The result for a reservation whose guarded update changed nothing. An order that has already
+     * moved on from its reservation (a stale retry) keeps its stock. A completed order's stock has
+     * shipped, so what the retry took again is given back. Any other order, such as one being
+     * compensated, is given its stock back too, since no compensation will undo a reservation that failed.
+     */
+    private InventoryResult notApplied(String orderId) {
+        Order order = orderRepository.findByOrderId(orderId)
+                .orElseThrow(() -> new RuntimeException("Order not found"));
+        if (HOLDING_STOCK.contains(order.getStatus())) {
+            log.warn("Skipped transition of order {} to {}: order is already {}",
+                    orderId, RESERVED, order.getStatus());
+            return new InventoryResult(true, order.getReservationId(), "Inventory already reserved");
+        }
+        stockLedger.release(orderId);
+        if (order.getStatus() == OrderStatus.COMPLETED) {
+            log.warn("Released the stock taken again for order {}: order has already shipped", orderId);
+            return new InventoryResult(true, order.getReservationId(), "Inventory already reserved and shipped");
+        }
+        log.warn("Released the stock of order {}: order is {} and can no longer reserve inventory",
+                orderId, order.getStatus());
+        return new InventoryResult(false, null,
+                "Order is " + order.getStatus() + " and can no longer reserve inventory");
+    }
+
+    /** Rows changed per request, in order; {@link Statement#SUCCESS_NO_INFO} counts as changed. */
+    private int[] record(List<Request> reserved) {
+        LocalDateTime now = LocalDateTime.now();
+        List<Object[]> rows = new ArrayList<>(reserved.size());
+        for (Request request : reserved) {
+            List<Object> row = new ArrayList<>();
+            row.add(RESERVED.name());
+            row.add(request.reservationId);
+            row.add(now);
+            row.add(request.order.getOrderId());
+            RESERVED.allowedPredecessors().forEach(status -> row.add(status.name()));
+            rows.add(row.toArray());
+        }
+        return transaction.execute(status -> {
+            int[] updated = jdbcTemplate.batchUpdate(recordReservation, rows);
+            List<OrderStatusEvent> changes = new ArrayList<>(updated.length);
+            for (int i = 0; i < updated.length; i++) {
+                if (updated[i] == Statement.SUCCESS_NO_INFO) {
+                    updated[i] = 1;
+                }
+                if (updated[i] != 0) {
+                    changes.add(OrderStatusEvent.moved(reserved.get(i).order.getOrderId(), RESERVED));
+                }
+            }
+            outbox.append(changes);
+            return updated;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (flusher != null) {
+            flusher.shutdownNow();
+        }
+        List<Request> abandoned = new ArrayList<>();
+        queue.drainTo(abandoned);
+        abandoned.forEach(request -> request.result.completeExceptionally(
+                new IllegalStateException("Shutting down before the reservation was applied")));
+    }
+
+    private static final class Request {
+        private final OrderRequest order;
+        private final CompletableFuture<InventoryResult> result = new CompletableFuture<>();
+        private String reservationId;
+        private boolean tookStock;
+
+        Request(OrderRequest order) {
+            this.order = order;
+        }
+    }
+}
@@ -0,0 +1,388 @@
+package com.example.ordersaga.inventory;
+
+import com.example.ordersaga.model.OrderRequest;
+import com.example.ordersaga.model.StockLevel;
+import com.example.ordersaga.model.StockReservation;
+import com.example.ordersaga.repository.StockLevelRepository;
+import com.example.ordersaga.repository.StockReservationRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Available and reserved stock of every product, kept in memory so that reserving it costs no
+ * database round trip and takes no lock.
+ * <p>
+ * Each product is given a slot in one {@link AtomicLongArray} holding both of its counts in one word,
+ * available in the low half and reserved in the high half, so a single compare-and-set moves stock
+ * from one count to the other and a read never sees it in neither. A product holds at most
+ * {@link #MAX_STOCK}. Slots are a cache line apart, so a flash sale hammering a few products contends
+ * on those products' slots only and never holds up reservations of anything else. An order's lines are
+ * reserved one product at a time and given back if a later line is short, so an order gets all of its
+ * lines or none; meanwhile a concurrent order for the same product may see the stock that is about to
+ * be given back as reserved.
+ * <p>
+ * Stock levels and open reservations are loaded from the database at startup and written back every
+ * {@code order.inventory.snapshot-interval}; what moved after the last snapshot is lost if the process
+ * dies. A product seen for the first time starts with its {@code order.inventory.initial-stock} entry,
+ * or {@code order.inventory.default-stock}.
+ */
+@Component
+public class StockLedger {
+
+    private static final Logger log = LoggerFactory.getLogger(StockLedger.class);
+
+    /** The most stock, available and reserved together, a product can hold. */
+    public static final long MAX_STOCK = 0xFFFF_FFFFL;
+
+    /** Longs per slot: one 64-byte cache line, of which only the first is used. */
+    private static final int STRIDE = 8;
+    private static final int RESERVED_SHIFT = 32;
+    private static final Reservation RELEASED = new Reservation(new int[0], new long[0]);
+
+    private final StockLevelRepository levelRepository;
+    private final StockReservationRepository reservationRepository;
+    private final TransactionTemplate transaction;
+    private final long defaultStock;
+    private final Map<String, Long> initialStock = new HashMap<>();
+    private final Duration snapshotInterval;
+
+    private final AtomicLongArray counts;
+    private final AtomicReferenceArray<String> productIds;
+    private final AtomicInteger nextSlot = new AtomicInteger();
+    private final Map<String, Integer> slots = new ConcurrentHashMap<>();
+    private final Map<String, Reservation> reservations = new ConcurrentHashMap<>();
+    /** Slots and reservations changed since the last snapshot; {@link #RELEASED} marks a removed reservation. */
+    private final Set<Integer> changedSlots = ConcurrentHashMap.newKeySet();
+    private final Map<String, Reservation> changedReservations = new ConcurrentHashMap<>();
+
+    private final ScheduledExecutorService snapshots =
+            Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("stock-snapshot-"));
+    private final Counter reservedOrders;
+    private final Counter shortOrders;
+    private final Counter contention;
+
+    public StockLedger(StockLevelRepository levelRepository, StockReservationRepository reservationRepository,
+                       PlatformTransactionManager transactionManager, MeterRegistry meterRegistry,
+                       @Value("${order.inventory.capacity:10000}") int capacity,
+                       @Value("${order.inventory.default-stock:0}") long defaultStock,
+                       @Value("${order.inventory.initial-stock:}") List<String> initialStock,
+                       @Value("${order.inventory.snapshot-interval:5s}") Duration snapshotInterval) {
+        this.levelRepository = levelRepository;
+        this.reservationRepository = reservationRepository;
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.defaultStock = defaultStock;
+        this.snapshotInterval = snapshotInterval;
+        this.counts = new AtomicLongArray(capacity * STRIDE);
+        this.productIds = new AtomicReferenceArray<>(capacity);
+        for (String entry : initialStock) {
+            if (entry.isBlank()) {
+                continue;
+            }
+            int separator = entry.lastIndexOf('=');
+            if (separator < 1) {
+                throw new IllegalArgumentException("order.inventory.initial-stock entries are productId=quantity: " + entry);
+            }
+            this.initialStock.put(entry.substring(0, separator).trim(),
+                    checkStock(Long.parseLong(entry.substring(separator + 1).trim()), entry));
+        }
+        checkStock(defaultStock, "order.inventory.default-stock");
+        this.reservedOrders = reservations(meterRegistry, "reserved");
+        this.shortOrders = reservations(meterRegistry, "insufficient_stock");
+        this.contention = Counter.builder("inventory.cas.retries")
+                .description("Stock updates retried because another reservation changed the same product first")
+                .register(meterRegistry);
+    }
+
+    private static long checkStock(long stock, String source) {
+        if (stock < 0 || stock > MAX_STOCK) {
+            throw new IllegalArgumentException("Stock must be between 0 and " + MAX_STOCK + ": " + source);
+        }
+        return stock;
+    }
+
+    private static long pack(long available, long reserved) {
+        return reserved << RESERVED_SHIFT | available;
+    }
+
+    private static long available(long counts) {
+        return counts & MAX_STOCK;
+    }
+
+    private static long reserved(long counts) {
+        return counts >>> RESERVED_SHIFT;
+    }
+
+    private static Counter reservations(MeterRegistry meterRegistry, String outcome) {
+        return Counter.builder("inventory.reservations")
+                .description("Order stock reservations, by outcome")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void load() {
+        long started = System.nanoTime();
+        transaction.executeWithoutResult(status -> {
+            for (StockLevel level : levelRepository.findAll()) {
+                int slot = slot(level.getProductId());
+                checkStock(level.getAvailable() + level.getReserved(), "stored stock of " + level.getProductId());
+                counts.set(slot * STRIDE, pack(level.getAvailable(), level.getReserved()));
+            }
+            for (StockReservation stored : reservationRepository.findAll()) {
+                reservations.put(stored.getOrderId(), reservation(stored.getQuantities()));
+            }
+        });
+        changedSlots.clear();
+        log.info("Loaded stock of {} products and {} open reservations in {} ms", slots.size(), reservations.size(),
+                (System.nanoTime() - started) / 1_000_000);
+        long intervalMillis = snapshotInterval.toMillis();
+        if (intervalMillis > 0) {
+            snapshots.scheduleWithFixedDelay(this::snapshot, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Reserves every line of an order, or none of them. Reserving again for an order that already
+     * holds stock changes nothing.
+     *
+     * @return whether this call took the stock, rather than finding it already held for the order
+     * @throws InsufficientStockException if a product does not have enough stock available
+     */
+    public boolean reserve(String orderId, List<OrderRequest.OrderItemRequest> items) {
+        if (reservations.containsKey(orderId)) {
+            return false;
+        }
+        Map<String, Long> quantities = new LinkedHashMap<>();
+        for (OrderRequest.OrderItemRequest item : items) {
+            if (item.getQuantity() != null && item.getQuantity() > 0) {
+                quantities.merge(item.getProductId(), (long) item.getQuantity(), Long::sum);
+            }
+        }
+        Reservation reservation = reservation(quantities);
+
+        for (int line = 0; line < reservation.slots.length; line++) {
+            if (!take(reservation.slots[line], reservation.quantities[line])) {
+                // Give back the lines already taken
+                for (int i = 0; i < line; i++) {
+                    move(reservation.slots[i], reservation.quantities[i], -reservation.quantities[i]);
+                }
+                shortOrders.increment();
+                throw new InsufficientStockException(productIds.get(reservation.slots[line]),
+                        reservation.quantities[line]);
+            }
+        }
+
+        if (reservations.putIfAbsent(orderId, reservation) != null) {
+            // A concurrent retry for the same order got there first
+            move(reservation, 1, -1);
+            return false;
+        }
+        changedReservations.put(orderId, reservation);
+        reservedOrders.increment();
+        return true;
+    }
+
+    /** Returns an order's reserved stock to the available stock. Returns false if it held none. */
+    public boolean release(String orderId) {
+        Reservation reservation = reservations.remove(orderId);
+        if (reservation == null) {
+            return false;
+        }
+        move(reservation, 1, -1);
+        changedReservations.put(orderId, RELEASED);
+        return true;
+    }
+
+    /** Removes an order's reserved stock for good, once the order has shipped. Returns false if it held none. */
+    public boolean commit(String orderId) {
+        Reservation reservation = reservations.remove(orderId);
+        if (reservation == null) {
+            return false;
+        }
+        move(reservation, 0, -1);
+        changedReservations.put(orderId, RELEASED);
+        return true;
+    }
+
+    public long getAvailable(String productId) {
+        Integer slot = slots.get(productId);
+        return slot != null ? available(counts.get(slot * STRIDE)) : defaultStock(productId);
+    }
+
+    public long getReserved(String productId) {
+        Integer slot = slots.get(productId);
+        return slot != null ? reserved(counts.get(slot * STRIDE)) : 0;
+    }
+
+    /** Moves {@code quantity} of a product from available to reserved, if that much is available. */
+    private boolean take(int slot, long quantity) {
+        int index = slot * STRIDE;
+        while (true) {
+            long current = counts.get(index);
+            long available = available(current);
+            if (available < quantity) {
+                return false;
+            }
+            if (counts.compareAndSet(index, current, pack(available - quantity, reserved(current) + quantity))) {
+                changedSlots.add(slot);
+                return true;
+            }
+            contention.increment();
+            Thread.onSpinWait();
+        }
+    }
+
+    /** Adds each line's quantity, times the given signs, to its product's available and reserved counts. */
+    private void move(Reservation reservation, int availableSign, int reservedSign) {
+        for (int i = 0; i < reservation.slots.length; i++) {
+            long quantity = reservation.quantities[i];
+            move(reservation.slots[i], availableSign * quantity, reservedSign * quantity);
+        }
+    }
+
+    /** Changes both counts of a product in one step. */
+    private void move(int slot, long availableDelta, long reservedDelta) {
+        int index = slot * STRIDE;
+        long current;
+        do {
+            current = counts.get(index);
+        } while (!counts.compareAndSet(index, current,
+                pack(available(current) + availableDelta, reserved(current) + reservedDelta)));
+        changedSlots.add(slot);
+    }
+
+    private Reservation reservation(Map<String, Long> quantities) {
+        int[] lineSlots = new int[quantities.size()];
+        long[] lineQuantities = new long[quantities.size()];
+        int line = 0;
+        for (Map.Entry<String, Long> entry : quantities.entrySet()) {
+            lineSlots[line] = slot(entry.getKey());
+            lineQuantities[line] = entry.getValue();
+            line++;
+        }
+        return new Reservation(lineSlots, lineQuantities);
+    }
+
+    private int slot(String productId) {
+        return slots.computeIfAbsent(productId, id -> {
+            int slot = nextSlot.getAndIncrement();
+            if (slot >= productIds.length()) {
+                nextSlot.decrementAndGet();
+                throw new IllegalStateException("Stock ledger is full: order.inventory.capacity is "
+                        + productIds.length() + " products");
+            }
+            productIds.set(slot, id);
+            counts.set(slot * STRIDE, pack(defaultStock(id), 0));
+            changedSlots.add(slot);
+            return slot;
+        });
+    }
+
+    private long defaultStock(String productId) {
+        return initialStock.getOrDefault(productId, defaultStock);
+    }
+
+    /** Writes the stock levels and reservations changed since the last snapshot. */
+    public void snapshot() {
+        LocalDateTime now = LocalDateTime.now();
+        List<StockLevel> levels = new ArrayList<>();
+        for (Iterator<Integer> changed = changedSlots.iterator(); changed.hasNext(); ) {
+            int slot = changed.next();
+            // Removed before reading, so a change made after the read marks the slot again
+            changed.remove();
+            long current = counts.get(slot * STRIDE);
+            levels.add(new StockLevel(productIds.get(slot), available(current), reserved(current), now));
+        }
+        List<StockReservation> opened = new ArrayList<>();
+        List<String> closed = new ArrayList<>();
+        for (String orderId : changedReservations.keySet()) {
+            Reservation reservation = changedReservations.remove(orderId);
+            if (reservation == RELEASED) {
+                closed.add(orderId);
+            } else if (reservation != null) {
+                opened.add(new StockReservation(orderId, reservation.toMap(productIds), now));
+            }
+        }
+        if (levels.isEmpty() && opened.isEmpty() && closed.isEmpty()) {
+            return;
+        }
+
+        try {
+            transaction.executeWithoutResult(status -> {
+                levelRepository.saveAll(levels);
+                reservationRepository.saveAll(opened);
+                reservationRepository.deleteAllById(closed);
+            });
+            log.debug("Snapshotted {} stock levels, {} new and {} closed reservations",
+                    levels.size(), opened.size(), closed.size());
+        } catch (RuntimeException e) {
+            log.warn("Stock snapshot failed; retrying in {}", snapshotInterval, e);
+            for (StockLevel level : levels) {
+                changedSlots.add(slots.get(level.getProductId()));
+            }
+            for (StockReservation reservation : opened) {
+                Reservation current = reservations.get(reservation.getOrderId());
+                if (current != null) {
+                    changedReservations.putIfAbsent(reservation.getOrderId(), current);
+                }
+            }
+            closed.forEach(orderId -> changedReservations.putIfAbsent(orderId, RELEASED));
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        snapshots.shutdown();
+        try {
+            snapshots.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        snapshot();
+    }
+
+    /** The products and quantities an order holds, by slot. */
+    private static final class Reservation {
+        private final int[] slots;
+        private final long[] quantities;
+
+        Reservation(int[] slots, long[] quantities) {
+            this.slots = slots;
+            this.quantities = quantities;
+        }
+
+        Map<String, Long> toMap(AtomicReferenceArray<String> productIds) {
+            Map<String, Long> map = new LinkedHashMap<>();
+            for (int i = 0; i < slots.length; i++) {
+                map.put(productIds.get(slots[i]), quantities[i]);
+            }
+            return map;
+        }
+    }
+}
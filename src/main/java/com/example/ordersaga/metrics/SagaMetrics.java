@@ -0,0 +1,149 @@
+package com.example.ordersaga.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Saga meters, tagged by the {@code OrderActivities}/{@code OrderStoreActivities} method name.
+ * <p>
+ * Meters are created once per activity or workflow type and cached, so recording from the interceptors
+ * is a map lookup and an atomic update.
+ */
+public class SagaMetrics {
+
+    /** Activities that only run once the saga has started compensating. */
+    static final Set<String> COMPENSATION_ACTIVITY_TYPES =
+            Set.of("CompensatePayment", "CompensateInventory", "CompensateShipping", "MarkOrderAsFailed");
+
+    private static final Duration MIN_EXPECTED = Duration.ofMillis(1);
+    private static final Duration MAX_EXPECTED = Duration.ofMinutes(5);
+
+    private final MeterRegistry registry;
+    private final Map<String, ActivityMeters> activities = new ConcurrentHashMap<>();
+    private final Map<String, StartMeters> workflowStarts = new ConcurrentHashMap<>();
+    private final AtomicInteger activitiesInFlight = new AtomicInteger();
+    private final Set<String> workflowsInFlight = ConcurrentHashMap.newKeySet();
+
+    public SagaMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        Gauge.builder("saga.activities.in.flight", activitiesInFlight, AtomicInteger::get)
+                .description("Activities executing on this worker")
+                .register(registry);
+        Gauge.builder("saga.workflows.in.flight", workflowsInFlight, Set::size)
+                .description("Order workflows started on this worker and not yet finished")
+                .register(registry);
+    }
+
+    public MeterRegistry getRegistry() {
+        return registry;
+    }
+
+    ActivityMeters activity(String activityType) {
+        ActivityMeters meters = activities.get(activityType);
+        return meters != null ? meters : activities.computeIfAbsent(activityType, ActivityMeters::new);
+    }
+
+    StartMeters workflowStart(String workflowType) {
+        StartMeters meters = workflowStarts.get(workflowType);
+        return meters != null ? meters : workflowStarts.computeIfAbsent(workflowType, StartMeters::new);
+    }
+
+    AtomicInteger activitiesInFlight() {
+        return activitiesInFlight;
+    }
+
+    void workflowStarted(String workflowId) {
+        workflowsInFlight.add(workflowId);
+    }
+
+    void workflowFinished(String workflowId) {
+        workflowsInFlight.remove(workflowId);
+    }
+
+    private Timer timer(String name, String description, String... tags) {
+        return Timer.builder(name)
+                .description(description)
+                .tags(tags)
+                .publishPercentileHistogram()
+                .minimumExpectedValue(MIN_EXPECTED)
+                .maximumExpectedValue(MAX_EXPECTED)
+                .register(registry);
+    }
+
+    /** Activity type names are the method names capitalized by the SDK. */
+    private static String methodName(String activityType) {
+        return Character.toLowerCase(activityType.charAt(0)) + activityType.substring(1);
+    }
+
+    final class ActivityMeters {
+
+        private final String activity;
+        private final Timer succeeded;
+        private final Timer failed;
+        private final Timer step;
+        private final Counter retries;
+        private volatile Counter compensations;
+
+        private ActivityMeters(String activityType) {
+            activity = methodName(activityType);
+            String execution = "Time spent executing one activity attempt";
+            succeeded = timer("saga.activity.execution", execution, "activity", activity, "outcome", "success");
+            failed = timer("saga.activity.execution", execution, "activity", activity, "outcome", "failure");
+            step = timer("saga.step.duration",
+                    "Workflow time from scheduling a saga step to its result, including retries and callbacks",
+                    "activity", activity);
+            retries = Counter.builder("saga.activity.retries")
+                    .description("Activity attempts after the first")
+                    .tag("activity", activity)
+                    .register(registry);
+        }
+
+        void recordExecution(long nanos, boolean success) {
+            (success ? succeeded : failed).record(nanos, TimeUnit.NANOSECONDS);
+        }
+
+        void recordStep(long millis) {
+            step.record(millis, TimeUnit.MILLISECONDS);
+        }
+
+        void recordRetry() {
+            retries.increment();
+        }
+
+        void recordCompensation() {
+            // Registered on first use, so steps that never fail a saga do not show up as zero series
+            if (compensations == null) {
+                compensations = Counter.builder("saga.compensations")
+                        .description("Sagas compensated, by the step whose result started the compensation")
+                        .tag("failed.step", activity)
+                        .register(registry);
+            }
+            compensations.increment();
+        }
+    }
+
+    final class StartMeters {
+
+        private final Timer succeeded;
+        private final Timer failed;
+
+        private StartMeters(String workflowType) {
+            String description = "Time for the service to accept a workflow start";
+            succeeded = timer("saga.workflow.start", description, "workflow", workflowType, "outcome", "success");
+            failed = timer("saga.workflow.start", description, "workflow", workflowType, "outcome", "failure");
+        }
+
+        void record(long nanos, boolean success) {
+            (success ? succeeded : failed).record(nanos, TimeUnit.NANOSECONDS);
+        }
+    }
+}
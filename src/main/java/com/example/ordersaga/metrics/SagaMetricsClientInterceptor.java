@@ -0,0 +1,36 @@
+package com.example.ordersaga.metrics;
+
+import io.temporal.common.interceptors.WorkflowClientCallsInterceptor;
+import io.temporal.common.interceptors.WorkflowClientCallsInterceptorBase;
+import io.temporal.common.interceptors.WorkflowClientInterceptorBase;
+
+/**
+ * Records how long the Temporal service takes to accept each workflow start, by workflow type.
+ */
+public class SagaMetricsClientInterceptor extends WorkflowClientInterceptorBase {
+
+    private final SagaMetrics metrics;
+
+    public SagaMetricsClientInterceptor(SagaMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @Override
+    public WorkflowClientCallsInterceptor workflowClientCallsInterceptor(WorkflowClientCallsInterceptor next) {
+        return new WorkflowClientCallsInterceptorBase(next) {
+            @Override
+            public WorkflowStartOutput start(WorkflowStartInput input) {
+                SagaMetrics.StartMeters meters = metrics.workflowStart(input.getWorkflowType());
+                long start = System.nanoTime();
+                boolean success = false;
+                try {
+                    WorkflowStartOutput output = super.start(input);
+                    success = true;
+                    return output;
+                } finally {
+                    meters.record(System.nanoTime() - start, success);
+                }
+            }
+        };
+    }
+}
@@ -0,0 +1,139 @@
+package com.example.ordersaga.metrics;
+
+import io.temporal.activity.ActivityExecutionContext;
+import io.temporal.activity.ActivityInfo;
+import io.temporal.common.interceptors.ActivityInboundCallsInterceptor;
+import io.temporal.common.interceptors.ActivityInboundCallsInterceptorBase;
+import io.temporal.common.interceptors.WorkerInterceptorBase;
+import io.temporal.common.interceptors.WorkflowInboundCallsInterceptor;
+import io.temporal.common.interceptors.WorkflowInboundCallsInterceptorBase;
+import io.temporal.common.interceptors.WorkflowOutboundCallsInterceptor;
+import io.temporal.common.interceptors.WorkflowOutboundCallsInterceptorBase;
+import io.temporal.workflow.Promise;
+import io.temporal.workflow.Workflow;
+import io.temporal.workflow.unsafe.WorkflowUnsafe;
+
+/**
+ * Records activity execution time and retries on the activity side, and saga step duration,
+ * compensations and in-flight workflows on the workflow side.
+ * <p>
+ * Workflow code is replayed whenever a workflow is recovered, so workflow-side meters are only
+ * updated outside replay. Register this interceptor first so it is the innermost one and times the
+ * activity itself rather than any queueing in outer interceptors.
+ */
+public class SagaMetricsWorkerInterceptor extends WorkerInterceptorBase {
+
+    private final SagaMetrics metrics;
+
+    public SagaMetricsWorkerInterceptor(SagaMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @Override
+    public ActivityInboundCallsInterceptor interceptActivity(ActivityInboundCallsInterceptor next) {
+        return new ActivityInboundCallsInterceptorBase(next) {
+            private ActivityInfo info;
+
+            @Override
+            public void init(ActivityExecutionContext context) {
+                info = context.getInfo();
+                super.init(context);
+            }
+
+            @Override
+            public ActivityOutput execute(ActivityInput input) {
+                SagaMetrics.ActivityMeters meters = metrics.activity(info.getActivityType());
+                if (info.getAttempt() > 1) {
+                    meters.recordRetry();
+                }
+                metrics.activitiesInFlight().incrementAndGet();
+                long start = System.nanoTime();
+                boolean success = false;
+                try {
+                    ActivityOutput output = super.execute(input);
+                    success = true;
+                    return output;
+                } finally {
+                    meters.recordExecution(System.nanoTime() - start, success);
+                    metrics.activitiesInFlight().decrementAndGet();
+                }
+            }
+        };
+    }
+
+    @Override
+    public WorkflowInboundCallsInterceptor interceptWorkflow(WorkflowInboundCallsInterceptor next) {
+        return new WorkflowInboundCallsInterceptorBase(next) {
+            @Override
+            public void init(WorkflowOutboundCallsInterceptor outboundCalls) {
+                super.init(new StepRecorder(outboundCalls));
+            }
+
+            @Override
+            public WorkflowOutput execute(WorkflowInput input) {
+                String workflowId = Workflow.getInfo().getWorkflowId();
+                metrics.workflowStarted(workflowId);
+                // Errors are thrown when a cached workflow is evicted; the workflow is still in flight then
+                try {
+                    WorkflowOutput output = super.execute(input);
+                    metrics.workflowFinished(workflowId);
+                    return output;
+                } catch (RuntimeException e) {
+                    metrics.workflowFinished(workflowId);
+                    throw e;
+                }
+            }
+        };
+    }
+
+    /** Times each saga step and attributes a compensation to the step whose result arrived last. */
+    private class StepRecorder extends WorkflowOutboundCallsInterceptorBase {
+
+        private String lastStep;
+        private boolean compensating;
+
+        StepRecorder(WorkflowOutboundCallsInterceptor next) {
+            super(next);
+        }
+
+        @Override
+        public <R> ActivityOutput<R> executeActivity(ActivityInput<R> input) {
+            String activityType = input.getActivityName();
+            long scheduled = scheduled(activityType);
+            ActivityOutput<R> output = super.executeActivity(input);
+            completed(activityType, scheduled, output.getResult());
+            return output;
+        }
+
+        @Override
+        public <R> LocalActivityOutput<R> executeLocalActivity(LocalActivityInput<R> input) {
+            String activityType = input.getActivityName();
+            long scheduled = scheduled(activityType);
+            LocalActivityOutput<R> output = super.executeLocalActivity(input);
+            completed(activityType, scheduled, output.getResult());
+            return output;
+        }
+
+        private long scheduled(String activityType) {
+            if (!compensating && SagaMetrics.COMPENSATION_ACTIVITY_TYPES.contains(activityType)) {
+                compensating = true;
+                if (lastStep != null && !WorkflowUnsafe.isReplaying()) {
+                    metrics.activity(lastStep).recordCompensation();
+                }
+            }
+            return Workflow.currentTimeMillis();
+        }
+
+        private void completed(String activityType, long scheduled, Promise<?> result) {
+            result.handle((value, failure) -> {
+                if (!compensating) {
+                    lastStep = activityType;
+                }
+                if (!WorkflowUnsafe.isReplaying()) {
+                    metrics.activity(activityType).recordStep(Workflow.currentTimeMillis() - scheduled);
+                }
+                return null;
+            });
+        }
+    }
+}
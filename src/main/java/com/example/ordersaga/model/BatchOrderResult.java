@@ -0,0 +1,86 @@
+package com.example.ordersaga.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.Objects;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BatchOrderResult {
+    private int index;
+    private String orderId;
+    private String status;
+    private String error;
+    
+    public BatchOrderResult() {
+    }
+    
+    public BatchOrderResult(int index, String orderId, String status, String error) {
+        this.index = index;
+        this.orderId = orderId;
+        this.status = status;
+        this.error = error;
+    }
+    
+    public static BatchOrderResult started(int index, String orderId) {
+        return new BatchOrderResult(index, orderId, "STARTED", null);
+    }
+    
+    public static BatchOrderResult failed(int index, String orderId, String error) {
+        return new BatchOrderResult(index, orderId, "FAILED", error);
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public void setIndex(int index) {
+        this.index = index;
+    }
+
+    public String getOrderId() {
+        return orderId;
+    }
+
+    public void setOrderId(String orderId) {
+        this.orderId = orderId;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        BatchOrderResult that = (BatchOrderResult) o;
+        return index == that.index && Objects.equals(orderId, that.orderId) && Objects.equals(status, that.status);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(index, orderId, status);
+    }
+
+    @Override
+    public String toString() {
+        return "BatchOrderResult{" +
+                "index=" + index +
+                ", orderId='" + orderId + '\'' +
+                ", status='" + status + '\'' +
+                ", error='" + error + '\'' +
+                '}';
+    }
+}
@@ -8,11 +8,17 @@ import java.util.List;
 import java.util.Objects;
 
 @Entity
-@Table(name = "orders")
+@Table(name = "orders", indexes = {
+        @Index(name = "idx_orders_created", columnList = "createdAt, id"),
+        @Index(name = "idx_orders_status_created", columnList = "status, createdAt, id"),
+        @Index(name = "idx_orders_customer_created", columnList = "customerId, createdAt, id")
+})
 public class Order {
     
+    // Sequence ids, fetched 50 at a time, let Hibernate batch inserts (IDENTITY would insert one by one)
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "orders_seq")
+    @SequenceGenerator(name = "orders_seq", sequenceName = "orders_seq", allocationSize = 50)
     private Long id;
     
     @Column(unique = true, nullable = false)
@@ -40,6 +46,16 @@ public class Order {
     @Column(length = 1000)
     private String failureReason;
     
+    @Enumerated(EnumType.STRING)
+    private SagaRoute route;
+    
+    // Task token of the activity attempt waiting on a gateway callback; only its callback records a result
+    @Column(length = 1000)
+    private String callbackToken;
+    
+    @Version
+    private Long version;
+    
     public Order() {
     }
     
@@ -196,6 +212,30 @@ public class Order {
         this.failureReason = failureReason;
     }
 
+    public SagaRoute getRoute() {
+        return route;
+    }
+
+    public void setRoute(SagaRoute route) {
+        this.route = route;
+    }
+
+    public String getCallbackToken() {
+        return callbackToken;
+    }
+
+    public void setCallbackToken(String callbackToken) {
+        this.callbackToken = callbackToken;
+    }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -225,6 +265,8 @@ public class Order {
                 ", updatedAt=" + updatedAt +
                 ", completedAt=" + completedAt +
                 ", failureReason='" + failureReason + '\'' +
+                ", route=" + route +
+                ", version=" + version +
                 '}';
     }
 }
@@ -0,0 +1,57 @@
+package com.example.ordersaga.model;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Records read from the order event log, and the offset to read from next.
+ */
+public class OrderLogPage {
+    private List<OrderLogRecord> records;
+    private long nextOffset;
+    
+    public OrderLogPage() {
+    }
+    
+    public OrderLogPage(List<OrderLogRecord> records, long nextOffset) {
+        this.records = records;
+        this.nextOffset = nextOffset;
+    }
+
+    public List<OrderLogRecord> getRecords() {
+        return records;
+    }
+
+    public void setRecords(List<OrderLogRecord> records) {
+        this.records = records;
+    }
+
+    public long getNextOffset() {
+        return nextOffset;
+    }
+
+    public void setNextOffset(long nextOffset) {
+        this.nextOffset = nextOffset;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        OrderLogPage that = (OrderLogPage) o;
+        return nextOffset == that.nextOffset && Objects.equals(records, that.records);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(records, nextOffset);
+    }
+
+    @Override
+    public String toString() {
+        return "OrderLogPage{" +
+                "records=" + records +
+                ", nextOffset=" + nextOffset +
+                '}';
+    }
+}
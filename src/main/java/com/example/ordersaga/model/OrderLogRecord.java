@@ -0,0 +1,93 @@
+package com.example.ordersaga.model;
+
+import java.time.LocalDateTime;
+import java.util.Objects;
+
+/**
+ * One order status change in the order event log. {@code offset} is where the record starts in the
+ * log; {@code eventId} identifies the change, across restarts too, so a consumer can drop the rare
+ * duplicate the relay writes when it stops between appending and clearing the outbox.
+ */
+public class OrderLogRecord {
+    private long offset;
+    private String eventId;
+    private String orderId;
+    private OrderStatus status;
+    private LocalDateTime occurredAt;
+    
+    public OrderLogRecord() {
+    }
+    
+    public OrderLogRecord(long offset, String eventId, String orderId, OrderStatus status, LocalDateTime occurredAt) {
+        this.offset = offset;
+        this.eventId = eventId;
+        this.orderId = orderId;
+        this.status = status;
+        this.occurredAt = occurredAt;
+    }
+
+    public long getOffset() {
+        return offset;
+    }
+
+    public void setOffset(long offset) {
+        this.offset = offset;
+    }
+
+    public String getEventId() {
+        return eventId;
+    }
+
+    public void setEventId(String eventId) {
+        this.eventId = eventId;
+    }
+
+    public String getOrderId() {
+        return orderId;
+    }
+
+    public void setOrderId(String orderId) {
+        this.orderId = orderId;
+    }
+
+    public OrderStatus getStatus() {
+        return status;
+    }
+
+    public void setStatus(OrderStatus status) {
+        this.status = status;
+    }
+
+    public LocalDateTime getOccurredAt() {
+        return occurredAt;
+    }
+
+    public void setOccurredAt(LocalDateTime occurredAt) {
+        this.occurredAt = occurredAt;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        OrderLogRecord that = (OrderLogRecord) o;
+        return offset == that.offset && Objects.equals(eventId, that.eventId) && Objects.equals(orderId, that.orderId)
+                && status == that.status && Objects.equals(occurredAt, that.occurredAt);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(offset, eventId, orderId, status, occurredAt);
+    }
+
+    @Override
+    public String toString() {
+        return "OrderLogRecord{" +
+                "offset=" + offset +
+                ", eventId='" + eventId + '\'' +
+                ", orderId='" + orderId + '\'' +
+                ", status=" + status +
+                ", occurredAt=" + occurredAt +
+                '}';
+    }
+}
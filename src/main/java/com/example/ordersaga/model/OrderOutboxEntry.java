@@ -0,0 +1,111 @@
+package com.example.ordersaga.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+
+import java.time.LocalDateTime;
+import java.util.Objects;
+
+/**
+ * A status change waiting to be relayed to the order event log, written in the same transaction as
+ * the change itself.
+ */
+@Entity
+@Table(name = "order_outbox")
+public class OrderOutboxEntry {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Column(unique = true, nullable = false)
+    private String eventId;
+    
+    private String orderId;
+    
+    @Enumerated(EnumType.STRING)
+    private OrderStatus status;
+    
+    private LocalDateTime occurredAt;
+    
+    public OrderOutboxEntry() {
+    }
+    
+    public OrderOutboxEntry(Long id, String eventId, String orderId, OrderStatus status, LocalDateTime occurredAt) {
+        this.id = id;
+        this.eventId = eventId;
+        this.orderId = orderId;
+        this.status = status;
+        this.occurredAt = occurredAt;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getEventId() {
+        return eventId;
+    }
+
+    public void setEventId(String eventId) {
+        this.eventId = eventId;
+    }
+
+    public String getOrderId() {
+        return orderId;
+    }
+
+    public void setOrderId(String orderId) {
+        this.orderId = orderId;
+    }
+
+    public OrderStatus getStatus() {
+        return status;
+    }
+
+    public void setStatus(OrderStatus status) {
+        this.status = status;
+    }
+
+    public LocalDateTime getOccurredAt() {
+        return occurredAt;
+    }
+
+    public void setOccurredAt(LocalDateTime occurredAt) {
+        this.occurredAt = occurredAt;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        OrderOutboxEntry that = (OrderOutboxEntry) o;
+        return Objects.equals(id, that.id);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(id);
+    }
+
+    @Override
+    public String toString() {
+        return "OrderOutboxEntry{" +
+                "id=" + id +
+                ", eventId='" + eventId + '\'' +
+                ", orderId='" + orderId + '\'' +
+                ", status=" + status +
+                ", occurredAt=" + occurredAt +
+                '}';
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.ordersaga.model;
+
+import java.util.List;
+import java.util.Objects;
+
+public class OrderPage {
+    private List<OrderView> orders;
+    private String nextCursor;
+    
+    public OrderPage() {
+    }
+    
+    public OrderPage(List<OrderView> orders, String nextCursor) {
+        this.orders = orders;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<OrderView> getOrders() {
+        return orders;
+    }
+
+    public void setOrders(List<OrderView> orders) {
+        this.orders = orders;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        OrderPage orderPage = (OrderPage) o;
+        return Objects.equals(orders, orderPage.orders) && Objects.equals(nextCursor, orderPage.nextCursor);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(orders, nextCursor);
+    }
+
+    @Override
+    public String toString() {
+        return "OrderPage{" +
+                "orders=" + orders +
+                ", nextCursor='" + nextCursor + '\'' +
+                '}';
+    }
+}
@@ -0,0 +1,270 @@
+package com.example.ordersaga.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.io.Serializable;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Where an order's saga is: its status, the step running now, the ids the steps returned and how
+ * long each step took. Kept in workflow state and read with a workflow query while the saga runs;
+ * built from the stored order, without steps, once it has closed.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class OrderProgress implements Serializable {
+    private String orderId;
+    private String customerId;
+    private OrderStatus status;
+    private SagaRoute route;
+    private boolean running;
+    private String currentStep;
+    private String paymentId;
+    private String reservationId;
+    private String shippingId;
+    private String trackingNumber;
+    private String failureReason;
+    private List<StepTiming> steps = new ArrayList<>();
+    
+    public OrderProgress() {
+    }
+    
+    public OrderProgress(String orderId, String customerId) {
+        this.orderId = orderId;
+        this.customerId = customerId;
+        this.running = true;
+    }
+    
+    public static OrderProgress of(OrderView order) {
+        OrderProgress progress = new OrderProgress();
+        progress.setOrderId(order.getOrderId());
+        progress.setCustomerId(order.getCustomerId());
+        progress.setStatus(order.getStatus());
+        progress.setRoute(order.getRoute());
+        progress.setPaymentId(order.getPaymentId());
+        progress.setReservationId(order.getReservationId());
+        progress.setShippingId(order.getShippingId());
+        progress.setTrackingNumber(order.getTrackingNumber());
+        progress.setFailureReason(order.getFailureReason());
+        return progress;
+    }
+
+    public String getOrderId() {
+        return orderId;
+    }
+
+    public void setOrderId(String orderId) {
+        this.orderId = orderId;
+    }
+
+    public String getCustomerId() {
+        return customerId;
+    }
+
+    public void setCustomerId(String customerId) {
+        this.customerId = customerId;
+    }
+
+    public OrderStatus getStatus() {
+        return status;
+    }
+
+    public void setStatus(OrderStatus status) {
+        this.status = status;
+    }
+
+    public SagaRoute getRoute() {
+        return route;
+    }
+
+    public void setRoute(SagaRoute route) {
+        this.route = route;
+    }
+
+    /** True when read from the running saga rather than the database. */
+    public boolean isRunning() {
+        return running;
+    }
+
+    public void setRunning(boolean running) {
+        this.running = running;
+    }
+
+    public String getCurrentStep() {
+        return currentStep;
+    }
+
+    public void setCurrentStep(String currentStep) {
+        this.currentStep = currentStep;
+    }
+
+    public String getPaymentId() {
+        return paymentId;
+    }
+
+    public void setPaymentId(String paymentId) {
+        this.paymentId = paymentId;
+    }
+
+    public String getReservationId() {
+        return reservationId;
+    }
+
+    public void setReservationId(String reservationId) {
+        this.reservationId = reservationId;
+    }
+
+    public String getShippingId() {
+        return shippingId;
+    }
+
+    public void setShippingId(String shippingId) {
+        this.shippingId = shippingId;
+    }
+
+    public String getTrackingNumber() {
+        return trackingNumber;
+    }
+
+    public void setTrackingNumber(String trackingNumber) {
+        this.trackingNumber = trackingNumber;
+    }
+
+    public String getFailureReason() {
+        return failureReason;
+    }
+
+    public void setFailureReason(String failureReason) {
+        this.failureReason = failureReason;
+    }
+
+    public List<StepTiming> getSteps() {
+        return steps;
+    }
+
+    public void setSteps(List<StepTiming> steps) {
+        this.steps = steps;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        OrderProgress that = (OrderProgress) o;
+        return running == that.running &&
+                Objects.equals(orderId, that.orderId) &&
+                Objects.equals(customerId, that.customerId) &&
+                status == that.status &&
+                route == that.route &&
+                Objects.equals(currentStep, that.currentStep) &&
+                Objects.equals(paymentId, that.paymentId) &&
+                Objects.equals(reservationId, that.reservationId) &&
+                Objects.equals(shippingId, that.shippingId) &&
+                Objects.equals(trackingNumber, that.trackingNumber) &&
+                Objects.equals(failureReason, that.failureReason) &&
+                Objects.equals(steps, that.steps);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(orderId, customerId, status, route, running, currentStep, paymentId, reservationId,
+                shippingId, trackingNumber, failureReason, steps);
+    }
+
+    @Override
+    public String toString() {
+        return "OrderProgress{" +
+                "orderId='" + orderId + '\'' +
+                ", status=" + status +
+                ", route=" + route +
+                ", running=" + running +
+                ", currentStep='" + currentStep + '\'' +
+                ", steps=" + steps +
+                '}';
+    }
+    
+    /** One saga step, timed in workflow time from scheduling to result, retries included. */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public static class StepTiming implements Serializable {
+        private String step;
+        private Instant startedAt;
+        private Long durationMillis;
+        private Boolean succeeded;
+        
+        public StepTiming() {
+        }
+        
+        public StepTiming(String step, Instant startedAt) {
+            this.step = step;
+            this.startedAt = startedAt;
+        }
+        
+        @JsonIgnore
+        public boolean isFinished() {
+            return durationMillis != null;
+        }
+
+        public String getStep() {
+            return step;
+        }
+
+        public void setStep(String step) {
+            this.step = step;
+        }
+
+        public Instant getStartedAt() {
+            return startedAt;
+        }
+
+        public void setStartedAt(Instant startedAt) {
+            this.startedAt = startedAt;
+        }
+
+        /** Null while the step runs. */
+        public Long getDurationMillis() {
+            return durationMillis;
+        }
+
+        public void setDurationMillis(Long durationMillis) {
+            this.durationMillis = durationMillis;
+        }
+
+        /** Null while the step runs. */
+        public Boolean getSucceeded() {
+            return succeeded;
+        }
+
+        public void setSucceeded(Boolean succeeded) {
+            this.succeeded = succeeded;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            StepTiming that = (StepTiming) o;
+            return Objects.equals(step, that.step) &&
+                    Objects.equals(startedAt, that.startedAt) &&
+                    Objects.equals(durationMillis, that.durationMillis) &&
+                    Objects.equals(succeeded, that.succeeded);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(step, startedAt, durationMillis, succeeded);
+        }
+
+        @Override
+        public String toString() {
+            return "StepTiming{" +
+                    "step='" + step + '\'' +
+                    ", startedAt=" + startedAt +
+                    ", durationMillis=" + durationMillis +
+                    ", succeeded=" + succeeded +
+                    '}';
+        }
+    }
+}
@@ -10,6 +10,7 @@ public class OrderRequest implements Serializable {
     private String customerId;
     private List<OrderItemRequest> items;
     private BigDecimal totalAmount;
+    private SagaRoute route;
     
     public OrderRequest() {
     }
@@ -53,6 +54,15 @@ public class OrderRequest implements Serializable {
         this.totalAmount = totalAmount;
     }
 
+    /** Set by the service when it starts the workflow; null for workflows started before routing. */
+    public SagaRoute getRoute() {
+        return route;
+    }
+
+    public void setRoute(SagaRoute route) {
+        this.route = route;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -73,6 +83,7 @@ public class OrderRequest implements Serializable {
                 ", customerId='" + customerId + '\'' +
                 ", items=" + items +
                 ", totalAmount=" + totalAmount +
+                ", route=" + route +
                 '}';
     }
     
@@ -81,6 +92,7 @@ public class OrderRequest implements Serializable {
         private String productName;
         private Integer quantity;
         private BigDecimal unitPrice;
+        private String category;
         
         public OrderItemRequest() {
         }
@@ -124,6 +136,14 @@ public class OrderRequest implements Serializable {
             this.unitPrice = unitPrice;
         }
 
+        public String getCategory() {
+            return category;
+        }
+
+        public void setCategory(String category) {
+            this.category = category;
+        }
+
         @Override
         public boolean equals(Object o) {
             if (this == o) return true;
@@ -144,6 +164,7 @@ public class OrderRequest implements Serializable {
                     ", productName='" + productName + '\'' +
                     ", quantity=" + quantity +
                     ", unitPrice=" + unitPrice +
+                    ", category='" + category + '\'' +
                     '}';
         }
     }
@@ -0,0 +1,73 @@
+package com.example.ordersaga.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Number of orders in each status, for all orders, one customer, or the orders created in one
+ * time bucket ({@code bucketStart} is only set for the latter).
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class OrderStats {
+    private LocalDateTime bucketStart;
+    private Map<OrderStatus, Long> counts;
+    private long total;
+    
+    public OrderStats() {
+    }
+    
+    public OrderStats(LocalDateTime bucketStart, Map<OrderStatus, Long> counts, long total) {
+        this.bucketStart = bucketStart;
+        this.counts = counts;
+        this.total = total;
+    }
+
+    public LocalDateTime getBucketStart() {
+        return bucketStart;
+    }
+
+    public void setBucketStart(LocalDateTime bucketStart) {
+        this.bucketStart = bucketStart;
+    }
+
+    public Map<OrderStatus, Long> getCounts() {
+        return counts;
+    }
+
+    public void setCounts(Map<OrderStatus, Long> counts) {
+        this.counts = counts;
+    }
+
+    public long getTotal() {
+        return total;
+    }
+
+    public void setTotal(long total) {
+        this.total = total;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        OrderStats that = (OrderStats) o;
+        return total == that.total && Objects.equals(bucketStart, that.bucketStart) && Objects.equals(counts, that.counts);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(bucketStart, counts, total);
+    }
+
+    @Override
+    public String toString() {
+        return "OrderStats{" +
+                "bucketStart=" + bucketStart +
+                ", counts=" + counts +
+                ", total=" + total +
+                '}';
+    }
+}
@@ -1,5 +1,11 @@
 package com.example.ordersaga.model;
 
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+
 public enum OrderStatus {
     PENDING,
     PAYMENT_AUTHORIZED,
@@ -11,5 +17,100 @@ public enum OrderStatus {
     COMPLETED,
     FAILED,
     COMPENSATING,
-    COMPENSATED
+    COMPENSATED;
+    
+    private static final Map<OrderStatus, Set<OrderStatus>> PREDECESSORS = new EnumMap<>(OrderStatus.class);
+    private static final Map<OrderStatus, SagaRoute> PREDECESSOR_ROUTE = new EnumMap<>(OrderStatus.class);
+    private static final Map<OrderStatus, Set<OrderStatus>> ROUTE_PREDECESSORS = new EnumMap<>(OrderStatus.class);
+    private static final Map<OrderStatus, Set<OrderStatus>> EARLIER = new EnumMap<>(OrderStatus.class);
+    private static final Set<OrderStatus> TERMINAL = EnumSet.allOf(OrderStatus.class);
+    
+    static {
+        // Every forward step also accepts its own target so a retried activity is a harmless no-op
+        allow(PENDING);
+        allow(PAYMENT_AUTHORIZED, PENDING, PAYMENT_AUTHORIZED);
+        allow(INVENTORY_RESERVED, PAYMENT_AUTHORIZED, INVENTORY_RESERVED);
+        allow(FRAUD_CHECK_PASSED, INVENTORY_RESERVED, FRAUD_CHECK_PASSED);
+        allow(CONFIRMED, FRAUD_CHECK_PASSED, CONFIRMED);
+        // Orders routed without a fraud check are confirmed straight after inventory is reserved
+        allowOn(SagaRoute.NO_FRAUD_CHECK, CONFIRMED, INVENTORY_RESERVED);
+        allow(SHIPPING_ARRANGED, CONFIRMED, SHIPPING_ARRANGED);
+        allow(IN_DELIVERY, SHIPPING_ARRANGED, IN_DELIVERY);
+        allow(COMPLETED, IN_DELIVERY, COMPLETED);
+        allow(COMPENSATING, PENDING, PAYMENT_AUTHORIZED, INVENTORY_RESERVED, FRAUD_CHECK_PASSED,
+                CONFIRMED, SHIPPING_ARRANGED, IN_DELIVERY, COMPENSATING);
+        allow(FAILED, PENDING, PAYMENT_AUTHORIZED, INVENTORY_RESERVED, FRAUD_CHECK_PASSED,
+                CONFIRMED, SHIPPING_ARRANGED, IN_DELIVERY, COMPENSATING, FAILED);
+        allow(COMPENSATED, COMPENSATING, FAILED, COMPENSATED);
+        
+        PREDECESSORS.forEach((target, predecessors) -> predecessors.stream()
+                .filter(predecessor -> predecessor != target)
+                .forEach(TERMINAL::remove));
+        for (OrderStatus status : values()) {
+            EARLIER.put(status, Collections.unmodifiableSet(earlier(status, EnumSet.noneOf(OrderStatus.class))));
+        }
+    }
+    
+    private static void allow(OrderStatus target, OrderStatus... predecessors) {
+        Set<OrderStatus> allowed = EnumSet.noneOf(OrderStatus.class);
+        Collections.addAll(allowed, predecessors);
+        PREDECESSORS.put(target, Collections.unmodifiableSet(allowed));
+    }
+    
+    private static void allowOn(SagaRoute route, OrderStatus target, OrderStatus... predecessors) {
+        Set<OrderStatus> allowed = EnumSet.noneOf(OrderStatus.class);
+        Collections.addAll(allowed, predecessors);
+        PREDECESSOR_ROUTE.put(target, route);
+        ROUTE_PREDECESSORS.put(target, Collections.unmodifiableSet(allowed));
+    }
+    
+    /** Adds every status some chain of transitions, on any route, leads from to {@code status}, apart from itself. */
+    private static Set<OrderStatus> earlier(OrderStatus status, Set<OrderStatus> found) {
+        Set<OrderStatus> predecessors = EnumSet.noneOf(OrderStatus.class);
+        predecessors.addAll(PREDECESSORS.get(status));
+        predecessors.addAll(status.routePredecessors());
+        for (OrderStatus predecessor : predecessors) {
+            if (predecessor != status && found.add(predecessor)) {
+                earlier(predecessor, found);
+            }
+        }
+        return found;
+    }
+    
+    /**
+     * Statuses an order may be in for a transition to this status to be applied, whatever its route.
+     */
+    public Set<OrderStatus> allowedPredecessors() {
+        return PREDECESSORS.get(this);
+    }
+    
+    /**
+     * The route whose orders may also reach this status from {@link #routePredecessors()}, or
+     * {@code null} if every route uses {@link #allowedPredecessors()} alone.
+     */
+    public SagaRoute predecessorRoute() {
+        return PREDECESSOR_ROUTE.get(this);
+    }
+    
+    /**
+     * Further statuses an order on {@link #predecessorRoute()} may be in for a transition to this
+     * status to be applied; empty if there is no such route.
+     */
+    public Set<OrderStatus> routePredecessors() {
+        return ROUTE_PREDECESSORS.getOrDefault(this, Set.of());
+    }
+    
+    /**
+     * Whether an order in the given status can go on to reach this one.
+     */
+    public boolean follows(OrderStatus earlier) {
+        return EARLIER.get(this).contains(earlier);
+    }
+    
+    /**
+     * Whether no transition leaves this status.
+     */
+    public boolean isTerminal() {
+        return TERMINAL.contains(this);
+    }
 }
@@ -0,0 +1,103 @@
+package com.example.ordersaga.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.time.LocalDateTime;
+import java.util.Objects;
+
+/**
+ * An order reaching a status. Published once the change has committed. {@code customerId} is
+ * only known, and set, when the order is created.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class OrderStatusEvent {
+    private String orderId;
+    private String customerId;
+    private OrderStatus status;
+    private LocalDateTime occurredAt;
+    
+    public OrderStatusEvent() {
+    }
+    
+    public OrderStatusEvent(String orderId, String customerId, OrderStatus status, LocalDateTime occurredAt) {
+        this.orderId = orderId;
+        this.customerId = customerId;
+        this.status = status;
+        this.occurredAt = occurredAt;
+    }
+    
+    public static OrderStatusEvent created(Order order) {
+        return new OrderStatusEvent(order.getOrderId(), order.getCustomerId(), order.getStatus(), order.getCreatedAt());
+    }
+    
+    public static OrderStatusEvent moved(String orderId, OrderStatus status) {
+        return new OrderStatusEvent(orderId, null, status, LocalDateTime.now());
+    }
+    
+    public static OrderStatusEvent current(OrderView order) {
+        return new OrderStatusEvent(order.getOrderId(), order.getCustomerId(), order.getStatus(), order.getUpdatedAt());
+    }
+    
+    /** Orders are only ever created in their initial status, and never return to it. */
+    @JsonIgnore
+    public boolean isCreation() {
+        return status == OrderStatus.PENDING;
+    }
+
+    public String getOrderId() {
+        return orderId;
+    }
+
+    public void setOrderId(String orderId) {
+        this.orderId = orderId;
+    }
+
+    public String getCustomerId() {
+        return customerId;
+    }
+
+    public void setCustomerId(String customerId) {
+        this.customerId = customerId;
+    }
+
+    public OrderStatus getStatus() {
+        return status;
+    }
+
+    public void setStatus(OrderStatus status) {
+        this.status = status;
+    }
+
+    public LocalDateTime getOccurredAt() {
+        return occurredAt;
+    }
+
+    public void setOccurredAt(LocalDateTime occurredAt) {
+        this.occurredAt = occurredAt;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        OrderStatusEvent that = (OrderStatusEvent) o;
+        return Objects.equals(orderId, that.orderId) && Objects.equals(customerId, that.customerId)
+                && status == that.status && Objects.equals(occurredAt, that.occurredAt);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(orderId, customerId, status, occurredAt);
+    }
+
+    @Override
+    public String toString() {
+        return "OrderStatusEvent{" +
+                "orderId='" + orderId + '\'' +
+                ", customerId='" + customerId + '\'' +
+                ", status=" + status +
+                ", occurredAt=" + occurredAt +
+                '}';
+    }
+}
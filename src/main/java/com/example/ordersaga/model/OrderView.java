@@ -0,0 +1,193 @@
+package com.example.ordersaga.model;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Read model returned by the query endpoints. Built from an {@link Order} whose items were
+ * fetched together with it, so serializing it never touches the persistence context.
+ */
+public class OrderView {
+    private String orderId;
+    private String customerId;
+    private OrderStatus status;
+    private List<OrderItemView> items;
+    private BigDecimal totalAmount;
+    private String paymentId;
+    private String reservationId;
+    private String shippingId;
+    private String trackingNumber;
+    private LocalDateTime createdAt;
+    private LocalDateTime updatedAt;
+    private LocalDateTime completedAt;
+    private String failureReason;
+    private SagaRoute route;
+    
+    public OrderView() {
+    }
+    
+    public static OrderView of(Order order) {
+        OrderView view = new OrderView();
+        view.setOrderId(order.getOrderId());
+        view.setCustomerId(order.getCustomerId());
+        view.setStatus(order.getStatus());
+        view.setItems(order.getItems().stream().map(OrderItemView::of).toList());
+        view.setTotalAmount(order.getTotalAmount());
+        view.setPaymentId(order.getPaymentId());
+        view.setReservationId(order.getReservationId());
+        view.setShippingId(order.getShippingId());
+        view.setTrackingNumber(order.getTrackingNumber());
+        view.setCreatedAt(order.getCreatedAt());
+        view.setUpdatedAt(order.getUpdatedAt());
+        view.setCompletedAt(order.getCompletedAt());
+        view.setFailureReason(order.getFailureReason());
+        view.setRoute(order.getRoute());
+        return view;
+    }
+
+    public String getOrderId() {
+        return orderId;
+    }
+
+    public void setOrderId(String orderId) {
+        this.orderId = orderId;
+    }
+
+    public String getCustomerId() {
+        return customerId;
+    }
+
+    public void setCustomerId(String customerId) {
+        this.customerId = customerId;
+    }
+
+    public OrderStatus getStatus() {
+        return status;
+    }
+
+    public void setStatus(OrderStatus status) {
+        this.status = status;
+    }
+
+    public List<OrderItemView> getItems() {
+        return items;
+    }
+
+    public void setItems(List<OrderItemView> items) {
+        this.items = items;
+    }
+
+    public BigDecimal getTotalAmount() {
+        return totalAmount;
+    }
+
+    public void setTotalAmount(BigDecimal totalAmount) {
+        this.totalAmount = totalAmount;
+    }
+
+    public String getPaymentId() {
+        return paymentId;
+    }
+
+    public void setPaymentId(String paymentId) {
+        this.paymentId = paymentId;
+    }
+
+    public String getReservationId() {
+        return reservationId;
+    }
+
+    public void setReservationId(String reservationId) {
+        this.reservationId = reservationId;
+    }
+
+    public String getShippingId() {
+        return shippingId;
+    }
+
+    public void setShippingId(String shippingId) {
+        this.shippingId = shippingId;
+    }
+
+    public String getTrackingNumber() {
+        return trackingNumber;
+    }
+
+    public void setTrackingNumber(String trackingNumber) {
+        this.trackingNumber = trackingNumber;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(LocalDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+
+    public LocalDateTime getCompletedAt() {
+        return completedAt;
+    }
+
+    public void setCompletedAt(LocalDateTime completedAt) {
+        this.completedAt = completedAt;
+    }
+
+    public String getFailureReason() {
+        return failureReason;
+    }
+
+    public void setFailureReason(String failureReason) {
+        this.failureReason = failureReason;
+    }
+
+    public SagaRoute getRoute() {
+        return route;
+    }
+
+    public void setRoute(SagaRoute route) {
+        this.route = route;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        OrderView orderView = (OrderView) o;
+        return Objects.equals(orderId, orderView.orderId) && status == orderView.status;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(orderId, status);
+    }
+
+    @Override
+    public String toString() {
+        return "OrderView{" +
+                "orderId='" + orderId + '\'' +
+                ", customerId='" + customerId + '\'' +
+                ", status=" + status +
+                ", totalAmount=" + totalAmount +
+                ", paymentId='" + paymentId + '\'' +
+                ", reservationId='" + reservationId + '\'' +
+                ", shippingId='" + shippingId + '\'' +
+                ", trackingNumber='" + trackingNumber + '\'' +
+                ", createdAt=" + createdAt +
+                ", updatedAt=" + updatedAt +
+                ", completedAt=" + completedAt +
+                ", failureReason='" + failureReason + '\'' +
+                ", route=" + route +
+                '}';
+    }
+}
@@ -0,0 +1,13 @@
+package com.example.ordersaga.model;
+
+/**
+ * The steps an order's saga goes through, chosen per order before its workflow starts.
+ */
+public enum SagaRoute {
+    /** Fraud check after inventory is reserved; nothing is confirmed before it passes. */
+    FULL,
+    /** Fraud check runs alongside payment and inventory and is awaited before confirming. */
+    PARALLEL_FRAUD_CHECK,
+    /** No fraud check, for small orders from customers with a clean history. */
+    NO_FRAUD_CHECK
+}
@@ -0,0 +1,67 @@
+package com.example.ordersaga.model;
+
+import java.util.Objects;
+
+/**
+ * Callback posted by the shipping carrier once it has a result for an activity that is waiting on it.
+ * {@code callbackToken} is the activity's task token, base64url-encoded.
+ */
+public class ShippingCallback {
+    private String callbackToken;
+    private String orderId;
+    private ShippingResult result;
+    
+    public ShippingCallback() {
+    }
+    
+    public ShippingCallback(String callbackToken, String orderId, ShippingResult result) {
+        this.callbackToken = callbackToken;
+        this.orderId = orderId;
+        this.result = result;
+    }
+
+    public String getCallbackToken() {
+        return callbackToken;
+    }
+
+    public void setCallbackToken(String callbackToken) {
+        this.callbackToken = callbackToken;
+    }
+
+    public String getOrderId() {
+        return orderId;
+    }
+
+    public void setOrderId(String orderId) {
+        this.orderId = orderId;
+    }
+
+    public ShippingResult getResult() {
+        return result;
+    }
+
+    public void setResult(ShippingResult result) {
+        this.result = result;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        ShippingCallback that = (ShippingCallback) o;
+        return Objects.equals(callbackToken, that.callbackToken) && Objects.equals(orderId, that.orderId);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(callbackToken, orderId);
+    }
+
+    @Override
+    public String toString() {
+        return "ShippingCallback{" +
+                "orderId='" + orderId + '\'' +
+                ", result=" + result +
+                '}';
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.ordersaga.model;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+
+import java.time.LocalDateTime;
+import java.util.Objects;
+
+/**
+ * A product's stock as of the stock ledger's last snapshot.
+ */
+@Entity
+@Table(name = "stock_levels")
+public class StockLevel {
+    
+    @Id
+    private String productId;
+    
+    private long available;
+    private long reserved;
+    private LocalDateTime updatedAt;
+    
+    public StockLevel() {
+    }
+    
+    public StockLevel(String productId, long available, long reserved, LocalDateTime updatedAt) {
+        this.productId = productId;
+        this.available = available;
+        this.reserved = reserved;
+        this.updatedAt = updatedAt;
+    }
+
+    public String getProductId() {
+        return productId;
+    }
+
+    public void setProductId(String productId) {
+        this.productId = productId;
+    }
+
+    public long getAvailable() {
+        return available;
+    }
+
+    public void setAvailable(long available) {
+        this.available = available;
+    }
+
+    public long getReserved() {
+        return reserved;
+    }
+
+    public void setReserved(long reserved) {
+        this.reserved = reserved;
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(LocalDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        StockLevel that = (StockLevel) o;
+        return Objects.equals(productId, that.productId);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(productId);
+    }
+
+    @Override
+    public String toString() {
+        return "StockLevel{" +
+                "productId='" + productId + '\'' +
+                ", available=" + available +
+                ", reserved=" + reserved +
+                ", updatedAt=" + updatedAt +
+                '}';
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.ordersaga.model;
+
+import jakarta.persistence.CollectionTable;
+import jakarta.persistence.Column;
+import jakarta.persistence.ElementCollection;
+import jakarta.persistence.Entity;
+import jakarta.persistence.FetchType;
+import jakarta.persistence.Id;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.MapKeyColumn;
+import jakarta.persistence.Table;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Stock held for an order as of the stock ledger's last snapshot: quantity by product id.
+ */
+@Entity
+@Table(name = "stock_reservations")
+public class StockReservation {
+    
+    @Id
+    private String orderId;
+    
+    @ElementCollection(fetch = FetchType.EAGER)
+    @CollectionTable(name = "stock_reservation_lines", joinColumns = @JoinColumn(name = "order_id"))
+    @MapKeyColumn(name = "product_id")
+    @Column(name = "quantity")
+    private Map<String, Long> quantities = new LinkedHashMap<>();
+    
+    private LocalDateTime createdAt;
+    
+    public StockReservation() {
+    }
+    
+    public StockReservation(String orderId, Map<String, Long> quantities, LocalDateTime createdAt) {
+        this.orderId = orderId;
+        this.quantities = quantities;
+        this.createdAt = createdAt;
+    }
+
+    public String getOrderId() {
+        return orderId;
+    }
+
+    public void setOrderId(String orderId) {
+        this.orderId = orderId;
+    }
+
+    public Map<String, Long> getQuantities() {
+        return quantities;
+    }
+
+    public void setQuantities(Map<String, Long> quantities) {
+        this.quantities = quantities;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        StockReservation that = (StockReservation) o;
+        return Objects.equals(orderId, that.orderId);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(orderId);
+    }
+
+    @Override
+    public String toString() {
+        return "StockReservation{" +
+                "orderId='" + orderId + '\'' +
+                ", quantities=" + quantities +
+                ", createdAt=" + createdAt +
+                '}';
+    }
+}
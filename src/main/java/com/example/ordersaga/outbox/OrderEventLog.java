@@ -0,0 +1,282 @@
+package com.example.ordersaga.outbox;
+
+import com.example.ordersaga.model.OrderLogPage;
+import com.example.ordersaga.model.OrderLogRecord;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.LongSummaryStatistics;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only log of order status changes in fixed-size, memory-mapped segment files, read by offset.
+ * <p>
+ * An offset is a byte position in the log; segment {@code n} holds offsets from
+ * {@code n * segment-size} and is named after that first offset. A record is its length, a CRC32 of
+ * its JSON and the JSON; a record that does not fit in what is left of a segment starts the next
+ * one. At startup the end of the log is found by scanning the last segment up to the first empty or
+ * damaged record. Appends come from one thread (the {@link OutboxRelay}); reads never block them and
+ * only see records appended and forced to disk. Only the newest {@code retained-segments} segments
+ * are kept: older ones are dropped, with their mappings, once the log moves past them.
+ */
+@Component
+public class OrderEventLog {
+
+    private static final Logger log = LoggerFactory.getLogger(OrderEventLog.class);
+    private static final int HEADER = 8;
+
+    private final Path directory;
+    private final int segmentSize;
+    private final int retainedSegments;
+    private final ObjectMapper objectMapper;
+    private final Map<Long, MappedByteBuffer> segments = new ConcurrentHashMap<>();
+    /** The first offset still in the log. */
+    private volatile long start;
+    /** Where the next record goes; readers see records before it. */
+    private volatile long end;
+
+    public OrderEventLog(ObjectMapper objectMapper,
+                         @Value("${order.event-log.directory:data/order-events}") Path directory,
+                         @Value("${order.event-log.segment-size:16MB}") DataSize segmentSize,
+                         @Value("${order.event-log.retained-segments:64}") int retainedSegments) throws IOException {
+        if (segmentSize.toBytes() < 1024 || segmentSize.toBytes() > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("order.event-log.segment-size must be between 1KB and 2GB");
+        }
+        if (retainedSegments < 1) {
+            throw new IllegalArgumentException("order.event-log.retained-segments must be at least 1");
+        }
+        this.objectMapper = objectMapper;
+        this.directory = directory;
+        this.segmentSize = (int) segmentSize.toBytes();
+        this.retainedSegments = retainedSegments;
+        Files.createDirectories(directory);
+        this.end = recover();
+        retire(end - end % this.segmentSize);
+        log.info("Order event log in {} holds offsets {} to {}", directory.toAbsolutePath(), start, end);
+    }
+
+    private long recover() throws IOException {
+        LongSummaryStatistics bases;
+        try (Stream<Path> files = Files.list(directory)) {
+            bases = files.map(file -> file.getFileName().toString())
+                    .filter(name -> name.endsWith(".log"))
+                    .mapToLong(this::segmentBase)
+                    .filter(base -> base >= 0)
+                    .summaryStatistics();
+        }
+        long last = bases.getCount() > 0 ? bases.getMax() : 0;
+        start = bases.getCount() > 0 ? bases.getMin() : 0;
+        ByteBuffer segment = segment(last);
+        int position = 0;
+        while (true) {
+            int length = recordLength(segment, position);
+            if (length <= 0 || payload(segment, position, length) == null) {
+                return last + position;
+            }
+            position += HEADER + length;
+        }
+    }
+
+    /** The first offset of the segment named {@code name}, or -1 if it is not a segment of this log. */
+    private long segmentBase(String name) {
+        try {
+            long base = Long.parseLong(name.substring(0, name.length() - 4));
+            if (base >= 0 && base % segmentSize == 0) {
+                return base;
+            }
+        } catch (NumberFormatException e) {
+            // Not one of ours
+        }
+        log.warn("Ignoring {} in the order event log directory", name);
+        return -1;
+    }
+
+    /**
+     * Appends the records in order, forces every segment they went to to disk, then makes them
+     * visible and drops the segments that fell out of retention.
+     */
+    public void append(List<OrderLogRecord> records) {
+        long position = end;
+        MappedByteBuffer segment = null;
+        for (OrderLogRecord record : records) {
+            byte[] json = json(record);
+            if (HEADER + json.length > segmentSize) {
+                throw new IllegalArgumentException("Record larger than a log segment: " + record);
+            }
+            if (position % segmentSize + HEADER + json.length > segmentSize) {
+                // The rest of this segment stays zero, which readers take as its end
+                position = (position / segmentSize + 1) * segmentSize;
+            }
+            MappedByteBuffer next = segment(position - position % segmentSize);
+            if (segment != null && segment != next) {
+                segment.force();
+            }
+            segment = next;
+            int at = (int) (position % segmentSize);
+            CRC32 crc = new CRC32();
+            crc.update(json);
+            ByteBuffer target = segment.duplicate();
+            target.position(at + 4);
+            target.putInt((int) crc.getValue());
+            target.put(json);
+            // The length goes in last: a record without one is not there
+            target.putInt(at, json.length);
+            record.setOffset(position);
+            position += HEADER + json.length;
+        }
+        if (segment != null) {
+            segment.force();
+        }
+        end = position;
+        retire(position - position % segmentSize);
+    }
+
+    /** Drops the segments before the newest {@code retained-segments}, counting the one at {@code last}. */
+    private void retire(long last) {
+        long first = Math.max(0, last - (long) (retainedSegments - 1) * segmentSize);
+        long retired = start;
+        if (first <= retired) {
+            return;
+        }
+        // Readers check start after mapping a segment, so none keeps one of these in the map
+        start = first;
+        for (long base = retired; base < first; base += segmentSize) {
+            segments.remove(base);
+            try {
+                Files.deleteIfExists(file(base));
+            } catch (IOException e) {
+                log.warn("Cannot delete order event log segment {}", file(base), e);
+            }
+        }
+        log.info("Order event log now starts at offset {}", first);
+    }
+
+    /**
+     * Up to {@code limit} records from {@code offset}, which must be 0, or a record's offset or a
+     * {@code nextOffset} read before.
+     */
+    public OrderLogPage read(long offset, int limit) {
+        long start = this.start;
+        long end = this.end;
+        if (offset < start || offset > end) {
+            throw new IllegalArgumentException("Offset must be between " + start + " and " + end);
+        }
+        List<OrderLogRecord> records = new ArrayList<>(Math.min(limit, 1000));
+        long position = offset;
+        while (records.size() < limit && position < end) {
+            long base = position - position % segmentSize;
+            ByteBuffer segment = mapped(base).duplicate();
+            int at = (int) (position - base);
+            int length = recordLength(segment, at);
+            if (length == 0) {
+                position = base + segmentSize;
+                continue;
+            }
+            byte[] json = payload(segment, at, length);
+            if (json == null) {
+                throw new IllegalArgumentException("No record starts at offset " + position);
+            }
+            OrderLogRecord record = record(json);
+            record.setOffset(position);
+            records.add(record);
+            position += HEADER + length;
+        }
+        return new OrderLogPage(records, position);
+    }
+
+    public long getStart() {
+        return start;
+    }
+
+    public long getEnd() {
+        return end;
+    }
+
+    private static int recordLength(ByteBuffer segment, int position) {
+        return position + HEADER <= segment.capacity() ? segment.getInt(position) : 0;
+    }
+
+    /** The JSON of the record at {@code position}, or null if no whole record with a matching CRC is there. */
+    private static byte[] payload(ByteBuffer segment, int position, int length) {
+        if (length < 0 || (long) position + HEADER + length > segment.capacity()) {
+            return null;
+        }
+        byte[] json = new byte[length];
+        segment.get(position + HEADER, json);
+        CRC32 crc = new CRC32();
+        crc.update(json);
+        return (int) crc.getValue() == segment.getInt(position + 4) ? json : null;
+    }
+
+    /** The segment at {@code base} for appending, created if it does not exist yet. */
+    private MappedByteBuffer segment(long base) {
+        return segments.computeIfAbsent(base, key -> map(key, StandardOpenOption.CREATE));
+    }
+
+    /** The existing segment at {@code base} for reading; never creates one the log has already dropped. */
+    private MappedByteBuffer mapped(long base) {
+        MappedByteBuffer segment = segments.computeIfAbsent(base, key -> map(key, StandardOpenOption.READ));
+        if (base < start) {
+            segments.remove(base);
+            throw new IllegalArgumentException("Offset " + base + " is no longer in the log");
+        }
+        return segment;
+    }
+
+    private MappedByteBuffer map(long base, StandardOpenOption option) {
+        Path file = file(base);
+        try (FileChannel channel = FileChannel.open(file, option, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            // The mapping stays valid after the channel is closed, and goes once nothing refers to it
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        } catch (NoSuchFileException e) {
+            throw new IllegalArgumentException("Offset " + base + " is no longer in the log");
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot map log segment " + file, e);
+        }
+    }
+
+    private Path file(long base) {
+        return directory.resolve(String.format("%020d.log", base));
+    }
+
+    private byte[] json(OrderLogRecord record) {
+        try {
+            return objectMapper.writeValueAsBytes(record);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private OrderLogRecord record(byte[] json) {
+        try {
+            return objectMapper.readValue(json, OrderLogRecord.class);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        segments.values().forEach(MappedByteBuffer::force);
+        segments.clear();
+    }
+}
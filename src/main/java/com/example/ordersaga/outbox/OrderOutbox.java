@@ -0,0 +1,78 @@
+package com.example.ordersaga.outbox;
+
+import com.example.ordersaga.id.IdGenerator;
+import com.example.ordersaga.model.OrderStatus;
+import com.example.ordersaga.model.OrderStatusEvent;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.function.IntSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Outbox rows for order status changes, each written in the transaction that made the change, so
+ * the {@link OutboxRelay} sees exactly the changes that committed. Each row gets a time-ordered event
+ * id, which stays unique across restarts, unlike the table's own id.
+ */
+@Component
+public class OrderOutbox {
+
+    private static final String INSERT =
+            "insert into order_outbox (event_id, order_id, status, occurred_at) values (?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transaction;
+    private final IdGenerator idGenerator;
+
+    public OrderOutbox(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                       IdGenerator idGenerator) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.idGenerator = idGenerator;
+    }
+
+    /**
+     * Runs a guarded write moving the order to {@code status} and, if it changed a row, adds the change
+     * to the outbox, in one transaction.
+     *
+     * @return the rows changed by {@code update}
+     */
+    public int write(String orderId, OrderStatus status, IntSupplier update) {
+        int[] rows = new int[1];
+        write(() -> {
+            rows[0] = update.getAsInt();
+            return rows[0] > 0 ? OrderStatusEvent.moved(orderId, status) : null;
+        });
+        return rows[0];
+    }
+
+    /**
+     * Runs a change and adds the status change it returns, if any, to the outbox, in one transaction.
+     *
+     * @return the status change
+     */
+    public OrderStatusEvent write(Supplier<OrderStatusEvent> change) {
+        return transaction.execute(tx -> {
+            OrderStatusEvent event = change.get();
+            if (event != null) {
+                append(List.of(event));
+            }
+            return event;
+        });
+    }
+
+    /** Adds changes to the outbox; call inside the transaction that made them. */
+    public void append(List<OrderStatusEvent> changes) {
+        if (changes.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(INSERT, changes.stream()
+                .map(change -> new Object[] {idGenerator.nextId("EVT-"), change.getOrderId(),
+                        change.getStatus().name(), Timestamp.valueOf(change.getOccurredAt())})
+                .toList());
+    }
+}
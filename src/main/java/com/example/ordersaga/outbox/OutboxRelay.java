@@ -0,0 +1,107 @@
+package com.example.ordersaga.outbox;
+
+import com.example.ordersaga.model.OrderLogRecord;
+import com.example.ordersaga.model.OrderStatus;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Moves committed outbox rows to the {@link OrderEventLog}, oldest first, every
+ * {@code order.outbox.poll-interval}. Rows are deleted only once the log has forced them to disk,
+ * so a change is never lost; stopping in between means it is appended again on the next run, with
+ * the same event id.
+ */
+@Component
+public class OutboxRelay {
+
+    private static final Logger log = LoggerFactory.getLogger(OutboxRelay.class);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final OrderEventLog eventLog;
+    private final Duration pollInterval;
+    private final int batchSize;
+    private final ScheduledExecutorService relay =
+            Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("outbox-relay-"));
+    private final Counter relayed;
+
+    public OutboxRelay(JdbcTemplate jdbcTemplate, OrderEventLog eventLog, MeterRegistry meterRegistry,
+                       @Value("${order.outbox.poll-interval:200ms}") Duration pollInterval,
+                       @Value("${order.outbox.batch-size:1000}") int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("order.outbox.batch-size must be at least 1");
+        }
+        this.jdbcTemplate = jdbcTemplate;
+        this.eventLog = eventLog;
+        this.pollInterval = pollInterval;
+        this.batchSize = batchSize;
+        this.relayed = Counter.builder("orders.outbox.relayed")
+                .description("Order status changes moved from the outbox to the order event log")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        long intervalMillis = pollInterval.toMillis();
+        if (intervalMillis > 0) {
+            relay.scheduleWithFixedDelay(this::drain, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void drain() {
+        try {
+            while (relayBatch() == batchSize) {
+                // A full batch: there may be more waiting
+            }
+        } catch (RuntimeException e) {
+            // The rows stay in the outbox for the next run
+            log.warn("Relaying the order outbox failed", e);
+        }
+    }
+
+    /** Relays up to one batch of outbox rows and returns how many. */
+    int relayBatch() {
+        List<Object[]> ids = new ArrayList<>();
+        List<OrderLogRecord> records = jdbcTemplate.query(
+                "select id, event_id, order_id, status, occurred_at from order_outbox order by id limit ?",
+                (rs, rowNum) -> {
+                    ids.add(new Object[] {rs.getLong("id")});
+                    return new OrderLogRecord(0, rs.getString("event_id"), rs.getString("order_id"),
+                            OrderStatus.valueOf(rs.getString("status")),
+                            rs.getTimestamp("occurred_at").toLocalDateTime());
+                },
+                batchSize);
+        if (records.isEmpty()) {
+            return 0;
+        }
+        eventLog.append(records);
+        // By id rather than up to the last one: a transaction holding a lower id may commit later
+        jdbcTemplate.batchUpdate("delete from order_outbox where id = ?", ids);
+        relayed.increment(records.size());
+        return records.size();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        relay.shutdown();
+        try {
+            relay.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -2,15 +2,108 @@ package com.example.ordersaga.repository;
 
 import com.example.ordersaga.model.Order;
 import com.example.ordersaga.model.OrderStatus;
+import com.example.ordersaga.model.SagaRoute;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
-public interface OrderRepository extends JpaRepository<Order, Long> {
+public interface OrderRepository extends JpaRepository<Order, Long>, OrderRepositoryCustom {
     Optional<Order> findByOrderId(String orderId);
     List<Order> findByCustomerId(String customerId);
     List<Order> findByStatus(OrderStatus status);
+    boolean existsByOrderId(String orderId);
+    boolean existsByOrderIdAndCallbackToken(String orderId, String callbackToken);
+    
+    @EntityGraph(attributePaths = "items")
+    Optional<Order> findWithItemsByOrderId(String orderId);
+    
+    @EntityGraph(attributePaths = "items")
+    List<Order> findWithItemsByIdIn(Collection<Long> ids);
+    
+    /** Every order's status row, for rebuilding the status counts. Consume inside a transaction and close. */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("select o.orderId as orderId, o.customerId as customerId, o.status as status, o.createdAt as createdAt " +
+            "from Order o")
+    Stream<OrderStatusRow> streamStatusRows();
+    
+    // Status transitions: each is a single guarded UPDATE that only applies while the order is
+    // in one of the "from" statuses, and returns the number of rows changed (0 or 1).
+    
+    /** Also applies from {@code routeFrom} to orders on {@code route}; pass a null route for no such case. */
+    @Modifying
+    @Transactional
+    @Query("update Order o set o.status = :to, o.updatedAt = :now, o.version = o.version + 1 " +
+            "where o.orderId = :orderId and (o.status in :from or o.route = :route and o.status in :routeFrom)")
+    int transitionStatus(@Param("orderId") String orderId, @Param("from") Collection<OrderStatus> from,
+                         @Param("route") SagaRoute route, @Param("routeFrom") Collection<OrderStatus> routeFrom,
+                         @Param("to") OrderStatus to, @Param("now") LocalDateTime now);
+    
+    /** Makes {@code callbackToken} the only callback that may record the gateway's result for the order. */
+    @Modifying
+    @Transactional
+    @Query("update Order o set o.callbackToken = :callbackToken where o.orderId = :orderId")
+    int awaitCallback(@Param("orderId") String orderId, @Param("callbackToken") String callbackToken);
+    
+    // A result that came by callback also needs the order to be waiting on that callback's token; pass a
+    // null token for a result returned by the call itself
+    
+    @Modifying
+    @Transactional
+    @Query("update Order o set o.status = :to, o.paymentId = :paymentId, o.callbackToken = null, " +
+            "o.updatedAt = :now, o.version = o.version + 1 where o.orderId = :orderId and o.status in :from " +
+            "and (:callbackToken is null or o.callbackToken = :callbackToken)")
+    int recordPayment(@Param("orderId") String orderId, @Param("from") Collection<OrderStatus> from,
+                      @Param("to") OrderStatus to, @Param("paymentId") String paymentId,
+                      @Param("callbackToken") String callbackToken, @Param("now") LocalDateTime now);
+    
+    @Modifying
+    @Transactional
+    @Query("update Order o set o.status = :to, o.reservationId = :reservationId, o.updatedAt = :now, " +
+            "o.version = o.version + 1 where o.orderId = :orderId and o.status in :from")
+    int recordReservation(@Param("orderId") String orderId, @Param("from") Collection<OrderStatus> from,
+                          @Param("to") OrderStatus to, @Param("reservationId") String reservationId,
+                          @Param("now") LocalDateTime now);
+    
+    @Modifying
+    @Transactional
+    @Query("update Order o set o.status = :to, o.shippingId = :shippingId, o.trackingNumber = :trackingNumber, " +
+            "o.callbackToken = null, o.updatedAt = :now, o.version = o.version + 1 " +
+            "where o.orderId = :orderId and o.status in :from " +
+            "and (:callbackToken is null or o.callbackToken = :callbackToken)")
+    int recordShipping(@Param("orderId") String orderId, @Param("from") Collection<OrderStatus> from,
+                       @Param("to") OrderStatus to, @Param("shippingId") String shippingId,
+                       @Param("trackingNumber") String trackingNumber, @Param("callbackToken") String callbackToken,
+                       @Param("now") LocalDateTime now);
+    
+    @Modifying
+    @Transactional
+    @Query("update Order o set o.status = :to, o.completedAt = :now, o.updatedAt = :now, " +
+            "o.version = o.version + 1 where o.orderId = :orderId and o.status in :from")
+    int recordCompletion(@Param("orderId") String orderId, @Param("from") Collection<OrderStatus> from,
+                         @Param("to") OrderStatus to, @Param("now") LocalDateTime now);
+    
+    @Modifying
+    @Transactional
+    @Query("update Order o set o.status = :to, o.failureReason = :reason, o.updatedAt = :now, " +
+            "o.version = o.version + 1 where o.orderId = :orderId and o.status in :from")
+    int recordFailure(@Param("orderId") String orderId, @Param("from") Collection<OrderStatus> from,
+                      @Param("to") OrderStatus to, @Param("reason") String reason,
+                      @Param("now") LocalDateTime now);
 }
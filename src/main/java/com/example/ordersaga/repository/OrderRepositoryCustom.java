@@ -0,0 +1,23 @@
+package com.example.ordersaga.repository;
+
+import com.example.ordersaga.model.Order;
+import com.example.ordersaga.model.OrderCursor;
+import com.example.ordersaga.model.OrderStatus;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Keyset queries over orders, newest first. {@code status} and {@code customerId} are
+ * optional filters; pass {@code null} to leave them out.
+ */
+public interface OrderRepositoryCustom {
+    
+    List<Order> findPage(OrderStatus status, String customerId, OrderCursor after, int limit);
+    
+    /**
+     * Fetches each order together with its items in a single statement. Must be consumed
+     * inside a transaction and closed by the caller.
+     */
+    Stream<Order> streamOrders(OrderStatus status, String customerId);
+}
@@ -0,0 +1,69 @@
+package com.example.ordersaga.repository;
+
+import com.example.ordersaga.model.Order;
+import com.example.ordersaga.model.OrderCursor;
+import com.example.ordersaga.model.OrderStatus;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.beans.factory.annotation.Value;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+public class OrderRepositoryCustomImpl implements OrderRepositoryCustom {
+    
+    @PersistenceContext
+    private EntityManager entityManager;
+    
+    @Value("${order.query.stream-fetch-size:500}")
+    private int streamFetchSize;
+    
+    @Override
+    public List<Order> findPage(OrderStatus status, String customerId, OrderCursor after, int limit) {
+        return buildQuery(status, customerId, after, false)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+    
+    @Override
+    public Stream<Order> streamOrders(OrderStatus status, String customerId) {
+        // Rows of one order are adjacent in this ordering, so the fetched items collapse into their parent
+        return buildQuery(status, customerId, null, true)
+                .setHint(HibernateHints.HINT_FETCH_SIZE, streamFetchSize)
+                .setHint(HibernateHints.HINT_READ_ONLY, true)
+                .getResultStream();
+    }
+    
+    private TypedQuery<Order> buildQuery(OrderStatus status, String customerId, OrderCursor after, boolean fetchItems) {
+        StringBuilder jpql = new StringBuilder("select o from Order o");
+        if (fetchItems) {
+            jpql.append(" left join fetch o.items");
+        }
+        jpql.append(" where 1 = 1");
+        if (status != null) {
+            jpql.append(" and o.status = :status");
+        }
+        if (customerId != null) {
+            jpql.append(" and o.customerId = :customerId");
+        }
+        if (after != null) {
+            jpql.append(" and (o.createdAt < :createdAt or (o.createdAt = :createdAt and o.id < :id))");
+        }
+        jpql.append(" order by o.createdAt desc, o.id desc");
+        
+        TypedQuery<Order> query = entityManager.createQuery(jpql.toString(), Order.class);
+        if (status != null) {
+            query.setParameter("status", status);
+        }
+        if (customerId != null) {
+            query.setParameter("customerId", customerId);
+        }
+        if (after != null) {
+            query.setParameter("createdAt", after.getCreatedAt());
+            query.setParameter("id", after.getId());
+        }
+        return query;
+    }
+}
@@ -0,0 +1,19 @@
+package com.example.ordersaga.repository;
+
+import com.example.ordersaga.model.OrderStatus;
+
+import java.time.LocalDateTime;
+
+/**
+ * The columns of an order that its status counts are kept by.
+ */
+public interface OrderStatusRow {
+    
+    String getOrderId();
+    
+    String getCustomerId();
+    
+    OrderStatus getStatus();
+    
+    LocalDateTime getCreatedAt();
+}
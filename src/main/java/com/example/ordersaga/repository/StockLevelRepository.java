@@ -0,0 +1,9 @@
+package com.example.ordersaga.repository;
+
+import com.example.ordersaga.model.StockLevel;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface StockLevelRepository extends JpaRepository<StockLevel, String> {
+}
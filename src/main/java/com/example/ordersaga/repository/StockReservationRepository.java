@@ -0,0 +1,9 @@
+package com.example.ordersaga.repository;
+
+import com.example.ordersaga.model.StockReservation;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface StockReservationRepository extends JpaRepository<StockReservation, String> {
+}
@@ -0,0 +1,65 @@
+package com.example.ordersaga.service;
+
+import com.example.ordersaga.activities.OrderActivitiesImpl;
+import com.example.ordersaga.model.PaymentCallback;
+import com.example.ordersaga.model.ShippingCallback;
+import io.temporal.client.ActivityCompletionClient;
+import io.temporal.client.ActivityNotExistsException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.util.Base64;
+import java.util.function.Function;
+
+/**
+ * Completes activities that are waiting on the payment gateway or shipping carrier. The result is
+ * applied to the order first, only if the order is still waiting on the callback's task token, then
+ * handed to the workflow through that token.
+ */
+@Service
+public class GatewayCallbackService {
+    
+    private static final Logger log = LoggerFactory.getLogger(GatewayCallbackService.class);
+    
+    private final ActivityCompletionClient completionClient;
+    private final OrderActivitiesImpl orderActivities;
+    
+    public GatewayCallbackService(ActivityCompletionClient completionClient, OrderActivitiesImpl orderActivities) {
+        this.completionClient = completionClient;
+        this.orderActivities = orderActivities;
+    }
+    
+    public void paymentCompleted(PaymentCallback callback) {
+        log.info("Payment callback for order {}: {}", callback.getOrderId(), callback.getResult());
+        complete(callback.getCallbackToken(),
+                callbackToken -> orderActivities.recordPaymentResult(callback.getOrderId(), callbackToken,
+                        callback.getResult()));
+    }
+    
+    public void shipmentCompleted(ShippingCallback callback) {
+        log.info("Shipping callback for order {}: {}", callback.getOrderId(), callback.getResult());
+        complete(callback.getCallbackToken(),
+                callbackToken -> orderActivities.recordShippingResult(callback.getOrderId(), callbackToken,
+                        callback.getResult()));
+    }
+    
+    private <R> void complete(String callbackToken, Function<String, R> applyResult) {
+        if (callbackToken == null) {
+            throw new IllegalArgumentException("callbackToken is required");
+        }
+        byte[] taskToken = Base64.getUrlDecoder().decode(callbackToken);
+        
+        R result;
+        try {
+            result = applyResult.apply(callbackToken);
+        } catch (ActivityNotExistsException e) {
+            // A late callback from an attempt that timed out or was retried: nothing was written
+            throw e;
+        } catch (RuntimeException e) {
+            completionClient.completeExceptionally(taskToken, e);
+            return;
+        }
+        completionClient.complete(taskToken, result);
+    }
+}
@@ -1,18 +1,50 @@
 package com.example.ordersaga.service;
 
+import com.example.ordersaga.event.OrderEventBus;
+import com.example.ordersaga.id.IdGenerator;
+import com.example.ordersaga.model.BatchOrderResult;
 import com.example.ordersaga.model.Order;
+import com.example.ordersaga.model.OrderCursor;
+import com.example.ordersaga.model.OrderPage;
+import com.example.ordersaga.model.OrderProgress;
 import com.example.ordersaga.model.OrderRequest;
+import com.example.ordersaga.model.OrderStats;
+import com.example.ordersaga.model.OrderStatusEvent;
 import com.example.ordersaga.model.OrderStatus;
+import com.example.ordersaga.model.OrderView;
 import com.example.ordersaga.repository.OrderRepository;
 import com.example.ordersaga.workflow.OrderWorkflow;
+import io.temporal.api.enums.v1.WorkflowIdReusePolicy;
 import io.temporal.client.WorkflowClient;
+import io.temporal.client.WorkflowExecutionAlreadyStarted;
+import io.temporal.client.WorkflowException;
+import io.temporal.client.WorkflowNotFoundException;
 import io.temporal.client.WorkflowOptions;
+import io.temporal.client.WorkflowQueryRejectedException;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.Iterator;
 import java.util.List;
-import java.util.UUID;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 public class OrderService {
@@ -22,24 +54,62 @@ public class OrderService {
     
     private final WorkflowClient workflowClient;
     private final OrderRepository orderRepository;
+    private final EntityManager entityManager;
+    private final IdGenerator idGenerator;
+    private final OrderViewCache orderViews;
+    private final OrderStatusCounters statusCounters;
+    private final OrderEventBus eventBus;
+    private final SagaRoutePlanner routePlanner;
+    private final SubmittedOrderIds submittedOrderIds;
+    private final WorkflowIdReusePolicy workflowIdReusePolicy;
+    private final int batchConcurrency;
+    private final ExecutorService batchExecutor;
     
-    public OrderService(WorkflowClient workflowClient, OrderRepository orderRepository) {
+    @Value("${order.query.max-page-size:500}")
+    private int maxPageSize;
+    
+    public OrderService(WorkflowClient workflowClient, OrderRepository orderRepository, EntityManager entityManager,
+                        IdGenerator idGenerator, OrderViewCache orderViews, OrderStatusCounters statusCounters,
+                        OrderEventBus eventBus, SagaRoutePlanner routePlanner, SubmittedOrderIds submittedOrderIds,
+                        @Value("${order.batch.max-concurrency:64}") int batchConcurrency,
+                        @Value("${order.idempotency.workflow-id-reuse-policy:WORKFLOW_ID_REUSE_POLICY_REJECT_DUPLICATE}")
+                        WorkflowIdReusePolicy workflowIdReusePolicy) {
         this.workflowClient = workflowClient;
         this.orderRepository = orderRepository;
+        this.entityManager = entityManager;
+        this.idGenerator = idGenerator;
+        this.orderViews = orderViews;
+        this.statusCounters = statusCounters;
+        this.eventBus = eventBus;
+        this.routePlanner = routePlanner;
+        this.submittedOrderIds = submittedOrderIds;
+        this.workflowIdReusePolicy = workflowIdReusePolicy;
+        this.batchConcurrency = batchConcurrency;
+        this.batchExecutor = Executors.newFixedThreadPool(batchConcurrency,
+                new CustomizableThreadFactory("order-batch-"));
     }
     
+    /**
+     * Starts the order's workflow and returns its order id. A request whose {@code orderId} was
+     * submitted before starts nothing and gets the same order id back.
+     */
     public String createOrder(OrderRequest orderRequest) {
         // Generate order ID if not provided
         if (orderRequest.getOrderId() == null || orderRequest.getOrderId().isEmpty()) {
-            orderRequest.setOrderId("ORD-" + UUID.randomUUID().toString().substring(0, 8));
+            orderRequest.setOrderId(idGenerator.nextId("ORD-"));
+        } else if (submittedOrderIds.isDuplicate(orderRequest.getOrderId())) {
+            log.info("Order {} was already submitted", orderRequest.getOrderId());
+            return orderRequest.getOrderId();
         }
         
-        log.info("Creating order with ID: {}", orderRequest.getOrderId());
+        orderRequest.setRoute(routePlanner.plan(orderRequest));
+        log.info("Creating order with ID: {} on route {}", orderRequest.getOrderId(), orderRequest.getRoute());
         
         // Create workflow options
         WorkflowOptions workflowOptions = WorkflowOptions.newBuilder()
-                .setWorkflowId("order-workflow-" + orderRequest.getOrderId())
+                .setWorkflowId(workflowId(orderRequest.getOrderId()))
                 .setTaskQueue(ORDER_TASK_QUEUE)
+                .setWorkflowIdReusePolicy(workflowIdReusePolicy)
                 .build();
         
         // Start the workflow
@@ -49,27 +119,206 @@ public class OrderService {
         );
         
         // Execute workflow asynchronously
-        WorkflowClient.start(workflow::processOrder, orderRequest);
+        try {
+            WorkflowClient.start(workflow::processOrder, orderRequest);
+        } catch (WorkflowExecutionAlreadyStarted e) {
+            // A concurrent retry got there first, or the order is older than this instance's memory
+            submittedOrderIds.alreadyStarted(orderRequest.getOrderId());
+            log.info("Order {} was already submitted", orderRequest.getOrderId());
+            return orderRequest.getOrderId();
+        }
+        submittedOrderIds.accepted(orderRequest.getOrderId());
         
         log.info("Order workflow started for order: {}", orderRequest.getOrderId());
         
         return orderRequest.getOrderId();
     }
     
-    public Order getOrder(String orderId) {
-        return orderRepository.findByOrderId(orderId)
-                .orElseThrow(() -> new RuntimeException("Order not found: " + orderId));
+    /**
+     * Starts a workflow for every request, keeping at most {@code order.batch.max-concurrency}
+     * starts in flight. Results are handed to {@code resultSink} in completion order, from
+     * the batch threads, so the sink must be thread-safe. Returns once every start has finished.
+     * If the sink throws (e.g. the client has gone), no further workflows are started and the
+     * sink's exception is rethrown once the starts already running have finished.
+     */
+    public void createOrders(Iterator<OrderRequest> orderRequests, Consumer<BatchOrderResult> resultSink) {
+        Semaphore inFlight = new Semaphore(batchConcurrency);
+        AtomicReference<RuntimeException> sinkFailure = new AtomicReference<>();
+        AtomicInteger notStarted = new AtomicInteger();
+        int index = 0;
+        
+        try {
+            while (sinkFailure.get() == null) {
+                OrderRequest orderRequest;
+                try {
+                    if (!orderRequests.hasNext()) {
+                        break;
+                    }
+                    orderRequest = orderRequests.next();
+                } catch (RuntimeException e) {
+                    // The rest of the input can't be trusted once a request fails to parse
+                    log.warn("Rejecting remainder of order batch at index {}: {}", index, e.getMessage());
+                    resultSink.accept(BatchOrderResult.failed(index, null, "Malformed order request: " + e.getMessage()));
+                    break;
+                }
+                
+                int position = index++;
+                inFlight.acquireUninterruptibly();
+                try {
+                    batchExecutor.execute(() -> {
+                        try {
+                            if (sinkFailure.get() != null) {
+                                // Nobody would hear whether this order started
+                                notStarted.incrementAndGet();
+                                return;
+                            }
+                            BatchOrderResult result;
+                            try {
+                                result = BatchOrderResult.started(position, createOrder(orderRequest));
+                            } catch (Exception e) {
+                                log.warn("Failed to start workflow for batch index {}: {}", position, e.getMessage());
+                                result = BatchOrderResult.failed(position, orderRequest.getOrderId(), e.getMessage());
+                            }
+                            resultSink.accept(result);
+                        } catch (RuntimeException e) {
+                            sinkFailure.compareAndSet(null, e);
+                        } finally {
+                            inFlight.release();
+                        }
+                    });
+                } catch (RejectedExecutionException e) {
+                    inFlight.release();
+                    throw e;
+                }
+            }
+        } finally {
+            // Wait for the starts still in flight so every result is written before the response ends
+            inFlight.acquireUninterruptibly(batchConcurrency);
+        }
+        
+        RuntimeException failure = sinkFailure.get();
+        if (failure != null) {
+            log.warn("Order batch aborted after {} requests, {} of them not started: {}", index, notStarted.get(),
+                    failure.getMessage());
+            throw failure;
+        }
+        log.info("Order batch processed: {} requests", index);
+    }
+    
+    @Transactional(readOnly = true)
+    public OrderView getOrder(String orderId) {
+        return findOrder(orderId).orElseThrow(() -> new RuntimeException("Order not found: " + orderId));
+    }
+    
+    @Transactional(readOnly = true)
+    public Optional<OrderView> findOrder(String orderId) {
+        // Caffeine does not cache a null, so a miss for an order not created yet is retried next time
+        return Optional.ofNullable(orderViews.get(orderId, id -> orderRepository.findWithItemsByOrderId(id)
+                .map(OrderView::of)
+                .orElse(null)));
+    }
+    
+    /**
+     * The order's saga progress. A running saga answers a workflow query from its own state, so
+     * polling it reads nothing from the database; once the workflow has closed, or if it cannot be
+     * queried, the stored order is returned instead, without step timings.
+     */
+    public OrderProgress getProgress(String orderId) {
+        try {
+            OrderProgress progress = workflowClient.newWorkflowStub(OrderWorkflow.class, workflowId(orderId))
+                    .getProgress();
+            if (progress != null) {
+                return progress;
+            }
+        } catch (WorkflowQueryRejectedException | WorkflowNotFoundException e) {
+            // Closed or never started; the database has the final state
+        } catch (WorkflowException e) {
+            log.warn("Progress query for order {} failed, reading the database: {}", orderId, e.getMessage());
+        }
+        return OrderProgress.of(getOrder(orderId));
+    }
+    
+    /**
+     * Calls {@code subscriber} with each status change of the order, from an event dispatch thread,
+     * until the subscription is closed.
+     */
+    public OrderEventBus.Subscription subscribe(String orderId, Consumer<OrderStatusEvent> subscriber) {
+        return eventBus.subscribe(orderId, subscriber);
+    }
+    
+    /**
+     * Order counts by status, for all orders or one customer's, from memory.
+     */
+    public OrderStats getStats(String customerId) {
+        return customerId == null ? statusCounters.counts() : statusCounters.counts(customerId);
+    }
+    
+    /**
+     * Order counts by status for each time bucket of order creation in [{@code from}, {@code to}),
+     * from memory. Defaults to the last 24 buckets.
+     */
+    public List<OrderStats> getStatsByBucket(LocalDateTime from, LocalDateTime to) {
+        LocalDateTime end = to != null ? to : LocalDateTime.now();
+        LocalDateTime start = from != null ? from : end.minus(statusCounters.getBucketSize().multipliedBy(24));
+        if (!start.isBefore(end)) {
+            throw new IllegalArgumentException("from must be before to");
+        }
+        return statusCounters.countsByBucket(start, end);
+    }
+    
+    /**
+     * Returns up to {@code limit} orders after {@code cursor}, newest first. {@code status} and
+     * {@code customerId} are optional filters. A page costs two queries whatever its size: one
+     * keyset scan for the orders and one fetch join for their items.
+     */
+    @Transactional(readOnly = true)
+    public OrderPage getOrders(OrderStatus status, String customerId, String cursor, int limit) {
+        if (limit < 1 || limit > maxPageSize) {
+            throw new IllegalArgumentException("limit must be between 1 and " + maxPageSize);
+        }
+        OrderCursor after = cursor == null || cursor.isEmpty() ? null : OrderCursor.decode(cursor);
+        
+        // Fetch one extra row to learn whether another page exists
+        List<Order> orders = orderRepository.findPage(status, customerId, after, limit + 1);
+        String nextCursor = null;
+        if (orders.size() > limit) {
+            orders = orders.subList(0, limit);
+            nextCursor = OrderCursor.of(orders.get(limit - 1)).encode();
+        }
+        if (orders.isEmpty()) {
+            return new OrderPage(List.of(), null);
+        }
+        
+        Map<Long, Order> withItems = orderRepository.findWithItemsByIdIn(orders.stream().map(Order::getId).toList())
+                .stream()
+                .collect(Collectors.toMap(Order::getId, Function.identity(), (first, second) -> first));
+        List<OrderView> views = orders.stream()
+                .map(order -> OrderView.of(withItems.get(order.getId())))
+                .toList();
+        return new OrderPage(views, nextCursor);
     }
     
-    public List<Order> getOrdersByCustomer(String customerId) {
-        return orderRepository.findByCustomerId(customerId);
+    /**
+     * Hands every matching order to {@code sink} as it is read, newest first. Orders and items
+     * come from one fetch-join statement, and each entity is detached once consumed so the
+     * persistence context stays small whatever the result size.
+     */
+    @Transactional(readOnly = true)
+    public void streamOrders(OrderStatus status, String customerId, Consumer<OrderView> sink) {
+        try (Stream<Order> orders = orderRepository.streamOrders(status, customerId)) {
+            orders.forEach(order -> {
+                sink.accept(OrderView.of(order));
+                entityManager.detach(order);
+            });
+        }
     }
     
-    public List<Order> getOrdersByStatus(OrderStatus status) {
-        return orderRepository.findByStatus(status);
+    private static String workflowId(String orderId) {
+        return "order-workflow-" + orderId;
     }
     
-    public List<Order> getAllOrders() {
-        return orderRepository.findAll();
+    @PreDestroy
+    public void shutdown() {
+        batchExecutor.shutdown();
     }
 }
@@ -0,0 +1,200 @@
+package com.example.ordersaga.service;
+
+import com.example.ordersaga.event.OrderEventBus;
+import com.example.ordersaga.model.OrderStats;
+import com.example.ordersaga.model.OrderStatusEvent;
+import com.example.ordersaga.model.OrderStatus;
+import com.example.ordersaga.repository.OrderRepository;
+import com.example.ordersaga.repository.OrderStatusRow;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.stream.Stream;
+
+/**
+ * Number of orders in each status, overall, per customer and per creation-time bucket, kept in
+ * memory so that reading them costs no database work.
+ * <p>
+ * The counts are rebuilt from the database at startup, before the worker runs any activity, and
+ * then moved by every status change published on the {@link OrderEventBus}. To know which status an order leaves, the
+ * status of every order that has not reached a terminal status is kept too. Only transitions made
+ * by this instance are seen.
+ */
+@Component
+public class OrderStatusCounters {
+
+    private static final Logger log = LoggerFactory.getLogger(OrderStatusCounters.class);
+    private static final OrderStatus[] STATUSES = OrderStatus.values();
+
+    private final OrderRepository orderRepository;
+    private final TransactionTemplate readOnlyTransaction;
+    private final long bucketSeconds;
+    private final Duration bucketRetention;
+
+    private final AtomicLongArray totals = new AtomicLongArray(STATUSES.length);
+    private final Map<String, AtomicLongArray> byCustomer = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListMap<LocalDateTime, AtomicLongArray> byBucket = new ConcurrentSkipListMap<>();
+    private final Map<String, TrackedOrder> openOrders = new ConcurrentHashMap<>();
+
+    public OrderStatusCounters(OrderRepository orderRepository, PlatformTransactionManager transactionManager,
+                               OrderEventBus eventBus,
+                               @Value("${order.stats.bucket-size:1h}") Duration bucketSize,
+                               @Value("${order.stats.bucket-retention:7d}") Duration bucketRetention) {
+        if (bucketSize.toSeconds() < 1) {
+            throw new IllegalArgumentException("order.stats.bucket-size must be at least one second");
+        }
+        this.orderRepository = orderRepository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.bucketSeconds = bucketSize.toSeconds();
+        this.bucketRetention = bucketRetention;
+        eventBus.addListener(this::onEvent);
+    }
+
+    @PostConstruct
+    public void rebuild() {
+        long started = System.nanoTime();
+        readOnlyTransaction.executeWithoutResult(transaction -> {
+            try (Stream<OrderStatusRow> rows = orderRepository.streamStatusRows()) {
+                rows.forEach(row -> track(row.getOrderId(), row.getCustomerId(), row.getCreatedAt(), row.getStatus()));
+            }
+        });
+        log.info("Rebuilt order status counts for {} orders ({} open) in {} ms", total(totals), openOrders.size(),
+                (System.nanoTime() - started) / 1_000_000);
+    }
+
+    private void onEvent(OrderStatusEvent event) {
+        if (event.isCreation()) {
+            created(event.getOrderId(), event.getCustomerId(), event.getOccurredAt(), event.getStatus());
+        } else {
+            moved(event.getOrderId(), event.getStatus());
+        }
+    }
+    
+    /** Counts a newly created order. */
+    public void created(String orderId, String customerId, LocalDateTime createdAt, OrderStatus status) {
+        if (!openOrders.containsKey(orderId)) {
+            track(orderId, customerId, createdAt, status);
+        }
+    }
+
+    /** Moves an order's count to {@code status}; call after the transition has committed. */
+    public void moved(String orderId, OrderStatus status) {
+        TrackedOrder order = openOrders.get(orderId);
+        if (order == null) {
+            // Already terminal, or created by another instance
+            log.debug("Order {} is not tracked; its move to {} is not counted", orderId, status);
+            return;
+        }
+        synchronized (order) {
+            if (order.status == status) {
+                return;
+            }
+            add(order, order.status, -1);
+            add(order, status, 1);
+            order.status = status;
+            if (status.isTerminal()) {
+                openOrders.remove(orderId);
+            }
+        }
+    }
+
+    public OrderStats counts() {
+        return stats(null, totals);
+    }
+
+    public OrderStats counts(String customerId) {
+        AtomicLongArray counts = byCustomer.get(customerId);
+        return stats(null, counts != null ? counts : new AtomicLongArray(STATUSES.length));
+    }
+
+    /** One entry per non-empty bucket that starts in [{@code from}, {@code to}), oldest first. */
+    public List<OrderStats> countsByBucket(LocalDateTime from, LocalDateTime to) {
+        List<OrderStats> buckets = new ArrayList<>();
+        byBucket.subMap(bucketStart(from), true, to, false)
+                .forEach((start, counts) -> buckets.add(stats(start, counts)));
+        return buckets;
+    }
+
+    public Duration getBucketSize() {
+        return Duration.ofSeconds(bucketSeconds);
+    }
+
+    private void track(String orderId, String customerId, LocalDateTime createdAt, OrderStatus status) {
+        TrackedOrder order = new TrackedOrder(
+                byCustomer.computeIfAbsent(customerId, key -> new AtomicLongArray(STATUSES.length)),
+                bucket(createdAt), status);
+        add(order, status, 1);
+        if (!status.isTerminal()) {
+            openOrders.put(orderId, order);
+        }
+    }
+
+    private void add(TrackedOrder order, OrderStatus status, int delta) {
+        int index = status.ordinal();
+        totals.addAndGet(index, delta);
+        order.customerCounts.addAndGet(index, delta);
+        if (order.bucketCounts != null) {
+            order.bucketCounts.addAndGet(index, delta);
+        }
+    }
+
+    /** The counts of the bucket {@code createdAt} falls in, or null once that bucket is past retention. */
+    private AtomicLongArray bucket(LocalDateTime createdAt) {
+        LocalDateTime oldest = bucketStart(LocalDateTime.now().minus(bucketRetention));
+        byBucket.headMap(oldest).clear();
+        LocalDateTime start = bucketStart(createdAt);
+        if (start.isBefore(oldest)) {
+            return null;
+        }
+        return byBucket.computeIfAbsent(start, key -> new AtomicLongArray(STATUSES.length));
+    }
+
+    private LocalDateTime bucketStart(LocalDateTime time) {
+        long seconds = time.toEpochSecond(ZoneOffset.UTC);
+        return LocalDateTime.ofEpochSecond(seconds - Math.floorMod(seconds, bucketSeconds), 0, ZoneOffset.UTC);
+    }
+
+    private static OrderStats stats(LocalDateTime bucketStart, AtomicLongArray counts) {
+        Map<OrderStatus, Long> byStatus = new EnumMap<>(OrderStatus.class);
+        for (OrderStatus status : STATUSES) {
+            byStatus.put(status, counts.get(status.ordinal()));
+        }
+        return new OrderStats(bucketStart, byStatus, total(counts));
+    }
+
+    private static long total(AtomicLongArray counts) {
+        long total = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            total += counts.get(i);
+        }
+        return total;
+    }
+
+    private static final class TrackedOrder {
+        private final AtomicLongArray customerCounts;
+        private final AtomicLongArray bucketCounts;
+        private OrderStatus status;
+
+        TrackedOrder(AtomicLongArray customerCounts, AtomicLongArray bucketCounts, OrderStatus status) {
+            this.customerCounts = customerCounts;
+            this.bucketCounts = bucketCounts;
+            this.status = status;
+        }
+    }
+}
@@ -0,0 +1,355 @@
+package com.example.ordersaga.service;
+
+import com.example.ordersaga.event.OrderEventBus;
+import com.example.ordersaga.model.OrderStatus;
+import com.example.ordersaga.model.OrderStatusEvent;
+import com.example.ordersaga.model.SagaRoute;
+import com.example.ordersaga.outbox.OrderOutbox;
+import com.example.ordersaga.repository.OrderRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Statement;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Group commit of the guarded status-only transitions made by the saga steps.
+ * <p>
+ * Callers enqueue a transition and wait; a single writer thread takes everything queued within
+ * {@code order.status-writer.window} of the first transition, up to {@code order.status-writer.max-batch},
+ * and commits it as one transaction of batched updates, then wakes each caller with its rows changed.
+ * A caller only returns once its transition is durable, and gives up after
+ * {@code order.status-writer.timeout}. Transitions of the same order in one batch are collapsed into
+ * one update to the latest status, as long as the latest may follow the earlier ones; any other goes
+ * into a second round of the same transaction. Only the status each applied update left its order in
+ * is added to the outbox, in that transaction, and published once it has committed; the statuses
+ * collapsed into it never were the order's. The queue holds {@code order.status-writer.queue-capacity}
+ * transitions and callers wait for room when it is full. Transitions still queued at shutdown fail.
+ * With the writer disabled every transition is its own transaction, on its caller's thread.
+ */
+@Component
+public class OrderStatusWriter {
+
+    private static final Logger log = LoggerFactory.getLogger(OrderStatusWriter.class);
+    private static final int STATUSES = OrderStatus.values().length;
+
+    private final OrderRepository orderRepository;
+    private final OrderOutbox outbox;
+    private final OrderEventBus eventBus;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transaction;
+    private final String transitionStatus;
+    private final boolean enabled;
+    private final long windowNanos;
+    private final int maxBatch;
+    private final long timeoutNanos;
+    private volatile boolean closed;
+    private final BlockingQueue<Transition> queue;
+    private final ExecutorService writer;
+    private final DistributionSummary batchSizes;
+    private final Counter collapsed;
+
+    public OrderStatusWriter(OrderRepository orderRepository, OrderOutbox outbox, OrderEventBus eventBus,
+                             JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                             MeterRegistry meterRegistry,
+                             @Value("${order.status-writer.enabled:true}") boolean enabled,
+                             @Value("${order.status-writer.window:2ms}") Duration window,
+                             @Value("${order.status-writer.max-batch:500}") int maxBatch,
+                             @Value("${order.status-writer.queue-capacity:10000}") int queueCapacity,
+                             @Value("${order.status-writer.timeout:10s}") Duration timeout) {
+        if (maxBatch < 1) {
+            throw new IllegalArgumentException("order.status-writer.max-batch must be at least 1");
+        }
+        this.orderRepository = orderRepository;
+        this.outbox = outbox;
+        this.eventBus = eventBus;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transaction = new TransactionTemplate(transactionManager);
+        // One statement text for every guard: each "from" list is padded by repeating its first status,
+        // and a transition with no route-specific predecessors passes a null route, which matches nothing
+        String statuses = String.join(", ", Collections.nCopies(STATUSES, "?"));
+        this.transitionStatus = "update orders set status = ?, updated_at = ?, version = version + 1 "
+                + "where order_id = ? and (status in (" + statuses + ") or route = ? and status in (" + statuses + "))";
+        this.enabled = enabled;
+        this.windowNanos = window.toNanos();
+        this.maxBatch = maxBatch;
+        this.timeoutNanos = timeout.toNanos();
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.batchSizes = DistributionSummary.builder("orders.status.write.batch.size")
+                .description("Status transitions committed per transaction")
+                .register(meterRegistry);
+        this.collapsed = Counter.builder("orders.status.writes.collapsed")
+                .description("Status transitions folded into a later transition of the same order in the same batch")
+                .register(meterRegistry);
+        if (enabled) {
+            CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("status-writer-");
+            threadFactory.setDaemon(true);
+            this.writer = Executors.newSingleThreadExecutor(threadFactory);
+            this.writer.execute(this::run);
+        } else {
+            this.writer = null;
+        }
+    }
+
+    /**
+     * Moves the order to {@code status} if it is in one of the status's allowed predecessors, or its
+     * route-specific ones on that route, and returns once that has committed. The status the order
+     * ends up in is published to the event bus.
+     *
+     * @return the number of rows changed, 0 or 1
+     * @throws IllegalStateException if the writer has shut down
+     * @throws RuntimeException if the transition was not written within the timeout; it may still be
+     */
+    public int transition(String orderId, OrderStatus status) {
+        if (!enabled) {
+            int updated = outbox.write(orderId, status, () -> orderRepository.transitionStatus(orderId,
+                    status.allowedPredecessors(), status.predecessorRoute(), status.routePredecessors(),
+                    status, LocalDateTime.now()));
+            if (updated > 0) {
+                eventBus.publish(OrderStatusEvent.moved(orderId, status));
+            }
+            return updated;
+        }
+        Transition transition = new Transition(orderId, status);
+        try {
+            long deadline = System.nanoTime() + timeoutNanos;
+            if (closed || !queue.offer(transition, timeoutNanos, TimeUnit.NANOSECONDS)) {
+                throw closed ? shutDown() : new RuntimeException("Timed out queueing status " + status
+                        + " of order " + orderId);
+            }
+            if (closed && queue.remove(transition)) {
+                // Queued after shutdown drained the queue
+                throw shutDown();
+            }
+            return transition.result.get(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            queue.remove(transition);
+            throw new RuntimeException("Interrupted writing status " + status + " of order " + orderId, e);
+        } catch (TimeoutException e) {
+            // Not written unless the writer already holds it; a retry is harmless either way
+            queue.remove(transition);
+            throw new RuntimeException("Timed out writing status " + status + " of order " + orderId, e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    private static IllegalStateException shutDown() {
+        return new IllegalStateException("Shutting down before the status was written");
+    }
+
+    private void run() {
+        List<Transition> batch = new ArrayList<>(maxBatch);
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                batch.add(queue.take());
+                long deadline = System.nanoTime() + windowNanos;
+                while (batch.size() < maxBatch) {
+                    Transition next = queue.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (!batch.isEmpty()) {
+                try {
+                    write(batch);
+                } catch (RuntimeException e) {
+                    // The callers' activities fail and retry
+                    log.warn("Writing {} status transitions failed", batch.size(), e);
+                    batch.forEach(transition -> transition.result.completeExceptionally(e));
+                }
+                batch.clear();
+            }
+        }
+    }
+
+    private void write(List<Transition> batch) {
+        // Per order, consecutive transitions collapsed while the later status may follow the earlier one
+        Map<String, List<Update>> byOrder = new LinkedHashMap<>();
+        for (Transition transition : batch) {
+            List<Update> updates = byOrder.computeIfAbsent(transition.orderId, key -> new ArrayList<>(1));
+            Update last = updates.isEmpty() ? null : updates.get(updates.size() - 1);
+            if (last != null && last.absorb(transition)) {
+                collapsed.increment();
+            } else {
+                updates.add(new Update(transition));
+            }
+        }
+        // Round i holds each order's i-th update
+        List<List<Update>> rounds = new ArrayList<>();
+        for (List<Update> updates : byOrder.values()) {
+            for (int i = 0; i < updates.size(); i++) {
+                if (rounds.size() == i) {
+                    rounds.add(new ArrayList<>());
+                }
+                rounds.get(i).add(updates.get(i));
+            }
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        List<OrderStatusEvent> changes = transaction.execute(status -> {
+            for (List<Update> round : rounds) {
+                List<Update> guarded = round.stream().filter(update -> !update.from.isEmpty()).toList();
+                int[] updated = jdbcTemplate.batchUpdate(transitionStatus,
+                        guarded.stream().map(update -> update.row(now)).toList());
+                for (int i = 0; i < updated.length; i++) {
+                    guarded.get(i).updated = updated[i] == Statement.SUCCESS_NO_INFO ? 1 : updated[i];
+                }
+            }
+            List<OrderStatusEvent> applied = changes(byOrder);
+            outbox.append(applied);
+            return applied;
+        });
+        batchSizes.record(batch.size());
+        changes.forEach(eventBus::publish);
+
+        for (List<Update> updates : byOrder.values()) {
+            for (Update update : updates) {
+                update.transitions.forEach(transition -> transition.result.complete(update.updated));
+            }
+        }
+    }
+
+    /**
+     * The status each applied update left its order in, per order in the order they were applied.
+     * Statuses collapsed into a later one are left out: the order never held them.
+     */
+    private static List<OrderStatusEvent> changes(Map<String, List<Update>> byOrder) {
+        List<OrderStatusEvent> changes = new ArrayList<>();
+        for (List<Update> updates : byOrder.values()) {
+            for (Update update : updates) {
+                if (update.updated != 0) {
+                    changes.add(OrderStatusEvent.moved(update.transitions.get(0).orderId, update.to));
+                }
+            }
+        }
+        return changes;
+    }
+
+    /** Stops the writer after the batch in hand, and fails every transition still queued. */
+    @PreDestroy
+    public void shutdown() {
+        closed = true;
+        if (writer != null) {
+            writer.shutdownNow();
+            try {
+                if (!writer.awaitTermination(timeoutNanos, TimeUnit.NANOSECONDS)) {
+                    log.warn("Status writer did not stop within {} ms", timeoutNanos / 1_000_000);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        List<Transition> abandoned = new ArrayList<>();
+        queue.drainTo(abandoned);
+        abandoned.forEach(transition -> transition.result.completeExceptionally(shutDown()));
+    }
+
+    private static final class Transition {
+        private final String orderId;
+        private final OrderStatus status;
+        private final CompletableFuture<Integer> result = new CompletableFuture<>();
+
+        Transition(String orderId, OrderStatus status) {
+            this.orderId = orderId;
+            this.status = status;
+        }
+    }
+
+    /** One guarded UPDATE standing for one or more transitions of the same order. */
+    private static final class Update {
+        private final List<Transition> transitions = new ArrayList<>(1);
+        private final Set<OrderStatus> from = EnumSet.noneOf(OrderStatus.class);
+        private final Set<OrderStatus> routeFrom = EnumSet.noneOf(OrderStatus.class);
+        private SagaRoute route;
+        private OrderStatus to;
+        private int updated;
+
+        Update(Transition transition) {
+            transitions.add(transition);
+            from.addAll(transition.status.allowedPredecessors());
+            route = transition.status.predecessorRoute();
+            routeFrom.addAll(transition.status.routePredecessors());
+            to = transition.status;
+        }
+
+        /**
+         * Folds in a later transition if it may follow this update's status: from any status in the
+         * combined predecessors, the merged update then ends where applying each in turn would.
+         */
+        boolean absorb(Transition transition) {
+            if (transition.status != to && !transition.status.allowedPredecessors().contains(to)) {
+                return false;
+            }
+            SagaRoute otherRoute = transition.status.predecessorRoute();
+            if (route != null && otherRoute != null && route != otherRoute) {
+                // One statement guards a single route
+                return false;
+            }
+            transitions.add(transition);
+            from.addAll(transition.status.allowedPredecessors());
+            if (otherRoute != null) {
+                route = otherRoute;
+                routeFrom.addAll(transition.status.routePredecessors());
+            }
+            to = transition.status;
+            return true;
+        }
+
+        Object[] row(LocalDateTime now) {
+            Object[] row = new Object[4 + 2 * STATUSES];
+            row[0] = to.name();
+            row[1] = now;
+            row[2] = transitions.get(0).orderId;
+            fill(row, 3, from);
+            row[3 + STATUSES] = route == null ? null : route.name();
+            fill(row, 4 + STATUSES, routeFrom.isEmpty() ? from : routeFrom);
+            return row;
+        }
+
+        private static void fill(Object[] row, int offset, Set<OrderStatus> statuses) {
+            int i = offset;
+            for (OrderStatus status : statuses) {
+                row[i++] = status.name();
+            }
+            while (i < offset + STATUSES) {
+                row[i] = row[offset];
+                i++;
+            }
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.ordersaga.service;
+
+import com.example.ordersaga.event.OrderEventBus;
+import com.example.ordersaga.model.OrderView;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.function.Function;
+
+/**
+ * Bounded near cache of order views for {@code GET /api/orders/{orderId}}, which storefronts poll
+ * while sagas run.
+ * <p>
+ * Every committed status change published on the {@link OrderEventBus} invalidates its entry. A load holds the entry's lock while it reads,
+ * so an invalidation that follows a commit waits for any load in progress and then removes it; a
+ * read never returns a view older than the last committed step. The TTL only bounds staleness
+ * from writes that bypass the activities. Cached views are shared and must not be modified.
+ */
+@Component
+public class OrderViewCache {
+    
+    private final Cache<String, OrderView> cache;
+    
+    public OrderViewCache(@Value("${order.cache.max-size:10000}") long maxSize,
+                          @Value("${order.cache.ttl:30s}") Duration ttl,
+                          MeterRegistry meterRegistry, OrderEventBus eventBus) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "orderViews");
+        eventBus.addListener(event -> invalidate(event.getOrderId()));
+    }
+    
+    public OrderView get(String orderId, Function<String, OrderView> loader) {
+        return cache.get(orderId, loader);
+    }
+    
+    /** Call after the write to {@code orderId} has committed. */
+    public void invalidate(String orderId) {
+        cache.invalidate(orderId);
+    }
+}
@@ -0,0 +1,110 @@
+package com.example.ordersaga.service;
+
+import com.example.ordersaga.model.OrderRequest;
+import com.example.ordersaga.model.OrderStats;
+import com.example.ordersaga.model.OrderStatus;
+import com.example.ordersaga.model.SagaRoute;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Picks the saga route for an order from its amount, its item categories and the customer's order
+ * history, in this order:
+ * <ol>
+ *     <li>orders of at least {@code order.routing.full-route-min-amount}, or with an item in one of
+ *     {@code order.routing.full-route-categories}, take the {@link SagaRoute#FULL full route};</li>
+ *     <li>orders of at most {@code order.routing.skip-fraud-check-max-amount} from a trusted customer
+ *     skip the fraud check;</li>
+ *     <li>any other order runs the fraud check in parallel when {@code order.saga.parallel-fraud-check}
+ *     is set, and takes the full route otherwise.</li>
+ * </ol>
+ * A customer is trusted after {@code order.routing.trusted-customer.min-completed} completed orders, if
+ * no more than {@code order.routing.trusted-customer.max-compensated-ratio} of their finished orders
+ * were compensated. The history comes from {@link OrderStatusCounters}, so planning reads no database.
+ */
+@Component
+public class SagaRoutePlanner {
+
+    private final OrderStatusCounters statusCounters;
+    private final BigDecimal fullRouteMinAmount;
+    private final Set<String> fullRouteCategories;
+    private final BigDecimal skipFraudCheckMaxAmount;
+    private final long trustedMinCompleted;
+    private final double trustedMaxCompensatedRatio;
+    private final SagaRoute defaultRoute;
+    private final Map<SagaRoute, Counter> planned = new EnumMap<>(SagaRoute.class);
+
+    public SagaRoutePlanner(OrderStatusCounters statusCounters, MeterRegistry meterRegistry,
+                            @Value("${order.saga.parallel-fraud-check:false}") boolean parallelFraudCheck,
+                            @Value("${order.routing.full-route-min-amount:1000}") BigDecimal fullRouteMinAmount,
+                            @Value("${order.routing.full-route-categories:}") Set<String> fullRouteCategories,
+                            @Value("${order.routing.skip-fraud-check-max-amount:0}") BigDecimal skipFraudCheckMaxAmount,
+                            @Value("${order.routing.trusted-customer.min-completed:5}") long trustedMinCompleted,
+                            @Value("${order.routing.trusted-customer.max-compensated-ratio:0}")
+                            double trustedMaxCompensatedRatio) {
+        this.statusCounters = statusCounters;
+        this.fullRouteMinAmount = fullRouteMinAmount;
+        this.fullRouteCategories = fullRouteCategories.stream()
+                .map(category -> category.trim().toLowerCase(Locale.ROOT))
+                .filter(category -> !category.isEmpty())
+                .collect(Collectors.toUnmodifiableSet());
+        this.skipFraudCheckMaxAmount = skipFraudCheckMaxAmount;
+        this.trustedMinCompleted = trustedMinCompleted;
+        this.trustedMaxCompensatedRatio = trustedMaxCompensatedRatio;
+        this.defaultRoute = parallelFraudCheck ? SagaRoute.PARALLEL_FRAUD_CHECK : SagaRoute.FULL;
+        for (SagaRoute route : SagaRoute.values()) {
+            planned.put(route, Counter.builder("saga.routes")
+                    .description("Orders started on each saga route")
+                    .tag("route", route.name())
+                    .register(meterRegistry));
+        }
+    }
+
+    public SagaRoute plan(OrderRequest orderRequest) {
+        SagaRoute route = choose(orderRequest);
+        planned.get(route).increment();
+        return route;
+    }
+
+    private SagaRoute choose(OrderRequest orderRequest) {
+        BigDecimal amount = orderRequest.getTotalAmount();
+        if (amount == null || amount.compareTo(fullRouteMinAmount) >= 0 || hasFullRouteCategory(orderRequest)) {
+            return SagaRoute.FULL;
+        }
+        if (amount.compareTo(skipFraudCheckMaxAmount) <= 0 && isTrusted(orderRequest.getCustomerId())) {
+            return SagaRoute.NO_FRAUD_CHECK;
+        }
+        return defaultRoute;
+    }
+
+    private boolean hasFullRouteCategory(OrderRequest orderRequest) {
+        if (fullRouteCategories.isEmpty() || orderRequest.getItems() == null) {
+            return false;
+        }
+        return orderRequest.getItems().stream()
+                .map(OrderRequest.OrderItemRequest::getCategory)
+                .filter(Objects::nonNull)
+                .anyMatch(category -> fullRouteCategories.contains(category.toLowerCase(Locale.ROOT)));
+    }
+
+    private boolean isTrusted(String customerId) {
+        if (customerId == null) {
+            return false;
+        }
+        OrderStats history = statusCounters.counts(customerId);
+        long completed = history.getCounts().get(OrderStatus.COMPLETED);
+        long compensated = history.getCounts().get(OrderStatus.COMPENSATED);
+        return completed >= trustedMinCompleted
+                && compensated <= trustedMaxCompensatedRatio * (completed + compensated);
+    }
+}
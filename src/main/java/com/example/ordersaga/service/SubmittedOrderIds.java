@@ -0,0 +1,120 @@
+package com.example.ordersaga.service;
+
+import com.example.ordersaga.repository.OrderRepository;
+import com.example.ordersaga.repository.OrderStatusRow;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.google.common.hash.BloomFilter;
+import com.google.common.hash.Funnels;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.stream.Stream;
+
+/**
+ * Order ids already submitted, so that a client retrying {@code POST /api/orders} with the same
+ * {@code orderId} is answered without starting a second workflow.
+ * <p>
+ * Ids accepted in the last {@code order.idempotency.recent-ttl} are answered from a small cache. Older
+ * ones are looked up in the database, but only when a Bloom filter of every id seen cannot rule them
+ * out, so a new id, the common case, costs no database read. The filter is loaded from the orders
+ * table at startup and never forgets; its false positives only cost one indexed lookup.
+ */
+@Component
+public class SubmittedOrderIds {
+
+    private static final Logger log = LoggerFactory.getLogger(SubmittedOrderIds.class);
+
+    private final OrderRepository orderRepository;
+    private final TransactionTemplate readOnlyTransaction;
+    private final Cache<String, Boolean> recent;
+    private final BloomFilter<CharSequence> seen;
+    private final Counter recentDuplicates;
+    private final Counter storedDuplicates;
+    private final Counter startedDuplicates;
+    private final Counter filterFalsePositives;
+
+    public SubmittedOrderIds(OrderRepository orderRepository, PlatformTransactionManager transactionManager,
+                             MeterRegistry meterRegistry,
+                             @Value("${order.idempotency.recent-ttl:10m}") Duration recentTtl,
+                             @Value("${order.idempotency.recent-max-size:100000}") long recentMaxSize,
+                             @Value("${order.idempotency.expected-orders:1000000}") long expectedOrders,
+                             @Value("${order.idempotency.false-positive-rate:0.01}") double falsePositiveRate) {
+        this.orderRepository = orderRepository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.recent = Caffeine.newBuilder()
+                .maximumSize(recentMaxSize)
+                .expireAfterWrite(recentTtl)
+                .build();
+        this.seen = BloomFilter.create(Funnels.stringFunnel(StandardCharsets.UTF_8), expectedOrders, falsePositiveRate);
+        this.recentDuplicates = duplicates(meterRegistry, "recent");
+        this.storedDuplicates = duplicates(meterRegistry, "database");
+        this.startedDuplicates = duplicates(meterRegistry, "temporal");
+        this.filterFalsePositives = Counter.builder("orders.submission.filter.false.positives")
+                .description("Order ids the Bloom filter could not rule out that were not in the database")
+                .register(meterRegistry);
+    }
+
+    private static Counter duplicates(MeterRegistry meterRegistry, String source) {
+        return Counter.builder("orders.submission.duplicates")
+                .description("Order submissions answered as duplicates, by where the earlier submission was found")
+                .tag("source", source)
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void load() {
+        long started = System.nanoTime();
+        long[] count = new long[1];
+        readOnlyTransaction.executeWithoutResult(transaction -> {
+            try (Stream<OrderStatusRow> rows = orderRepository.streamStatusRows()) {
+                rows.forEach(row -> {
+                    seen.put(row.getOrderId());
+                    count[0]++;
+                });
+            }
+        });
+        log.info("Loaded {} order ids into the duplicate filter in {} ms", count[0],
+                (System.nanoTime() - started) / 1_000_000);
+    }
+
+    /** Whether {@code orderId} has been submitted before. */
+    public boolean isDuplicate(String orderId) {
+        if (recent.getIfPresent(orderId) != null) {
+            recentDuplicates.increment();
+            return true;
+        }
+        if (!seen.mightContain(orderId)) {
+            return false;
+        }
+        if (orderRepository.existsByOrderId(orderId)) {
+            recent.put(orderId, Boolean.TRUE);
+            storedDuplicates.increment();
+            return true;
+        }
+        filterFalsePositives.increment();
+        return false;
+    }
+
+    /** Call once the workflow for {@code orderId} has started. */
+    public void accepted(String orderId) {
+        recent.put(orderId, Boolean.TRUE);
+        seen.put(orderId);
+    }
+
+    /** Call when Temporal refused to start {@code orderId}'s workflow because it already exists. */
+    public void alreadyStarted(String orderId) {
+        startedDuplicates.increment();
+        accepted(orderId);
+    }
+}
@@ -0,0 +1,152 @@
+package com.example.ordersaga.worker;
+
+import com.example.ordersaga.config.TemporalWorkerProperties;
+import com.sun.management.OperatingSystemMXBean;
+import io.temporal.activity.ActivityExecutionContext;
+import io.temporal.activity.ActivityInfo;
+import io.temporal.common.interceptors.ActivityInboundCallsInterceptor;
+import io.temporal.common.interceptors.ActivityInboundCallsInterceptorBase;
+import io.temporal.common.interceptors.WorkerInterceptorBase;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Adjusts how many activities may execute at once from observed slot utilization, schedule-to-start
+ * latency and host CPU load.
+ * <p>
+ * The SDK sizes activity slots once, when the worker is created, so the worker is given
+ * {@code maxConcurrency} slots and this interceptor gates execution with a resizable semaphore.
+ * Each interval the limit grows when activities are queueing, shrinks slowly when they are not,
+ * and backs off sharply when the CPU is saturated. Local activities are not gated.
+ */
+public class AdaptiveConcurrencyController extends WorkerInterceptorBase implements AutoCloseable {
+    
+    private static final Logger log = LoggerFactory.getLogger(AdaptiveConcurrencyController.class);
+    
+    private final TemporalWorkerProperties.Adaptive settings;
+    private final ResizableSemaphore permits;
+    private final AtomicInteger executing = new AtomicInteger();
+    private final AtomicInteger peakExecuting = new AtomicInteger();
+    private final LongAdder scheduleToStartMillis = new LongAdder();
+    private final LongAdder started = new LongAdder();
+    private final OperatingSystemMXBean os = ManagementFactory.getPlatformMXBean(OperatingSystemMXBean.class);
+    private final ScheduledExecutorService scheduler =
+            Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("adaptive-concurrency-"));
+    private volatile int limit;
+    
+    public AdaptiveConcurrencyController(TemporalWorkerProperties.Adaptive settings) {
+        if (settings.getMinConcurrency() < 1 || settings.getMinConcurrency() > settings.getMaxConcurrency()) {
+            throw new IllegalArgumentException("Adaptive concurrency requires 1 <= min-concurrency <= max-concurrency");
+        }
+        this.settings = settings;
+        this.limit = settings.getMaxConcurrency();
+        this.permits = new ResizableSemaphore(limit);
+    }
+    
+    public void start() {
+        long intervalMillis = settings.getInterval().toMillis();
+        scheduler.scheduleAtFixedRate(this::adjust, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+        log.info("Adaptive activity concurrency enabled: {}..{}, starting at {}",
+                settings.getMinConcurrency(), settings.getMaxConcurrency(), limit);
+    }
+    
+    public int getLimit() {
+        return limit;
+    }
+    
+    public int getExecuting() {
+        return executing.get();
+    }
+    
+    @Override
+    public ActivityInboundCallsInterceptor interceptActivity(ActivityInboundCallsInterceptor next) {
+        return new ActivityInboundCallsInterceptorBase(next) {
+            private ActivityInfo info;
+            
+            @Override
+            public void init(ActivityExecutionContext context) {
+                info = context.getInfo();
+                super.init(context);
+            }
+            
+            @Override
+            public ActivityOutput execute(ActivityInput input) {
+                if (info.isLocal()) {
+                    return super.execute(input);
+                }
+                
+                permits.acquireUninterruptibly();
+                // Measured after the gate, so time spent waiting here counts as queueing too
+                scheduleToStartMillis.add(System.currentTimeMillis() - info.getCurrentAttemptScheduledTimestamp());
+                started.increment();
+                peakExecuting.accumulateAndGet(executing.incrementAndGet(), Math::max);
+                try {
+                    return super.execute(input);
+                } finally {
+                    executing.decrementAndGet();
+                    permits.release();
+                }
+            }
+        };
+    }
+    
+    void adjust() {
+        try {
+            int current = limit;
+            double utilization = peakExecuting.getAndSet(executing.get()) / (double) current;
+            long count = started.sumThenReset();
+            long latencyMillis = count == 0 ? 0 : scheduleToStartMillis.sumThenReset() / count;
+            double cpuLoad = os.getCpuLoad();
+            
+            int next = current;
+            if (cpuLoad >= settings.getMaxCpuLoad()) {
+                next = current * 3 / 4;
+            } else if (utilization >= settings.getTargetUtilization()
+                    || latencyMillis > settings.getTargetScheduleToStartLatency().toMillis()) {
+                next = current + Math.max(1, current / 4);
+            } else if (utilization < settings.getTargetUtilization() / 2) {
+                next = current - Math.max(1, current / 10);
+            }
+            next = Math.max(settings.getMinConcurrency(), Math.min(settings.getMaxConcurrency(), next));
+            
+            if (next != current) {
+                log.debug("Activity concurrency {} -> {} (utilization={}, scheduleToStart={}ms, cpu={})",
+                        current, next, String.format("%.2f", utilization), latencyMillis, String.format("%.2f", cpuLoad));
+                permits.resize(current, next);
+                limit = next;
+            }
+        } catch (RuntimeException e) {
+            log.warn("Failed to adjust activity concurrency", e);
+        }
+    }
+    
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+    }
+    
+    private static final class ResizableSemaphore extends Semaphore {
+        
+        ResizableSemaphore(int permits) {
+            super(permits);
+        }
+        
+        void resize(int from, int to) {
+            if (to > from) {
+                release(to - from);
+            } else {
+                // May drive available permits negative; running activities drain the excess as they finish
+                reducePermits(from - to);
+            }
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.ordersaga.worker;
+
+import io.temporal.activity.ActivityExecutionContext;
+import io.temporal.activity.ManualActivityCompletionClient;
+import io.temporal.common.interceptors.ActivityInboundCallsInterceptor;
+import io.temporal.common.interceptors.ActivityInboundCallsInterceptorBase;
+import io.temporal.common.interceptors.WorkerInterceptorBase;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Hands each activity off to a virtual thread and completes it from there, so the worker's activity
+ * thread is free again as soon as the activity has been dispatched. A semaphore bounds the number of
+ * activities in flight; when it is exhausted the worker thread waits, which stops further polling.
+ * Local activities, and activities that complete themselves from a callback, run inline.
+ */
+public class VirtualThreadActivityInterceptor extends WorkerInterceptorBase {
+    
+    private final Executor executor;
+    private final Semaphore permits;
+    private final Set<String> inlineActivityTypes;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    
+    public VirtualThreadActivityInterceptor(Executor executor, int maxConcurrentActivities,
+                                            Set<String> inlineActivityTypes) {
+        this.executor = executor;
+        this.permits = new Semaphore(maxConcurrentActivities);
+        this.inlineActivityTypes = Set.copyOf(inlineActivityTypes);
+    }
+    
+    public static VirtualThreadActivityInterceptor create(int maxConcurrentActivities, Set<String> inlineActivityTypes) {
+        if (Runtime.version().feature() < 21) {
+            throw new IllegalStateException("Virtual-thread activity execution requires Java 21 (build with -Pjava21)");
+        }
+        return new VirtualThreadActivityInterceptor(new VirtualThreadTaskExecutor("activity-"), maxConcurrentActivities,
+                inlineActivityTypes);
+    }
+    
+    public int getInFlight() {
+        return inFlight.get();
+    }
+    
+    @Override
+    public ActivityInboundCallsInterceptor interceptActivity(ActivityInboundCallsInterceptor next) {
+        return new ActivityInboundCallsInterceptorBase(next) {
+            private ActivityExecutionContext context;
+            
+            @Override
+            public void init(ActivityExecutionContext context) {
+                this.context = context;
+                super.init(context);
+            }
+            
+            @Override
+            public ActivityOutput execute(ActivityInput input) {
+                if (context.getInfo().isLocal() || inlineActivityTypes.contains(context.getInfo().getActivityType())) {
+                    return super.execute(input);
+                }
+                
+                permits.acquireUninterruptibly();
+                inFlight.incrementAndGet();
+                ManualActivityCompletionClient completion = context.useLocalManualCompletion();
+                try {
+                    executor.execute(() -> {
+                        try {
+                            completion.complete(super.execute(input).getResult());
+                        } catch (Throwable e) {
+                            completion.fail(e);
+                        } finally {
+                            inFlight.decrementAndGet();
+                            permits.release();
+                        }
+                    });
+                } catch (RuntimeException e) {
+                    inFlight.decrementAndGet();
+                    permits.release();
+                    completion.fail(e);
+                }
+                return new ActivityOutput(null);
+            }
+        };
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.ordersaga.workflow;
+
+import io.temporal.workflow.Async;
+import io.temporal.workflow.Functions;
+import io.temporal.workflow.Promise;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Saga compensations that declare which other compensations must finish before them. Compensations
+ * with no such dependency between them run concurrently. For use from workflow code only.
+ */
+final class CompensationGraph {
+
+    private final Map<String, Compensation> compensations = new LinkedHashMap<>();
+
+    /**
+     * Registers {@code compensation} to run once the compensations named in {@code after} have
+     * succeeded. Names that were never registered are skipped: their step did not complete, so
+     * there is nothing of it to undo.
+     */
+    void add(String name, Functions.Proc compensation, String... after) {
+        if (compensations.putIfAbsent(name, new Compensation(compensation, after)) != null) {
+            throw new IllegalArgumentException("Compensation already registered: " + name);
+        }
+    }
+
+    /**
+     * Runs every compensation as soon as its dependencies have succeeded and waits for all of them.
+     * A compensation whose dependency failed does not run. The first failure is rethrown.
+     */
+    void compensate() {
+        Map<String, Promise<Void>> scheduled = new HashMap<>();
+        List<Promise<Void>> results = new ArrayList<>();
+        for (String name : compensations.keySet()) {
+            results.add(schedule(name, scheduled, new HashSet<>()));
+        }
+        RuntimeException failure = null;
+        for (Promise<Void> result : results) {
+            RuntimeException e = result.getFailure();
+            if (failure == null && e != null) {
+                failure = e;
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /** Runs the compensations one at a time, last registered first, stopping at the first failure. */
+    void compensateInReverse() {
+        List<Compensation> inReverse = new ArrayList<>(compensations.values());
+        for (int i = inReverse.size() - 1; i >= 0; i--) {
+            inReverse.get(i).compensation.apply();
+        }
+    }
+
+    private Promise<Void> schedule(String name, Map<String, Promise<Void>> scheduled, Set<String> visiting) {
+        Promise<Void> result = scheduled.get(name);
+        if (result != null) {
+            return result;
+        }
+        if (!visiting.add(name)) {
+            throw new IllegalStateException("Compensations depend on each other in a cycle through " + name);
+        }
+        Compensation compensation = compensations.get(name);
+        List<Promise<Void>> dependencies = new ArrayList<>();
+        for (String dependency : compensation.after) {
+            if (compensations.containsKey(dependency)) {
+                dependencies.add(schedule(dependency, scheduled, visiting));
+            }
+        }
+        result = dependencies.isEmpty()
+                ? Async.procedure(compensation.compensation)
+                : Promise.allOf(dependencies).thenCompose(ignored -> Async.procedure(compensation.compensation));
+        scheduled.put(name, result);
+        return result;
+    }
+
+    private static final class Compensation {
+        private final Functions.Proc compensation;
+        private final String[] after;
+
+        Compensation(Functions.Proc compensation, String[] after) {
+            this.compensation = compensation;
+            this.after = after;
+        }
+    }
+}
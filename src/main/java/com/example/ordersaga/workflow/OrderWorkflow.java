@@ -1,6 +1,8 @@
 package com.example.ordersaga.workflow;
 
+import com.example.ordersaga.model.OrderProgress;
 import com.example.ordersaga.model.OrderRequest;
+import io.temporal.workflow.QueryMethod;
 import io.temporal.workflow.WorkflowInterface;
 import io.temporal.workflow.WorkflowMethod;
 
@@ -9,4 +11,12 @@ public interface OrderWorkflow {
     
     @WorkflowMethod
     String processOrder(OrderRequest orderRequest);
+    
+    /** The activity the saga is waiting on, or null between steps. */
+    @QueryMethod
+    String getCurrentStep();
+    
+    /** Status, step results and per-step timings, from workflow state. */
+    @QueryMethod
+    OrderProgress getProgress();
 }
@@ -1,20 +1,35 @@
 package com.example.ordersaga.workflow;
 
 import com.example.ordersaga.activities.OrderActivities;
+import com.example.ordersaga.activities.OrderStoreActivities;
 import com.example.ordersaga.model.*;
+import io.temporal.activity.ActivityCancellationType;
 import io.temporal.activity.ActivityOptions;
+import io.temporal.activity.LocalActivityOptions;
 import io.temporal.common.RetryOptions;
 import io.temporal.failure.ActivityFailure;
-import io.temporal.workflow.Saga;
+import io.temporal.failure.ApplicationFailure;
+import io.temporal.workflow.Async;
+import io.temporal.workflow.CancellationScope;
+import io.temporal.workflow.CompletablePromise;
+import io.temporal.workflow.Promise;
 import io.temporal.workflow.Workflow;
 import org.slf4j.Logger;
 
 import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
 
 public class OrderWorkflowImpl implements OrderWorkflow {
     
     private static final Logger logger = Workflow.getLogger(OrderWorkflowImpl.class);
     
+    private static final String COMPENSATE_PAYMENT = "compensatePayment";
+    private static final String COMPENSATE_INVENTORY = "compensateInventory";
+    private static final String COMPENSATE_SHIPPING = "compensateShipping";
+    
     private final ActivityOptions activityOptions = ActivityOptions.newBuilder()
             .setStartToCloseTimeout(Duration.ofMinutes(5))
             .setRetryOptions(RetryOptions.newBuilder()
@@ -25,88 +40,214 @@ public class OrderWorkflowImpl implements OrderWorkflow {
                     .build())
             .build();
     
+    private final LocalActivityOptions localActivityOptions = LocalActivityOptions.newBuilder()
+            .setStartToCloseTimeout(Duration.ofSeconds(30))
+            .setRetryOptions(activityOptions.getRetryOptions())
+            .build();
+    
+    // Undoing a step must not give up as early as a forward step: retry quickly at first, for much longer
+    private final RetryOptions compensationRetryOptions = RetryOptions.newBuilder()
+            .setMaximumAttempts(20)
+            .setInitialInterval(Duration.ofMillis(200))
+            .setMaximumInterval(Duration.ofSeconds(30))
+            .setBackoffCoefficient(2.0)
+            .build();
+    
+    private final ActivityOptions compensationOptions = ActivityOptions.newBuilder()
+            .setStartToCloseTimeout(Duration.ofMinutes(1))
+            .setRetryOptions(compensationRetryOptions)
+            .build();
+    
+    private final LocalActivityOptions localCompensationOptions = LocalActivityOptions.newBuilder()
+            .setStartToCloseTimeout(Duration.ofSeconds(30))
+            .setRetryOptions(compensationRetryOptions)
+            .build();
+    
+    // Gateway calls are answered in seconds; a lost callback is retried long before the 5-minute default
+    private final ActivityOptions gatewayOptions = ActivityOptions.newBuilder(activityOptions)
+            .setStartToCloseTimeout(Duration.ofSeconds(30))
+            .build();
+    
+    // Cancelling the parallel fraud check waits until the activity has actually finished
+    private final ActivityOptions fraudCheckOptions = ActivityOptions.newBuilder(activityOptions)
+            .setCancellationType(ActivityCancellationType.WAIT_CANCELLATION_COMPLETED)
+            .build();
+    
     private final OrderActivities activities = Workflow.newActivityStub(
             OrderActivities.class, 
-            activityOptions
+            activityOptions,
+            Map.of("AssessFraudRisk", fraudCheckOptions,
+                    "AuthorizePayment", gatewayOptions,
+                    "ArrangeShipping", gatewayOptions,
+                    "CompensatePayment", compensationOptions,
+                    "CompensateInventory", compensationOptions,
+                    "CompensateShipping", compensationOptions)
+    );
+    
+    private final OrderStoreActivities remoteStore = Workflow.newActivityStub(
+            OrderStoreActivities.class,
+            activityOptions,
+            Map.of("MarkOrderAsFailed", compensationOptions)
     );
     
+    private final OrderStoreActivities localStore = Workflow.newLocalActivityStub(
+            OrderStoreActivities.class,
+            localActivityOptions,
+            Map.of("MarkOrderAsFailed", localCompensationOptions)
+    );
+    
+    private final SagaSettings defaultSettings;
+    private SagaSettings settings;
+    private boolean localStoreActivities;
+    private OrderProgress progress;
+    
+    public OrderWorkflowImpl() {
+        this(new SagaSettings());
+    }
+    
+    public OrderWorkflowImpl(SagaSettings settings) {
+        this.defaultSettings = settings;
+    }
+    
     @Override
     public String processOrder(OrderRequest orderRequest) {
         logger.info("Starting order workflow for order: {}", orderRequest.getOrderId());
+        progress = new OrderProgress(orderRequest.getOrderId(), orderRequest.getCustomerId());
+        
+        // Record the settings in history so a config change cannot break replay of running orders;
+        // orders started before the settings existed keep running every step remotely, in sequence
+        if (Workflow.getVersion("saga-settings", Workflow.DEFAULT_VERSION, 1) == Workflow.DEFAULT_VERSION) {
+            settings = new SagaSettings();
+        } else {
+            settings = Workflow.sideEffect(SagaSettings.class, () -> defaultSettings);
+        }
         
-        // Initialize Saga for compensation handling
-        Saga saga = new Saga(new Saga.Options.Builder().setParallelCompensation(false).build());
+        // Orders started before store steps could run locally schedule every one of them remotely
+        localStoreActivities = Workflow.getVersion("local-store-activities", Workflow.DEFAULT_VERSION, 1)
+                != Workflow.DEFAULT_VERSION;
+        
+        // Orders started before routing have no route and keep the worker-wide fraud check setting
+        SagaRoute route = orderRequest.getRoute() != null ? orderRequest.getRoute()
+                : settings.isParallelFraudCheck() ? SagaRoute.PARALLEL_FRAUD_CHECK : SagaRoute.FULL;
+        // Orders started before the parallel fraud check run it after inventory
+        if (route == SagaRoute.PARALLEL_FRAUD_CHECK
+                && Workflow.getVersion("parallel-fraud-check", Workflow.DEFAULT_VERSION, 1) == Workflow.DEFAULT_VERSION) {
+            route = SagaRoute.FULL;
+        }
+        progress.setRoute(route);
+        
+        // Shipping is undone first, then payment and inventory together, and the order is marked failed last
+        CompensationGraph compensations = new CompensationGraph();
+        CancellationScope fraudCheckScope = null;
+        Promise<FraudCheckResult> fraudCheck = null;
         
         try {
             // Step 1: Create Order
             logger.info("Step 1: Creating order {}", orderRequest.getOrderId());
-            activities.createOrder(orderRequest);
-            saga.addCompensation(() -> activities.markOrderAsFailed(
-                    orderRequest.getOrderId(), 
-                    "Order creation compensation"
-            ));
+            run(OrderStoreActivities.CREATE_ORDER,
+                    () -> store(OrderStoreActivities.CREATE_ORDER).createOrder(orderRequest));
+            progress.setStatus(OrderStatus.PENDING);
+            compensations.add(OrderStoreActivities.MARK_ORDER_AS_FAILED,
+                    () -> markOrderAsFailed(orderRequest.getOrderId(), "Order creation compensation"),
+                    COMPENSATE_PAYMENT, COMPENSATE_INVENTORY, COMPENSATE_SHIPPING);
+            
+            // The fraud check only needs the request, so it can overlap payment and inventory
+            if (route == SagaRoute.PARALLEL_FRAUD_CHECK) {
+                logger.info("Step 4: Starting fraud check in parallel for order {}", orderRequest.getOrderId());
+                CompletablePromise<FraudCheckResult> started = Workflow.newPromise();
+                fraudCheckScope = Workflow.newCancellationScope(() -> started.completeFrom(callAsync("assessFraudRisk",
+                        () -> Async.function(activities::assessFraudRisk, orderRequest))));
+                fraudCheckScope.run();
+                fraudCheck = started;
+            }
             
             // Step 2: Authorize Payment
             logger.info("Step 2: Authorizing payment for order {}", orderRequest.getOrderId());
-            PaymentResult paymentResult = activities.authorizePayment(orderRequest);
+            PaymentResult paymentResult = call("authorizePayment", () -> activities.authorizePayment(orderRequest));
             
             if (!paymentResult.isSuccess()) {
                 throw new RuntimeException("Payment authorization failed: " + paymentResult.getMessage());
             }
+            progress.setStatus(OrderStatus.PAYMENT_AUTHORIZED);
+            progress.setPaymentId(paymentResult.getPaymentId());
             
-            saga.addCompensation(() -> activities.compensatePayment(
-                    orderRequest.getOrderId(), 
-                    paymentResult.getPaymentId()
-            ));
+            compensations.add(COMPENSATE_PAYMENT,
+                    () -> compensate(COMPENSATE_PAYMENT, () -> activities.compensatePayment(
+                            orderRequest.getOrderId(), 
+                            paymentResult.getPaymentId()
+                    )),
+                    COMPENSATE_SHIPPING);
+            
+            // Don't reserve inventory for an order the fraud check has already rejected
+            if (fraudCheck != null && fraudCheck.isCompleted()) {
+                requireFraudCheckPassed(fraudCheck.get());
+            }
             
             // Step 3: Reserve Inventory
             logger.info("Step 3: Reserving inventory for order {}", orderRequest.getOrderId());
-            InventoryResult inventoryResult = activities.reserveInventory(orderRequest);
+            InventoryResult inventoryResult = call("reserveInventory", () -> activities.reserveInventory(orderRequest));
             
             if (!inventoryResult.isSuccess()) {
                 throw new RuntimeException("Inventory reservation failed: " + inventoryResult.getMessage());
             }
+            progress.setStatus(OrderStatus.INVENTORY_RESERVED);
+            progress.setReservationId(inventoryResult.getReservationId());
             
-            saga.addCompensation(() -> activities.compensateInventory(
-                    orderRequest.getOrderId(), 
-                    inventoryResult.getReservationId()
-            ));
+            compensations.add(COMPENSATE_INVENTORY,
+                    () -> compensate(COMPENSATE_INVENTORY, () -> activities.compensateInventory(
+                            orderRequest.getOrderId(), 
+                            inventoryResult.getReservationId()
+                    )),
+                    COMPENSATE_SHIPPING);
             
             // Step 4: Perform Fraud Check
-            logger.info("Step 4: Performing fraud check for order {}", orderRequest.getOrderId());
-            FraudCheckResult fraudCheckResult = activities.performFraudCheck(orderRequest);
-            
-            if (!fraudCheckResult.isPassed()) {
-                throw new RuntimeException("Fraud check failed: " + fraudCheckResult.getMessage());
+            if (fraudCheck != null) {
+                logger.info("Step 4: Waiting for fraud check of order {}", orderRequest.getOrderId());
+                requireFraudCheckPassed(fraudCheck.get());
+                updateOrderStatus(orderRequest.getOrderId(), OrderStatus.FRAUD_CHECK_PASSED);
+            } else if (route == SagaRoute.FULL) {
+                logger.info("Step 4: Performing fraud check for order {}", orderRequest.getOrderId());
+                requireFraudCheckPassed(call("performFraudCheck", () -> activities.performFraudCheck(orderRequest)));
+                progress.setStatus(OrderStatus.FRAUD_CHECK_PASSED);
+            } else {
+                logger.info("Step 4: Skipping fraud check for low-risk order {}", orderRequest.getOrderId());
             }
             
             // Step 5: Confirm Order
             logger.info("Step 5: Confirming order {}", orderRequest.getOrderId());
-            activities.confirmOrder(orderRequest.getOrderId());
+            run(OrderStoreActivities.CONFIRM_ORDER,
+                    () -> store(OrderStoreActivities.CONFIRM_ORDER).confirmOrder(orderRequest.getOrderId()));
+            progress.setStatus(OrderStatus.CONFIRMED);
             
             // Step 6: Arrange Shipping
             logger.info("Step 6: Arranging shipping for order {}", orderRequest.getOrderId());
-            ShippingResult shippingResult = activities.arrangeShipping(orderRequest);
+            ShippingResult shippingResult = call("arrangeShipping", () -> activities.arrangeShipping(orderRequest));
             
             if (!shippingResult.isSuccess()) {
                 throw new RuntimeException("Shipping arrangement failed: " + shippingResult.getMessage());
             }
+            progress.setStatus(OrderStatus.SHIPPING_ARRANGED);
+            progress.setShippingId(shippingResult.getShippingId());
+            progress.setTrackingNumber(shippingResult.getTrackingNumber());
             
-            saga.addCompensation(() -> activities.compensateShipping(
-                    orderRequest.getOrderId(), 
-                    shippingResult.getShippingId()
-            ));
+            compensations.add(COMPENSATE_SHIPPING,
+                    () -> compensate(COMPENSATE_SHIPPING, () -> activities.compensateShipping(
+                            orderRequest.getOrderId(), 
+                            shippingResult.getShippingId()
+                    )));
             
             // Step 7: Update Delivery Tracking
             logger.info("Step 7: Updating delivery tracking for order {}", orderRequest.getOrderId());
-            activities.updateDeliveryTracking(
+            run("updateDeliveryTracking", () -> activities.updateDeliveryTracking(
                     orderRequest.getOrderId(), 
                     shippingResult.getTrackingNumber()
-            );
+            ));
+            progress.setStatus(OrderStatus.IN_DELIVERY);
             
             // Step 8: Complete Order
             logger.info("Step 8: Completing order {}", orderRequest.getOrderId());
-            activities.completeOrder(orderRequest.getOrderId());
+            run("completeOrder", () -> activities.completeOrder(orderRequest.getOrderId()));
+            progress.setStatus(OrderStatus.COMPLETED);
             
             logger.info("Order workflow completed successfully for order: {}", orderRequest.getOrderId());
             return "Order processed successfully: " + orderRequest.getOrderId();
@@ -115,17 +256,130 @@ public class OrderWorkflowImpl implements OrderWorkflow {
             logger.error("Order workflow failed for order: {}. Error: {}", 
                     orderRequest.getOrderId(), e.getMessage());
             
+            // A fraud check still running would complete in the middle of the compensation and send the
+            // workflow task that runs the local compensations back to be run again
+            if (fraudCheck != null && !fraudCheck.isCompleted()
+                    && Workflow.getVersion("cancel-fraud-check", Workflow.DEFAULT_VERSION, 1) != Workflow.DEFAULT_VERSION) {
+                if (settings.isCancelFraudCheck()) {
+                    fraudCheckScope.cancel();
+                }
+                try {
+                    fraudCheck.get();
+                } catch (RuntimeException cancelled) {
+                    // Its outcome no longer matters
+                }
+            }
+            
             // Trigger saga compensation
             logger.info("Starting compensation for order: {}", orderRequest.getOrderId());
-            saga.compensate();
+            // Orders that started compensating before this change replay the one-at-a-time order
+            if (Workflow.getVersion("parallel-compensation", Workflow.DEFAULT_VERSION, 1) == Workflow.DEFAULT_VERSION) {
+                compensations.compensateInReverse();
+            } else {
+                compensations.compensate();
+            }
             
             // Mark order as failed
-            activities.markOrderAsFailed(orderRequest.getOrderId(), e.getMessage());
-            activities.updateOrderStatus(orderRequest.getOrderId(), OrderStatus.COMPENSATED);
+            markOrderAsFailed(orderRequest.getOrderId(), e.getMessage());
+            updateOrderStatus(orderRequest.getOrderId(), OrderStatus.COMPENSATED);
             
             logger.info("Compensation completed for order: {}", orderRequest.getOrderId());
             
-            throw new RuntimeException("Order processing failed: " + e.getMessage(), e);
+            // An ApplicationFailure fails the workflow; any other exception would fail (and endlessly retry)
+            // the workflow task instead
+            throw ApplicationFailure.newNonRetryableFailureWithCause(
+                    "Order processing failed: " + e.getMessage(), "OrderProcessingFailed", e);
+        }
+    }
+    
+    @Override
+    public String getCurrentStep() {
+        return progress != null ? progress.getCurrentStep() : null;
+    }
+    
+    @Override
+    public OrderProgress getProgress() {
+        return progress;
+    }
+    
+    private void markOrderAsFailed(String orderId, String reason) {
+        run(OrderStoreActivities.MARK_ORDER_AS_FAILED,
+                () -> store(OrderStoreActivities.MARK_ORDER_AS_FAILED).markOrderAsFailed(orderId, reason));
+        progress.setStatus(OrderStatus.FAILED);
+        progress.setFailureReason(reason);
+    }
+    
+    private void updateOrderStatus(String orderId, OrderStatus status) {
+        run(OrderStoreActivities.UPDATE_ORDER_STATUS,
+                () -> store(OrderStoreActivities.UPDATE_ORDER_STATUS).updateOrderStatus(orderId, status));
+        progress.setStatus(status);
+    }
+    
+    private void compensate(String step, Runnable compensation) {
+        run(step, compensation);
+        progress.setStatus(OrderStatus.COMPENSATING);
+    }
+    
+    private void run(String step, Runnable activity) {
+        call(step, () -> {
+            activity.run();
+            return null;
+        });
+    }
+    
+    /** Runs one saga step, recording it in {@link #progress} for the queries. */
+    private <T> T call(String step, Supplier<T> activity) {
+        OrderProgress.StepTiming timing = startStep(step);
+        try {
+            T result = activity.get();
+            finishStep(timing, true);
+            return result;
+        } catch (RuntimeException e) {
+            finishStep(timing, false);
+            throw e;
+        }
+    }
+    
+    private <T> Promise<T> callAsync(String step, Supplier<Promise<T>> activity) {
+        OrderProgress.StepTiming timing = startStep(step);
+        return activity.get().handle((result, failure) -> {
+            finishStep(timing, failure == null);
+            if (failure != null) {
+                throw failure;
+            }
+            return result;
+        });
+    }
+    
+    private OrderProgress.StepTiming startStep(String step) {
+        OrderProgress.StepTiming timing =
+                new OrderProgress.StepTiming(step, Instant.ofEpochMilli(Workflow.currentTimeMillis()));
+        progress.getSteps().add(timing);
+        progress.setCurrentStep(step);
+        return timing;
+    }
+    
+    private void finishStep(OrderProgress.StepTiming timing, boolean succeeded) {
+        timing.setDurationMillis(Workflow.currentTimeMillis() - timing.getStartedAt().toEpochMilli());
+        timing.setSucceeded(succeeded);
+        // A step started in parallel may still be running
+        List<OrderProgress.StepTiming> steps = progress.getSteps();
+        String current = null;
+        for (int i = steps.size() - 1; i >= 0 && current == null; i--) {
+            if (!steps.get(i).isFinished()) {
+                current = steps.get(i).getStep();
+            }
+        }
+        progress.setCurrentStep(current);
+    }
+    
+    private OrderStoreActivities store(String activity) {
+        return localStoreActivities && settings.runsLocally(activity) ? localStore : remoteStore;
+    }
+    
+    private void requireFraudCheckPassed(FraudCheckResult fraudCheckResult) {
+        if (!fraudCheckResult.isPassed()) {
+            throw new RuntimeException("Fraud check failed: " + fraudCheckResult.getMessage());
         }
     }
 }
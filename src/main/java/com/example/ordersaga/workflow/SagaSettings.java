@@ -0,0 +1,79 @@
+package com.example.ordersaga.workflow;
+
+import java.util.HashSet;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Worker-level saga switches. The workflow records them as a side effect when it starts, so a
+ * running order keeps the settings it started with across redeploys.
+ */
+public class SagaSettings {
+    private boolean parallelFraudCheck;
+    private boolean cancelFraudCheck = true;
+    private Set<String> localActivities = new HashSet<>();
+    
+    public SagaSettings() {
+    }
+    
+    public SagaSettings(boolean parallelFraudCheck, boolean cancelFraudCheck, Set<String> localActivities) {
+        this.parallelFraudCheck = parallelFraudCheck;
+        this.cancelFraudCheck = cancelFraudCheck;
+        this.localActivities = new HashSet<>(localActivities);
+    }
+    
+    public boolean runsLocally(String activity) {
+        return localActivities.contains(activity);
+    }
+
+    public boolean isParallelFraudCheck() {
+        return parallelFraudCheck;
+    }
+
+    public void setParallelFraudCheck(boolean parallelFraudCheck) {
+        this.parallelFraudCheck = parallelFraudCheck;
+    }
+
+    /**
+     * Whether a parallel fraud check still running when the saga fails is cancelled before compensating,
+     * rather than only waited for.
+     */
+    public boolean isCancelFraudCheck() {
+        return cancelFraudCheck;
+    }
+
+    public void setCancelFraudCheck(boolean cancelFraudCheck) {
+        this.cancelFraudCheck = cancelFraudCheck;
+    }
+
+    public Set<String> getLocalActivities() {
+        return localActivities;
+    }
+
+    public void setLocalActivities(Set<String> localActivities) {
+        this.localActivities = localActivities;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        SagaSettings that = (SagaSettings) o;
+        return parallelFraudCheck == that.parallelFraudCheck && cancelFraudCheck == that.cancelFraudCheck
+                && Objects.equals(localActivities, that.localActivities);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(parallelFraudCheck, cancelFraudCheck, localActivities);
+    }
+
+    @Override
+    public String toString() {
+        return "SagaSettings{" +
+                "parallelFraudCheck=" + parallelFraudCheck +
+                ", cancelFraudCheck=" + cancelFraudCheck +
+                ", localActivities=" + localActivities +
+                '}';
+    }
+}
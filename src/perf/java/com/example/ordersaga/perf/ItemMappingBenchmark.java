@@ -0,0 +1,71 @@
+package com.example.ordersaga.perf;
+
+import com.example.ordersaga.activities.OrderActivitiesImpl;
+import com.example.ordersaga.event.OrderEventBus;
+import com.example.ordersaga.id.SnowflakeIdGenerator;
+import com.example.ordersaga.model.OrderRequest;
+import com.example.ordersaga.model.OrderStatusEvent;
+import com.example.ordersaga.outbox.OrderOutbox;
+import com.example.ordersaga.repository.OrderRepository;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * {@code OrderActivitiesImpl.createOrder} without the database: request items mapped to entities and
+ * their totals computed. The repository hands the mapped order to a blackhole instead of saving it,
+ * and no outbox row is written.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ItemMappingBenchmark {
+    
+    @Param({"1", "10", "100"})
+    int items;
+    
+    private OrderActivitiesImpl activities;
+    private OrderRequest request;
+    
+    @Setup
+    public void setUp(Blackhole blackhole) {
+        OrderRepository repository = (OrderRepository) Proxy.newProxyInstance(
+                OrderRepository.class.getClassLoader(), new Class<?>[] {OrderRepository.class},
+                (proxy, method, args) -> {
+                    if (method.getName().equals("existsByOrderId")) {
+                        return false;
+                    }
+                    blackhole.consume(args[0]);
+                    return args[0];
+                });
+        OrderOutbox outbox = new OrderOutbox(null, null, null) {
+            @Override
+            public OrderStatusEvent write(Supplier<OrderStatusEvent> change) {
+                return change.get();
+            }
+        };
+        activities = new OrderActivitiesImpl(repository, null, outbox, null, new SnowflakeIdGenerator(0), null, null,
+                new OrderEventBus(1), false, 0);
+        
+        List<OrderRequest.OrderItemRequest> itemRequests = new ArrayList<>();
+        for (int i = 0; i < items; i++) {
+            itemRequests.add(new OrderRequest.OrderItemRequest("PROD-" + i, "Product " + i, 1 + i % 5,
+                    new BigDecimal("19.99").add(BigDecimal.valueOf(i))));
+        }
+        request = new OrderRequest("ORD-bench", "CUST-1", itemRequests, new BigDecimal("100.00"));
+    }
+    
+    @Benchmark
+    public void createOrder() {
+        activities.createOrder(request);
+    }
+}
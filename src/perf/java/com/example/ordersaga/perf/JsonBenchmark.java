@@ -0,0 +1,103 @@
+package com.example.ordersaga.perf;
+
+import com.example.ordersaga.model.Order;
+import com.example.ordersaga.model.OrderItem;
+import com.example.ordersaga.model.OrderRequest;
+import com.example.ordersaga.model.OrderStatus;
+import com.example.ordersaga.model.OrderView;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JSON (de)serialization of the request body and of the stored order, with an {@code ObjectMapper}
+ * configured the way Spring Boot configures the application's.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonBenchmark {
+    
+    @Param({"3", "30"})
+    int items;
+    
+    private ObjectMapper objectMapper;
+    private OrderRequest request;
+    private byte[] requestJson;
+    private Order order;
+    private byte[] orderJson;
+    
+    @Setup
+    public void setUp() throws IOException {
+        objectMapper = new ObjectMapper()
+                .findAndRegisterModules()
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        
+        List<OrderRequest.OrderItemRequest> itemRequests = new ArrayList<>();
+        order = new Order();
+        order.setId(42L);
+        order.setOrderId("ORD-1a2b3c4d");
+        order.setCustomerId("CUST-001");
+        order.setStatus(OrderStatus.COMPLETED);
+        order.setTotalAmount(new BigDecimal("1234.50"));
+        order.setPaymentId("PAY-1a2b3c4d");
+        order.setReservationId("RES-1a2b3c4d");
+        order.setShippingId("SHIP-1a2b3c4d");
+        order.setTrackingNumber("TRK1700000000000");
+        order.setCreatedAt(LocalDateTime.now());
+        order.setUpdatedAt(LocalDateTime.now());
+        order.setCompletedAt(LocalDateTime.now());
+        order.setVersion(9L);
+        for (int i = 0; i < items; i++) {
+            itemRequests.add(new OrderRequest.OrderItemRequest("PROD-" + i, "Product " + i, 2, new BigDecimal("19.99")));
+            
+            OrderItem item = new OrderItem();
+            item.setId((long) i);
+            item.setProductId("PROD-" + i);
+            item.setProductName("Product " + i);
+            item.setQuantity(2);
+            item.setUnitPrice(new BigDecimal("19.99"));
+            item.setTotalPrice(new BigDecimal("39.98"));
+            order.addItem(item);
+        }
+        request = new OrderRequest("ORD-1a2b3c4d", "CUST-001", itemRequests, new BigDecimal("1234.50"));
+        
+        requestJson = objectMapper.writeValueAsBytes(request);
+        orderJson = objectMapper.writeValueAsBytes(order);
+    }
+    
+    @Benchmark
+    public byte[] serializeOrderRequest() throws IOException {
+        return objectMapper.writeValueAsBytes(request);
+    }
+    
+    @Benchmark
+    public OrderRequest deserializeOrderRequest() throws IOException {
+        return objectMapper.readValue(requestJson, OrderRequest.class);
+    }
+    
+    @Benchmark
+    public byte[] serializeOrder() throws IOException {
+        return objectMapper.writeValueAsBytes(order);
+    }
+    
+    @Benchmark
+    public byte[] serializeOrderView() throws IOException {
+        return objectMapper.writeValueAsBytes(OrderView.of(order));
+    }
+    
+    @Benchmark
+    public Order deserializeOrder() throws IOException {
+        return objectMapper.readValue(orderJson, Order.class);
+    }
+}
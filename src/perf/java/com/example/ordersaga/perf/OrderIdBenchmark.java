@@ -0,0 +1,51 @@
+package com.example.ordersaga.perf;
+
+import com.example.ordersaga.id.SnowflakeIdGenerator;
+import com.example.ordersaga.id.UlidGenerator;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The {@code IdGenerator} implementations against the id expressions they replaced
+ * ({@code UUID.randomUUID()} prefixes and {@code currentTimeMillis} tracking numbers). Run with several
+ * threads ({@code -t}) to see contention on the shared {@code SecureRandom} and on each generator's
+ * state, and with {@code -prof gc} to compare allocation per id.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OrderIdBenchmark {
+    
+    private final SnowflakeIdGenerator snowflake = new SnowflakeIdGenerator(1);
+    private final UlidGenerator ulid = new UlidGenerator();
+    
+    @Benchmark
+    public String uuidOrderId() {
+        return "ORD-" + UUID.randomUUID().toString().substring(0, 8);
+    }
+    
+    @Benchmark
+    public String snowflakeOrderId() {
+        return snowflake.nextId("ORD-");
+    }
+    
+    @Benchmark
+    public String ulidOrderId() {
+        return ulid.nextId("ORD-");
+    }
+    
+    @Benchmark
+    public long snowflakeLong() {
+        return snowflake.nextLong();
+    }
+    
+    @Benchmark
+    public String currentTimeTrackingNumber() {
+        return "TRK" + System.currentTimeMillis();
+    }
+}
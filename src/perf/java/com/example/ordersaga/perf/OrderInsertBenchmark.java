@@ -0,0 +1,92 @@
+package com.example.ordersaga.perf;
+
+import com.example.ordersaga.activities.OrderActivitiesImpl;
+import com.example.ordersaga.event.OrderEventBus;
+import com.example.ordersaga.id.SnowflakeIdGenerator;
+import com.example.ordersaga.model.OrderRequest;
+import com.example.ordersaga.outbox.OrderOutbox;
+import com.example.ordersaga.repository.OrderRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@code OrderActivitiesImpl.createOrder} against H2 for orders of {@code lines} items, with JDBC
+ * batching off ({@code batchSize} 1) and on. At the end of each trial it prints the JDBC statements
+ * prepared per order, from Hibernate's statistics: one per row without batching, one per table and
+ * batch with it, plus the existence check and the amortized sequence calls. The outbox row goes through
+ * JDBC directly and is not counted.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OrderInsertBenchmark {
+
+    @Param({"1", "20", "100"})
+    int lines;
+
+    @Param({"1", "50"})
+    int batchSize;
+
+    private ConfigurableApplicationContext context;
+    private JdbcTemplate jdbcTemplate;
+    private Statistics statistics;
+    private OrderActivitiesImpl activities;
+    private List<OrderRequest.OrderItemRequest> items;
+    private long orders;
+    private long statements;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = JpaContext.start("insert-" + lines + "-" + batchSize,
+                "spring.jpa.properties.hibernate.jdbc.batch_size=" + batchSize,
+                "spring.jpa.properties.hibernate.generate_statistics=true");
+        jdbcTemplate = context.getBean(JdbcTemplate.class);
+        statistics = context.getBean(EntityManagerFactory.class).unwrap(SessionFactory.class).getStatistics();
+        SnowflakeIdGenerator idGenerator = new SnowflakeIdGenerator(0);
+        OrderOutbox outbox = new OrderOutbox(jdbcTemplate, context.getBean(PlatformTransactionManager.class), idGenerator);
+        activities = new OrderActivitiesImpl(context.getBean(OrderRepository.class), null, outbox, null,
+                idGenerator, null, null, new OrderEventBus(1), false, 0);
+        items = new ArrayList<>();
+        for (int i = 0; i < lines; i++) {
+            items.add(new OrderRequest.OrderItemRequest("PROD-" + i, "Product " + i, 1 + i % 3,
+                    new BigDecimal("19.99")));
+        }
+        statistics.clear();
+    }
+
+    @TearDown(Level.Iteration)
+    public void clearTables() {
+        statements += statistics.getPrepareStatementCount();
+        jdbcTemplate.update("delete from order_items");
+        jdbcTemplate.update("delete from orders");
+        jdbcTemplate.update("delete from order_outbox");
+        // Keep the cleanup out of the count
+        statistics.clear();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        System.out.printf("%n%d lines, batch size %d: %.2f JDBC statements per order (%d orders)%n",
+                lines, batchSize, (double) statements / orders, orders);
+        context.close();
+    }
+
+    @Benchmark
+    public void createOrder() {
+        orders++;
+        activities.createOrder(new OrderRequest("ORD-" + orders, "CUST-1", items, new BigDecimal("100.00")));
+    }
+}
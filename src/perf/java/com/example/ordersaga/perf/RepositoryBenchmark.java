@@ -0,0 +1,144 @@
+package com.example.ordersaga.perf;
+
+import com.example.ordersaga.model.Order;
+import com.example.ordersaga.model.OrderCursor;
+import com.example.ordersaga.model.OrderStatus;
+import com.example.ordersaga.repository.OrderRepository;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@code OrderRepository} finders against H2, on a table seeded with {@code orders} orders of three
+ * items each, spread over 1,000 customers and mostly in terminal statuses like a long-running store.
+ * Only the JPA part of the application is started ({@link JpaContext}).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RepositoryBenchmark {
+
+    private static final int CUSTOMERS = 1000;
+    private static final int ITEMS_PER_ORDER = 3;
+    private static final OrderStatus[] STATUSES = {
+            OrderStatus.COMPLETED, OrderStatus.COMPLETED, OrderStatus.COMPLETED, OrderStatus.COMPLETED,
+            OrderStatus.COMPLETED, OrderStatus.COMPLETED, OrderStatus.COMPLETED, OrderStatus.COMPENSATED,
+            OrderStatus.IN_DELIVERY, OrderStatus.PAYMENT_AUTHORIZED
+    };
+
+    @Param({"10000", "100000"})
+    int orders;
+
+    private ConfigurableApplicationContext context;
+    private OrderRepository orderRepository;
+    private OrderCursor middleCursor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = JpaContext.start("bench");
+        orderRepository = context.getBean(OrderRepository.class);
+        seed(context.getBean(JdbcTemplate.class));
+        Order middle = orderRepository.findByOrderId(orderId(orders / 2)).orElseThrow();
+        middleCursor = new OrderCursor(middle.getCreatedAt(), middle.getId());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    private void seed(JdbcTemplate jdbcTemplate) {
+        LocalDateTime start = LocalDateTime.now().minusDays(365);
+        List<Object[]> orderRows = new ArrayList<>();
+        List<Object[]> itemRows = new ArrayList<>();
+        for (long id = 1; id <= orders; id++) {
+            Timestamp createdAt = Timestamp.valueOf(start.plusSeconds(id * 60));
+            orderRows.add(new Object[] {id, orderId(id), "CUST-" + (id % CUSTOMERS),
+                    STATUSES[(int) (id % STATUSES.length)].name(), new BigDecimal("59.97"), createdAt, createdAt, 0L});
+            for (int i = 0; i < ITEMS_PER_ORDER; i++) {
+                itemRows.add(new Object[] {id * ITEMS_PER_ORDER + i, id, "PROD-" + i, "Product " + i, 1,
+                        new BigDecimal("19.99"), new BigDecimal("19.99")});
+            }
+            if (orderRows.size() == 5000 || id == orders) {
+                jdbcTemplate.batchUpdate("insert into orders (id, order_id, customer_id, status, total_amount, "
+                        + "created_at, updated_at, version) values (?, ?, ?, ?, ?, ?, ?, ?)", orderRows);
+                jdbcTemplate.batchUpdate("insert into order_items (id, order_id, product_id, product_name, quantity, "
+                        + "unit_price, total_price) values (?, ?, ?, ?, ?, ?, ?)", itemRows);
+                orderRows.clear();
+                itemRows.clear();
+            }
+        }
+    }
+
+    private static String orderId(long id) {
+        return String.format("ORD-%08x", id);
+    }
+
+    private String randomOrderId() {
+        return orderId(1 + ThreadLocalRandom.current().nextLong(orders));
+    }
+
+    @Benchmark
+    public Optional<Order> findByOrderId() {
+        return orderRepository.findByOrderId(randomOrderId());
+    }
+
+    @Benchmark
+    public Optional<Order> findWithItemsByOrderId() {
+        return orderRepository.findWithItemsByOrderId(randomOrderId());
+    }
+
+    @Benchmark
+    public boolean existsByOrderId() {
+        return orderRepository.existsByOrderId(randomOrderId());
+    }
+
+    @Benchmark
+    public List<Order> findByCustomerId() {
+        return orderRepository.findByCustomerId("CUST-" + ThreadLocalRandom.current().nextInt(CUSTOMERS));
+    }
+
+    @Benchmark
+    public List<Order> findByStatus() {
+        // About one order in ten is in delivery
+        return orderRepository.findByStatus(OrderStatus.IN_DELIVERY);
+    }
+
+    @Benchmark
+    public List<Order> findFirstPage() {
+        return orderRepository.findPage(null, null, null, 50);
+    }
+
+    @Benchmark
+    public List<Order> findPageByCustomer() {
+        return orderRepository.findPage(null, "CUST-" + ThreadLocalRandom.current().nextInt(CUSTOMERS), null, 50);
+    }
+
+    @Benchmark
+    public List<Order> findDeepPage() {
+        // Keyset pages should cost the same however deep the cursor is
+        return orderRepository.findPage(null, null, middleCursor, 50);
+    }
+
+    @Benchmark
+    public List<Order> findWithItemsByIdIn() {
+        long first = 1 + ThreadLocalRandom.current().nextLong(orders - 50);
+        List<Long> ids = new ArrayList<>(50);
+        for (long id = first; id < first + 50; id++) {
+            ids.add(id);
+        }
+        return orderRepository.findWithItemsByIdIn(ids);
+    }
+}
@@ -0,0 +1,296 @@
+package com.example.ordersaga.perf;
+
+import com.example.ordersaga.activities.OrderActivitiesImpl;
+import com.example.ordersaga.activities.OrderStoreActivities;
+import com.example.ordersaga.event.OrderEventBus;
+import com.example.ordersaga.id.SnowflakeIdGenerator;
+import com.example.ordersaga.inventory.ReservationCoalescer;
+import com.example.ordersaga.inventory.StockLedger;
+import com.example.ordersaga.model.OrderRequest;
+import com.example.ordersaga.outbox.OrderEventLog;
+import com.example.ordersaga.outbox.OrderOutbox;
+import com.example.ordersaga.outbox.OutboxRelay;
+import com.example.ordersaga.repository.OrderRepository;
+import com.example.ordersaga.repository.StockLevelRepository;
+import com.example.ordersaga.repository.StockReservationRepository;
+import com.example.ordersaga.service.OrderStatusWriter;
+import com.example.ordersaga.workflow.OrderWorkflow;
+import com.example.ordersaga.workflow.OrderWorkflowImpl;
+import com.example.ordersaga.workflow.SagaSettings;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.temporal.activity.ActivityExecutionContext;
+import io.temporal.client.WorkflowClient;
+import io.temporal.client.WorkflowOptions;
+import io.temporal.common.interceptors.ActivityInboundCallsInterceptor;
+import io.temporal.common.interceptors.ActivityInboundCallsInterceptorBase;
+import io.temporal.common.interceptors.WorkerInterceptor;
+import io.temporal.common.interceptors.WorkerInterceptorBase;
+import io.temporal.testing.TestEnvironmentOptions;
+import io.temporal.testing.TestWorkflowEnvironment;
+import io.temporal.worker.Worker;
+import io.temporal.worker.WorkerFactoryOptions;
+import io.temporal.worker.WorkerOptions;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.util.unit.DataSize;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Runs thousands of {@link OrderWorkflowImpl} executions against the real {@link OrderActivitiesImpl}
+ * and H2 on an in-memory Temporal service, to size workers without a cluster.
+ * <p>
+ * Reports orders/sec, per-step (activity type) latency percentiles, CPU time spent on workflow task and
+ * activity threads, and heap use. Status changes go through the outbox to an order event log in a
+ * temporary directory. In {@code time-skipping} mode the service skips timer and retry
+ * backoff waits; in {@code real-time} mode it runs on the wall clock. The simulated activity latency is
+ * scaled by {@code load.delay-scale} in both modes.
+ * <p>
+ * System properties: {@code load.orders}, {@code load.mode} (time-skipping | real-time),
+ * {@code load.delay-scale}, {@code load.activity-slots}, {@code load.parallel-fraud-check},
+ * {@code load.cancel-fraud-check} (off by default: the in-memory service fails a workflow task whose
+ * cancel crosses the activity's completion, which a real server accepts),
+ * {@code load.local-activities} (comma-separated, empty for none), {@code load.coalesce-reservations},
+ * {@code load.group-commit-status}.
+ */
+public class SagaLoadHarness {
+
+    private static final String TASK_QUEUE = "load-queue";
+
+    public static void main(String[] args) throws Exception {
+        int orders = Integer.getInteger("load.orders", 2000);
+        boolean timeSkipping = !"real-time".equals(System.getProperty("load.mode", "time-skipping"));
+        double delayScale = Double.parseDouble(System.getProperty("load.delay-scale", "0.01"));
+        int activitySlots = Integer.getInteger("load.activity-slots", 200);
+        boolean parallelFraudCheck = Boolean.parseBoolean(System.getProperty("load.parallel-fraud-check", "true"));
+        boolean cancelFraudCheck = Boolean.parseBoolean(System.getProperty("load.cancel-fraud-check", "false"));
+        boolean coalesce = Boolean.parseBoolean(System.getProperty("load.coalesce-reservations", "true"));
+        boolean groupCommit = Boolean.parseBoolean(System.getProperty("load.group-commit-status", "true"));
+        Set<String> localActivities = Arrays.stream(System.getProperty("load.local-activities",
+                        String.join(",", OrderStoreActivities.CREATE_ORDER, OrderStoreActivities.UPDATE_ORDER_STATUS,
+                                OrderStoreActivities.MARK_ORDER_AS_FAILED, OrderStoreActivities.CONFIRM_ORDER))
+                        .split(","))
+                .map(String::trim)
+                .filter(name -> !name.isEmpty())
+                .collect(Collectors.toSet());
+
+        System.out.printf("%d orders, %s, delay scale %s, %d activity slots, parallel fraud check %s, local %s, "
+                        + "coalesced reservations %s, group-committed status %s%n",
+                orders, timeSkipping ? "time-skipping" : "real-time", delayScale, activitySlots,
+                parallelFraudCheck, localActivities, coalesce, groupCommit);
+
+        ConfigurableApplicationContext jpa = JpaContext.start("load");
+        // Enough stock that no order is short of it
+        StockLedger stockLedger = new StockLedger(jpa.getBean(StockLevelRepository.class),
+                jpa.getBean(StockReservationRepository.class), jpa.getBean(PlatformTransactionManager.class),
+                new SimpleMeterRegistry(), 100, StockLedger.MAX_STOCK, List.of(), Duration.ofSeconds(1));
+        stockLedger.load();
+        OrderEventBus eventBus = new OrderEventBus(1);
+        SnowflakeIdGenerator idGenerator = new SnowflakeIdGenerator(0);
+        OrderOutbox outbox = new OrderOutbox(jpa.getBean(JdbcTemplate.class), jpa.getBean(PlatformTransactionManager.class),
+                idGenerator);
+        OrderEventLog eventLog = new OrderEventLog(new ObjectMapper().findAndRegisterModules(),
+                Files.createTempDirectory("order-events"), DataSize.ofMegabytes(16), 64);
+        OutboxRelay relay = new OutboxRelay(jpa.getBean(JdbcTemplate.class), eventLog, new SimpleMeterRegistry(),
+                Duration.ofMillis(200), 1000);
+        relay.start();
+        ReservationCoalescer reservations = new ReservationCoalescer(stockLedger, idGenerator,
+                jpa.getBean(OrderRepository.class), eventBus, outbox, jpa.getBean(JdbcTemplate.class),
+                jpa.getBean(PlatformTransactionManager.class), new SimpleMeterRegistry(), coalesce,
+                Duration.ofMillis(5), 200);
+        OrderStatusWriter statusWriter = new OrderStatusWriter(jpa.getBean(OrderRepository.class), outbox, eventBus,
+                jpa.getBean(JdbcTemplate.class), jpa.getBean(PlatformTransactionManager.class), new SimpleMeterRegistry(),
+                groupCommit, Duration.ofMillis(2), 500, 10000, Duration.ofSeconds(10));
+        StepTimer steps = new StepTimer();
+        TestWorkflowEnvironment env = TestWorkflowEnvironment.newInstance(TestEnvironmentOptions.newBuilder()
+                .setUseTimeskipping(timeSkipping)
+                .setWorkerFactoryOptions(WorkerFactoryOptions.newBuilder()
+                        .setWorkerInterceptors(new WorkerInterceptor[] {steps})
+                        .build())
+                .build());
+        try {
+            Worker worker = env.newWorker(TASK_QUEUE, WorkerOptions.newBuilder()
+                    .setMaxConcurrentActivityExecutionSize(activitySlots)
+                    .build());
+            SagaSettings settings = new SagaSettings(parallelFraudCheck, cancelFraudCheck, localActivities);
+            worker.registerWorkflowImplementationFactory(OrderWorkflow.class, () -> new OrderWorkflowImpl(settings));
+            worker.registerActivitiesImplementations(
+                    new OrderActivitiesImpl(jpa.getBean(OrderRepository.class), statusWriter, outbox, null, idGenerator,
+                            stockLedger, reservations, eventBus, false, delayScale));
+            env.start();
+
+            ResourceSampler sampler = new ResourceSampler();
+            long start = System.nanoTime();
+            AtomicInteger completed = new AtomicInteger();
+            AtomicInteger compensated = new AtomicInteger();
+            WorkflowClient client = env.getWorkflowClient();
+            List<CompletableFuture<?>> results = new ArrayList<>(orders);
+            for (int i = 0; i < orders; i++) {
+                OrderWorkflow workflow = client.newWorkflowStub(OrderWorkflow.class, WorkflowOptions.newBuilder()
+                        .setTaskQueue(TASK_QUEUE)
+                        .setWorkflowId("load-" + i)
+                        .build());
+                results.add(WorkflowClient.execute(workflow::processOrder, request(i))
+                        .whenComplete((result, failure) -> (failure == null ? completed : compensated).incrementAndGet()));
+            }
+            CompletableFuture.allOf(results.toArray(new CompletableFuture[0]))
+                    .exceptionally(failure -> null)
+                    .get(2, TimeUnit.HOURS);
+            double seconds = (System.nanoTime() - start) / 1e9;
+            sampler.stop();
+
+            System.out.printf("%nCompleted %d, compensated %d in %.1f s: %.1f orders/s%n",
+                    completed.get(), compensated.get(), seconds, orders / seconds);
+            steps.print();
+            sampler.print(orders);
+            System.out.printf("%nOrder event log: %d bytes%n", eventLog.getEnd());
+        } finally {
+            env.close();
+            relay.shutdown();
+            eventLog.close();
+            statusWriter.shutdown();
+            reservations.shutdown();
+            stockLedger.shutdown();
+            jpa.close();
+        }
+        // The in-memory service leaves non-daemon client threads behind
+        System.exit(0);
+    }
+
+    private static OrderRequest request(int i) {
+        List<OrderRequest.OrderItemRequest> items = List.of(
+                new OrderRequest.OrderItemRequest("PROD-1", "Laptop", 1, new BigDecimal("999.99")),
+                new OrderRequest.OrderItemRequest("PROD-2", "Mouse", 2, new BigDecimal("24.50")));
+        return new OrderRequest("ORD-" + i, "CUST-" + (i % 100), items, new BigDecimal("1048.99"));
+    }
+
+    /** Execution time of every activity attempt, by activity type. */
+    static class StepTimer extends WorkerInterceptorBase {
+
+        private final Map<String, Queue<Long>> nanosByStep = new ConcurrentHashMap<>();
+
+        @Override
+        public ActivityInboundCallsInterceptor interceptActivity(ActivityInboundCallsInterceptor next) {
+            return new ActivityInboundCallsInterceptorBase(next) {
+                private String step;
+
+                @Override
+                public void init(ActivityExecutionContext context) {
+                    step = context.getInfo().getActivityType() + (context.getInfo().isLocal() ? " (local)" : "");
+                    super.init(context);
+                }
+
+                @Override
+                public ActivityOutput execute(ActivityInput input) {
+                    long start = System.nanoTime();
+                    try {
+                        return super.execute(input);
+                    } finally {
+                        nanosByStep.computeIfAbsent(step, key -> new ConcurrentLinkedQueue<>())
+                                .add(System.nanoTime() - start);
+                    }
+                }
+            };
+        }
+
+        void print() {
+            System.out.printf("%n%-34s %7s %9s %9s %9s %9s%n", "step", "count", "p50 ms", "p90 ms", "p99 ms", "max ms");
+            new TreeMap<>(nanosByStep).forEach((step, samples) -> {
+                long[] sorted = samples.stream().mapToLong(Long::longValue).sorted().toArray();
+                System.out.printf("%-34s %7d %9.2f %9.2f %9.2f %9.2f%n", step, sorted.length,
+                        percentile(sorted, 50), percentile(sorted, 90), percentile(sorted, 99),
+                        sorted[sorted.length - 1] / 1e6);
+            });
+        }
+
+        private static double percentile(long[] sorted, int percentile) {
+            int index = (int) Math.ceil(percentile / 100.0 * sorted.length) - 1;
+            return sorted[Math.max(0, index)] / 1e6;
+        }
+    }
+
+    /**
+     * Samples thread CPU time by worker thread pool and heap use. CPU is tracked per thread, so threads
+     * that exit keep their last sample.
+     */
+    static class ResourceSampler {
+
+        private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        private final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        private final Map<Long, Long> workflowCpu = new ConcurrentHashMap<>();
+        private final Map<Long, Long> activityCpu = new ConcurrentHashMap<>();
+        private final AtomicLong peakHeap = new AtomicLong();
+        private final long startProcessCpu = processCpu();
+        private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+
+        ResourceSampler() {
+            scheduler.scheduleAtFixedRate(this::sample, 0, 200, TimeUnit.MILLISECONDS);
+        }
+
+        private void sample() {
+            peakHeap.accumulateAndGet(memory.getHeapMemoryUsage().getUsed(), Math::max);
+            for (ThreadInfo info : threads.getThreadInfo(threads.getAllThreadIds())) {
+                if (info == null) {
+                    continue;
+                }
+                String name = info.getThreadName();
+                Map<Long, Long> pool = name.startsWith("Workflow Executor") || name.startsWith("workflow-method")
+                        ? workflowCpu
+                        : name.contains("Activity Executor") ? activityCpu : null;
+                long cpu = threads.getThreadCpuTime(info.getThreadId());
+                if (pool != null && cpu > 0) {
+                    pool.put(info.getThreadId(), cpu);
+                }
+            }
+        }
+
+        void stop() {
+            scheduler.shutdown();
+            sample();
+        }
+
+        void print(int orders) {
+            long workflowNanos = workflowCpu.values().stream().mapToLong(Long::longValue).sum();
+            long activityNanos = activityCpu.values().stream().mapToLong(Long::longValue).sum();
+            long processNanos = processCpu() - startProcessCpu;
+            System.gc();
+            long retainedHeap = memory.getHeapMemoryUsage().getUsed();
+
+            System.out.printf("%nCPU time            total        per order%n");
+            System.out.printf("workflow tasks   %8.1f s   %8.2f ms%n", workflowNanos / 1e9, workflowNanos / 1e6 / orders);
+            System.out.printf("activities       %8.1f s   %8.2f ms%n", activityNanos / 1e9, activityNanos / 1e6 / orders);
+            System.out.printf("whole process    %8.1f s   %8.2f ms%n", processNanos / 1e9, processNanos / 1e6 / orders);
+            System.out.printf("%nHeap: peak %d MB used, %d MB after GC%n",
+                    peakHeap.get() >> 20, retainedHeap >> 20);
+        }
+
+        private static long processCpu() {
+            return ((com.sun.management.OperatingSystemMXBean) ManagementFactory.getOperatingSystemMXBean())
+                    .getProcessCpuTime();
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.ordersaga.perf;
+
+import com.example.ordersaga.inventory.StockLedger;
+import com.example.ordersaga.model.OrderRequest;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@code StockLedger} reserve-then-release of a two-line order from several threads, with every order
+ * on the same {@code products} (a flash sale on one or two products) or spread over many. The ledger
+ * runs without its database snapshot.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(8)
+@Fork(1)
+public class StockLedgerBenchmark {
+    
+    @Param({"2", "1000"})
+    int products;
+    
+    private final AtomicLong orders = new AtomicLong();
+    private StockLedger ledger;
+    
+    @Setup
+    public void setUp() {
+        ledger = new StockLedger(null, null, null, new SimpleMeterRegistry(), products, StockLedger.MAX_STOCK,
+                List.of(), Duration.ZERO);
+    }
+    
+    @Benchmark
+    public boolean reserveAndRelease() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        String orderId = "ORD-" + orders.incrementAndGet();
+        ledger.reserve(orderId, List.of(
+                new OrderRequest.OrderItemRequest("PROD-" + random.nextInt(products), "Item", 1, BigDecimal.ONE),
+                new OrderRequest.OrderItemRequest("PROD-" + random.nextInt(products), "Item", 2, BigDecimal.ONE)));
+        return ledger.release(orderId);
+    }
+}
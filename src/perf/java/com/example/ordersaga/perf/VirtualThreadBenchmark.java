@@ -0,0 +1,260 @@
+package com.example.ordersaga.perf;
+
+import com.example.ordersaga.activities.OrderActivities;
+import com.example.ordersaga.activities.OrderStoreActivities;
+import com.example.ordersaga.model.FraudCheckResult;
+import com.example.ordersaga.model.InventoryResult;
+import com.example.ordersaga.model.OrderRequest;
+import com.example.ordersaga.model.OrderStatus;
+import com.example.ordersaga.model.PaymentResult;
+import com.example.ordersaga.model.ShippingResult;
+import com.example.ordersaga.worker.VirtualThreadActivityInterceptor;
+import com.example.ordersaga.workflow.OrderWorkflow;
+import com.example.ordersaga.workflow.OrderWorkflowImpl;
+import com.example.ordersaga.workflow.SagaSettings;
+import io.temporal.client.WorkflowClient;
+import io.temporal.client.WorkflowOptions;
+import io.temporal.common.interceptors.WorkerInterceptor;
+import io.temporal.testing.TestEnvironmentOptions;
+import io.temporal.testing.TestWorkflowEnvironment;
+import io.temporal.worker.Worker;
+import io.temporal.worker.WorkerFactoryOptions;
+import io.temporal.worker.WorkerOptions;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Compares how many orders the worker keeps in flight, and what each in-flight order costs in threads
+ * and resident memory, with activities on the worker's platform threads versus on virtual threads.
+ * <p>
+ * Each run starts a wave of orders at once against an in-memory Temporal service. The activities are
+ * stand-ins that only sleep, like the I/O-bound ones in {@code OrderActivitiesImpl}. Platform mode uses
+ * the SDK's default activity slots; virtual mode allows {@code perf.max-in-flight} activities. Virtual
+ * mode is skipped below Java 21.
+ * <p>
+ * System properties: {@code perf.orders} (comma-separated wave sizes), {@code perf.activity-delay-ms},
+ * {@code perf.max-in-flight}.
+ */
+public class VirtualThreadBenchmark {
+
+    private static final String TASK_QUEUE = "benchmark-queue";
+
+    public static void main(String[] args) throws Exception {
+        int[] waves = Arrays.stream(System.getProperty("perf.orders", "100,500,2000").split(","))
+                .mapToInt(value -> Integer.parseInt(value.trim()))
+                .toArray();
+        long delayMillis = Long.getLong("perf.activity-delay-ms", 200);
+        int maxInFlight = Integer.getInteger("perf.max-in-flight", 10_000);
+
+        List<Boolean> modes = new ArrayList<>(List.of(false));
+        if (Runtime.version().feature() >= 21) {
+            modes.add(true);
+        } else {
+            System.out.println("Java " + Runtime.version().feature() + ": virtual-thread mode needs Java 21, running platform mode only");
+        }
+
+        System.out.printf("%-9s %7s %10s %9s %10s %8s %12s %14s%n",
+                "mode", "orders", "in-flight", "time(s)", "orders/s", "threads", "rss/flight", "threads/flight");
+        for (boolean virtual : modes) {
+            for (int orders : waves) {
+                Result result = run(virtual, orders, delayMillis, maxInFlight);
+                System.out.printf("%-9s %7d %10d %9.1f %10.1f %8d %9.1f KB %14.2f%n",
+                        virtual ? "virtual" : "platform", orders, result.peakInFlight, result.seconds,
+                        orders / result.seconds, result.peakThreads,
+                        result.rssGrowthKb / (double) result.peakInFlight,
+                        result.threadGrowth / (double) result.peakInFlight);
+            }
+        }
+        // The in-memory service leaves non-daemon client threads behind
+        System.exit(0);
+    }
+
+    private static Result run(boolean virtual, int orders, long delayMillis, int maxInFlight) throws Exception {
+        WorkerFactoryOptions.Builder factoryOptions = WorkerFactoryOptions.newBuilder();
+        WorkerOptions.Builder workerOptions = WorkerOptions.newBuilder();
+        if (virtual) {
+            factoryOptions.setWorkerInterceptors(new WorkerInterceptor[] {VirtualThreadActivityInterceptor.create(maxInFlight, Set.of())});
+            workerOptions.setMaxConcurrentActivityExecutionSize(maxInFlight);
+        }
+
+        TestWorkflowEnvironment env = TestWorkflowEnvironment.newInstance(TestEnvironmentOptions.newBuilder()
+                .setUseTimeskipping(false)
+                .setWorkerFactoryOptions(factoryOptions.build())
+                .build());
+        try {
+            SleepingActivities activities = new SleepingActivities(delayMillis);
+            Worker worker = env.newWorker(TASK_QUEUE, workerOptions.build());
+            worker.registerWorkflowImplementationFactory(OrderWorkflow.class,
+                    () -> new OrderWorkflowImpl(new SagaSettings(true, false, Set.of())));
+            worker.registerActivitiesImplementations(activities);
+            env.start();
+
+            System.gc();
+            Thread.sleep(200);
+            long baselineRss = residentKb();
+            int baselineThreads = ManagementFactory.getThreadMXBean().getThreadCount();
+
+            AtomicLong peakRss = new AtomicLong(baselineRss);
+            AtomicInteger peakThreads = new AtomicInteger(baselineThreads);
+            ScheduledExecutorService sampler = Executors.newSingleThreadScheduledExecutor();
+            sampler.scheduleAtFixedRate(() -> {
+                peakRss.accumulateAndGet(residentKb(), Math::max);
+                peakThreads.accumulateAndGet(ManagementFactory.getThreadMXBean().getThreadCount(), Math::max);
+            }, 0, 20, TimeUnit.MILLISECONDS);
+
+            long start = System.nanoTime();
+            WorkflowClient client = env.getWorkflowClient();
+            List<CompletableFuture<String>> results = new ArrayList<>(orders);
+            for (int i = 0; i < orders; i++) {
+                OrderWorkflow workflow = client.newWorkflowStub(OrderWorkflow.class, WorkflowOptions.newBuilder()
+                        .setTaskQueue(TASK_QUEUE)
+                        .setWorkflowId("bench-" + i)
+                        .build());
+                results.add(WorkflowClient.execute(workflow::processOrder, request("ORD-" + i)));
+            }
+            CompletableFuture.allOf(results.toArray(new CompletableFuture[0])).get(30, TimeUnit.MINUTES);
+            double seconds = (System.nanoTime() - start) / 1e9;
+            sampler.shutdownNow();
+
+            return new Result(activities.peakExecuting.get(), seconds, peakThreads.get(),
+                    peakRss.get() - baselineRss, peakThreads.get() - baselineThreads);
+        } finally {
+            env.close();
+        }
+    }
+
+    private static OrderRequest request(String orderId) {
+        OrderRequest.OrderItemRequest item =
+                new OrderRequest.OrderItemRequest("PROD-1", "Benchmark item", 1, new BigDecimal("10.00"));
+        return new OrderRequest(orderId, "CUST-1", List.of(item), new BigDecimal("10.00"));
+    }
+
+    /** Resident set size from /proc, or 0 where it is not available. */
+    private static long residentKb() {
+        try {
+            for (String line : Files.readAllLines(Path.of("/proc/self/status"))) {
+                if (line.startsWith("VmRSS:")) {
+                    return Long.parseLong(line.replaceAll("\\D", ""));
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            // not on Linux
+        }
+        return 0;
+    }
+
+    private record Result(int peakInFlight, double seconds, int peakThreads, long rssGrowthKb, int threadGrowth) {
+    }
+
+    /** Activities that only block for a fixed time and count how many are executing. */
+    static class SleepingActivities implements OrderActivities, OrderStoreActivities {
+
+        private final long delayMillis;
+        private final AtomicInteger executing = new AtomicInteger();
+        private final AtomicInteger peakExecuting = new AtomicInteger();
+
+        SleepingActivities(long delayMillis) {
+            this.delayMillis = delayMillis;
+        }
+
+        private void io() {
+            peakExecuting.accumulateAndGet(executing.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(delayMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                executing.decrementAndGet();
+            }
+        }
+
+        @Override
+        public PaymentResult authorizePayment(OrderRequest orderRequest) {
+            io();
+            return new PaymentResult(true, "PAY-" + orderRequest.getOrderId(), "TXN", "Payment authorized");
+        }
+
+        @Override
+        public void compensatePayment(String orderId, String paymentId) {
+            io();
+        }
+
+        @Override
+        public InventoryResult reserveInventory(OrderRequest orderRequest) {
+            io();
+            return new InventoryResult(true, "RES-" + orderRequest.getOrderId(), "Inventory reserved");
+        }
+
+        @Override
+        public void compensateInventory(String orderId, String reservationId) {
+            io();
+        }
+
+        @Override
+        public FraudCheckResult performFraudCheck(OrderRequest orderRequest) {
+            return assessFraudRisk(orderRequest);
+        }
+
+        @Override
+        public FraudCheckResult assessFraudRisk(OrderRequest orderRequest) {
+            io();
+            return new FraudCheckResult(true, 0.1, "Fraud check passed");
+        }
+
+        @Override
+        public ShippingResult arrangeShipping(OrderRequest orderRequest) {
+            io();
+            return new ShippingResult(true, "SHIP-" + orderRequest.getOrderId(), "TRK-" + orderRequest.getOrderId(),
+                    "FastShip Express", "3 days", "Shipping arranged");
+        }
+
+        @Override
+        public void compensateShipping(String orderId, String shippingId) {
+            io();
+        }
+
+        @Override
+        public void updateDeliveryTracking(String orderId, String trackingNumber) {
+            io();
+        }
+
+        @Override
+        public void completeOrder(String orderId) {
+            io();
+        }
+
+        @Override
+        public void createOrder(OrderRequest orderRequest) {
+            io();
+        }
+
+        @Override
+        public void confirmOrder(String orderId) {
+            io();
+        }
+
+        @Override
+        public void markOrderAsFailed(String orderId, String reason) {
+            io();
+        }
+
+        @Override
+        public void updateOrderStatus(String orderId, OrderStatus status) {
+            io();
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.example.ordersaga.activities;
+
+import com.example.ordersaga.event.OrderEventBus;
+import com.example.ordersaga.id.SnowflakeIdGenerator;
+import com.example.ordersaga.inventory.StockLedger;
+import com.example.ordersaga.model.Order;
+import com.example.ordersaga.model.OrderStatus;
+import com.example.ordersaga.outbox.OrderOutbox;
+import com.example.ordersaga.repository.OrderRepository;
+import io.temporal.failure.ApplicationFailure;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Completes orders against the database, with the stock ledger mocked, from the statuses a
+ * completion may find them in.
+ */
+@DataJpaTest(showSql = false)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class OrderActivitiesImplTest {
+    
+    @Autowired
+    private OrderRepository orderRepository;
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    
+    private final StockLedger stockLedger = mock(StockLedger.class);
+    private OrderActivitiesImpl activities;
+    
+    @BeforeEach
+    void setUp() {
+        SnowflakeIdGenerator idGenerator = new SnowflakeIdGenerator(1);
+        activities = new OrderActivitiesImpl(orderRepository, null,
+                new OrderOutbox(jdbcTemplate, transactionManager, idGenerator), null, idGenerator, stockLedger, null,
+                new OrderEventBus(1), false, 0);
+    }
+    
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("delete from order_outbox");
+        orderRepository.deleteAll();
+    }
+    
+    @Test
+    void completingADeliveredOrderCommitsItsStock() {
+        saveOrder("ORD-1", OrderStatus.IN_DELIVERY);
+        
+        activities.completeOrder("ORD-1");
+        
+        assertThat(status("ORD-1")).isEqualTo(OrderStatus.COMPLETED);
+        verify(stockLedger).commit("ORD-1");
+    }
+    
+    @Test
+    void retriedCompletionOfACompletedOrderSucceeds() {
+        saveOrder("ORD-1", OrderStatus.COMPLETED);
+        
+        activities.completeOrder("ORD-1");
+        
+        assertThat(status("ORD-1")).isEqualTo(OrderStatus.COMPLETED);
+    }
+    
+    @Test
+    void completionOfAnOrderBeingCompensatedFailsAndKeepsItsStock() {
+        saveOrder("ORD-1", OrderStatus.COMPENSATING);
+        
+        assertThatThrownBy(() -> activities.completeOrder("ORD-1"))
+                .isInstanceOf(ApplicationFailure.class)
+                .hasMessageContaining("COMPENSATING");
+        
+        assertThat(status("ORD-1")).isEqualTo(OrderStatus.COMPENSATING);
+        verify(stockLedger, never()).commit("ORD-1");
+    }
+    
+    private OrderStatus status(String orderId) {
+        return orderRepository.findByOrderId(orderId).orElseThrow().getStatus();
+    }
+    
+    private void saveOrder(String orderId, OrderStatus status) {
+        Order order = new Order();
+        order.setOrderId(orderId);
+        order.setCustomerId("CUST-1");
+        order.setStatus(status);
+        order.setTotalAmount(new BigDecimal("10.00"));
+        orderRepository.save(order);
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.ordersaga.id;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Generates ids from many threads at once, with two nodes per generator, and checks that no id repeats
+ * and that every thread sees its ids increase.
+ */
+class IdGeneratorConcurrencyTest {
+    
+    private static final int THREADS = 8;
+    private static final int PER_THREAD = 50_000;
+    
+    @Test
+    void snowflakeIdsAreUniqueAndIncreasingAcrossThreadsAndNodes() throws Exception {
+        List<List<String>> ids = generate(new SnowflakeIdGenerator(1), new SnowflakeIdGenerator(2));
+        
+        assertUnique(ids);
+        assertIncreasing(ids);
+        assertThat(ids.get(0).get(0)).startsWith("ORD-").hasSize(4 + 13);
+    }
+    
+    @Test
+    void ulidsAreUniqueAndIncreasingAcrossThreadsAndNodes() throws Exception {
+        List<List<String>> ids = generate(new UlidGenerator(), new UlidGenerator());
+        
+        assertUnique(ids);
+        assertIncreasing(ids);
+        assertThat(ids.get(0).get(0)).startsWith("ORD-").hasSize(4 + 26);
+    }
+    
+    @Test
+    void snowflakeIdsFromOneNodeIncreaseInIssueOrder() {
+        // More ids than one millisecond's sequence holds, so the sequence carries into the next millisecond
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(7);
+        long previous = generator.nextLong();
+        for (int i = 0; i < 20_000; i++) {
+            long next = generator.nextLong();
+            assertThat(next).isGreaterThan(previous);
+            previous = next;
+        }
+    }
+    
+    /** Ids from {@code THREADS} threads started together, alternating between the two nodes. */
+    private static List<List<String>> generate(IdGenerator node1, IdGenerator node2) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            CyclicBarrier start = new CyclicBarrier(THREADS);
+            List<Future<List<String>>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                IdGenerator generator = t % 2 == 0 ? node1 : node2;
+                futures.add(executor.submit((Callable<List<String>>) () -> {
+                    List<String> ids = new ArrayList<>(PER_THREAD);
+                    start.await();
+                    for (int i = 0; i < PER_THREAD; i++) {
+                        ids.add(generator.nextId("ORD-"));
+                    }
+                    return ids;
+                }));
+            }
+            List<List<String>> ids = new ArrayList<>();
+            for (Future<List<String>> future : futures) {
+                ids.add(future.get(60, TimeUnit.SECONDS));
+            }
+            return ids;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+    
+    private static void assertUnique(List<List<String>> ids) {
+        Set<String> seen = new HashSet<>(THREADS * PER_THREAD * 2);
+        for (List<String> thread : ids) {
+            for (String id : thread) {
+                assertThat(seen.add(id)).as("duplicate id %s", id).isTrue();
+            }
+        }
+        assertThat(seen).hasSize(THREADS * PER_THREAD);
+    }
+    
+    private static void assertIncreasing(List<List<String>> ids) {
+        for (List<String> thread : ids) {
+            String previous = "";
+            for (String id : thread) {
+                assertThat(id).as("id after %s", previous).isGreaterThan(previous);
+                previous = id;
+            }
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package com.example.ordersaga.inventory;
+
+import com.example.ordersaga.event.OrderEventBus;
+import com.example.ordersaga.id.SnowflakeIdGenerator;
+import com.example.ordersaga.model.InventoryResult;
+import com.example.ordersaga.model.Order;
+import com.example.ordersaga.model.OrderRequest;
+import com.example.ordersaga.model.OrderStatus;
+import com.example.ordersaga.outbox.OrderOutbox;
+import com.example.ordersaga.repository.OrderRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Applies reservations through a {@link ReservationCoalescer} with its batching thread, against the
+ * database, to orders in different statuses.
+ */
+@DataJpaTest(showSql = false)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ReservationCoalescerTest {
+    
+    @Autowired
+    private OrderRepository orderRepository;
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    
+    private final List<ReservationCoalescer> coalescers = new ArrayList<>();
+    private StockLedger stockLedger;
+    private ReservationCoalescer coalescer;
+    
+    @BeforeEach
+    void setUp() {
+        stockLedger = new StockLedger(null, null, null, new SimpleMeterRegistry(), 10, 100, List.of(), Duration.ZERO);
+        coalescer = coalescer(new OrderOutbox(jdbcTemplate, transactionManager, new SnowflakeIdGenerator(1)));
+    }
+    
+    @AfterEach
+    void tearDown() {
+        coalescers.forEach(ReservationCoalescer::shutdown);
+        jdbcTemplate.update("delete from order_outbox");
+        orderRepository.deleteAll();
+    }
+    
+    @Test
+    void reservesStockOfAnOrderWithAuthorizedPayment() {
+        saveOrder("ORD-1", OrderStatus.PAYMENT_AUTHORIZED);
+        
+        InventoryResult result = coalescer.reserve(request("ORD-1", 4));
+        
+        assertThat(result.isSuccess()).isTrue();
+        assertThat(stockLedger.getReserved("PROD-1")).isEqualTo(4);
+        Order order = orderRepository.findByOrderId("ORD-1").orElseThrow();
+        assertThat(order.getStatus()).isEqualTo(OrderStatus.INVENTORY_RESERVED);
+        assertThat(order.getReservationId()).isEqualTo(result.getReservationId());
+    }
+    
+    @Test
+    void givesStockBackWhenTheOrderIsNoLongerWaitingForInventory() {
+        saveOrder("ORD-1", OrderStatus.COMPENSATING);
+        
+        InventoryResult result = coalescer.reserve(request("ORD-1", 4));
+        
+        assertThat(result.isSuccess()).isFalse();
+        assertThat(stockLedger.getReserved("PROD-1")).isZero();
+        assertThat(stockLedger.getAvailable("PROD-1")).isEqualTo(100);
+        assertThat(orderRepository.findByOrderId("ORD-1").orElseThrow().getStatus())
+                .isEqualTo(OrderStatus.COMPENSATING);
+    }
+    
+    @Test
+    void keepsTheStockOfAnOrderThatHasMovedOnFromItsReservation() {
+        saveOrder("ORD-1", OrderStatus.PAYMENT_AUTHORIZED);
+        String reservationId = coalescer.reserve(request("ORD-1", 4)).getReservationId();
+        jdbcTemplate.update("update orders set status = ? where order_id = ?", OrderStatus.CONFIRMED.name(), "ORD-1");
+        
+        // A stale retry of the step
+        InventoryResult result = coalescer.reserve(request("ORD-1", 4));
+        
+        assertThat(result.isSuccess()).isTrue();
+        assertThat(result.getReservationId()).isEqualTo(reservationId);
+        assertThat(stockLedger.getReserved("PROD-1")).isEqualTo(4);
+    }
+    
+    @Test
+    void givesStockBackWhenTheBatchFailsToCommit() {
+        saveOrder("ORD-1", OrderStatus.PAYMENT_AUTHORIZED);
+        OrderOutbox failingOutbox = mock(OrderOutbox.class);
+        doThrow(new IllegalStateException("Outbox unavailable")).when(failingOutbox).append(anyList());
+        ReservationCoalescer failing = coalescer(failingOutbox);
+        
+        assertThatThrownBy(() -> failing.reserve(request("ORD-1", 4)))
+                .isInstanceOf(IllegalStateException.class);
+        
+        assertThat(stockLedger.getReserved("PROD-1")).isZero();
+        assertThat(stockLedger.getAvailable("PROD-1")).isEqualTo(100);
+        assertThat(orderRepository.findByOrderId("ORD-1").orElseThrow().getStatus())
+                .isEqualTo(OrderStatus.PAYMENT_AUTHORIZED);
+    }
+    
+    @Test
+    void lateRetryForACompletedOrderDoesNotTakeItsStockAgain() {
+        saveOrder("ORD-1", OrderStatus.PAYMENT_AUTHORIZED);
+        String reservationId = coalescer.reserve(request("ORD-1", 4)).getReservationId();
+        jdbcTemplate.update("update orders set status = ? where order_id = ?", OrderStatus.COMPLETED.name(), "ORD-1");
+        stockLedger.commit("ORD-1");
+        
+        InventoryResult result = coalescer.reserve(request("ORD-1", 4));
+        
+        assertThat(result.isSuccess()).isTrue();
+        assertThat(result.getReservationId()).isEqualTo(reservationId);
+        assertThat(stockLedger.getReserved("PROD-1")).isZero();
+        assertThat(stockLedger.getAvailable("PROD-1")).isEqualTo(96);
+    }
+    
+    private ReservationCoalescer coalescer(OrderOutbox outbox) {
+        ReservationCoalescer coalescer = new ReservationCoalescer(stockLedger, new SnowflakeIdGenerator(1),
+                orderRepository, new OrderEventBus(1), outbox, jdbcTemplate, transactionManager,
+                new SimpleMeterRegistry(), true, Duration.ofMillis(5), 200);
+        coalescers.add(coalescer);
+        return coalescer;
+    }
+    
+    private void saveOrder(String orderId, OrderStatus status) {
+        Order order = new Order();
+        order.setOrderId(orderId);
+        order.setCustomerId("CUST-1");
+        order.setStatus(status);
+        order.setTotalAmount(new BigDecimal("10.00"));
+        orderRepository.save(order);
+    }
+    
+    private static OrderRequest request(String orderId, int quantity) {
+        OrderRequest request = new OrderRequest();
+        request.setOrderId(orderId);
+        request.setCustomerId("CUST-1");
+        request.setItems(List.of(new OrderRequest.OrderItemRequest("PROD-1", "Item", quantity, BigDecimal.ONE)));
+        return request;
+    }
+}
@@ -0,0 +1,166 @@
+package com.example.ordersaga.inventory;
+
+import com.example.ordersaga.model.OrderRequest;
+import com.example.ordersaga.model.StockLevel;
+import com.example.ordersaga.repository.StockLevelRepository;
+import com.example.ordersaga.repository.StockReservationRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Reserves, releases and snapshots stock from many threads at once. Snapshots go to a mocked
+ * repository, which keeps every level written.
+ */
+class StockLedgerTest {
+    
+    private static final int THREADS = 8;
+    
+    private final List<StockLevel> written = Collections.synchronizedList(new ArrayList<>());
+    private StockLedger ledger;
+    
+    @BeforeEach
+    void setUp() {
+        StockLevelRepository levelRepository = mock(StockLevelRepository.class);
+        when(levelRepository.saveAll(anyIterable())).thenAnswer(invocation -> {
+            Iterable<StockLevel> levels = invocation.getArgument(0);
+            levels.forEach(written::add);
+            return List.of();
+        });
+        ledger = new StockLedger(levelRepository, mock(StockReservationRepository.class),
+                mock(PlatformTransactionManager.class), new SimpleMeterRegistry(), 100, 0,
+                List.of("PROD-A=1000", "PROD-B=1000", "PROD-SCARCE=1"), Duration.ZERO);
+    }
+    
+    @Test
+    void concurrentOrdersGetAllTheirLinesOrNone() throws Exception {
+        List<Integer> reserved = run(400, (thread, i) -> {
+            try {
+                ledger.reserve("ORD-" + thread + "-" + i, List.of(item("PROD-A", 1), item("PROD-B", 2)));
+                return 1;
+            } catch (InsufficientStockException e) {
+                return 0;
+            }
+        });
+        
+        int orders = reserved.stream().mapToInt(Integer::intValue).sum();
+        // PROD-B runs out first, at two a time
+        assertThat(orders).isEqualTo(500);
+        assertThat(ledger.getReserved("PROD-A")).isEqualTo(500);
+        assertThat(ledger.getAvailable("PROD-A")).isEqualTo(500);
+        assertThat(ledger.getReserved("PROD-B")).isEqualTo(1000);
+        assertThat(ledger.getAvailable("PROD-B")).isZero();
+    }
+    
+    @Test
+    void snapshotsNeverSeeStockInNeitherCount() throws Exception {
+        AtomicBoolean done = new AtomicBoolean();
+        ExecutorService snapshotter = Executors.newSingleThreadExecutor();
+        Future<?> snapshots = snapshotter.submit(() -> {
+            while (!done.get()) {
+                ledger.snapshot();
+            }
+        });
+        try {
+            run(20_000, (thread, i) -> {
+                String orderId = "ORD-" + thread + "-" + i;
+                ledger.reserve(orderId, List.of(item("PROD-A", 1 + i % 3), item("PROD-B", 1)));
+                return ledger.release(orderId) ? 1 : 0;
+            });
+        } finally {
+            done.set(true);
+            snapshots.get(10, TimeUnit.SECONDS);
+            snapshotter.shutdown();
+        }
+        ledger.snapshot();
+        
+        assertThat(written).isNotEmpty().allSatisfy(level ->
+                assertThat(level.getAvailable() + level.getReserved()).as(level.getProductId()).isEqualTo(1000));
+        assertThat(ledger.getAvailable("PROD-A")).isEqualTo(1000);
+        assertThat(ledger.getReserved("PROD-A")).isZero();
+    }
+    
+    @Test
+    void shortOrderGivesBackTheLinesAlreadyTaken() {
+        assertThatThrownBy(() -> ledger.reserve("ORD-1", List.of(item("PROD-A", 3), item("PROD-SCARCE", 2))))
+                .isInstanceOf(InsufficientStockException.class);
+        
+        assertThat(ledger.getAvailable("PROD-A")).isEqualTo(1000);
+        assertThat(ledger.getReserved("PROD-A")).isZero();
+        assertThat(ledger.getAvailable("PROD-SCARCE")).isEqualTo(1);
+    }
+    
+    @Test
+    void reservingTwiceForAnOrderHoldsItsStockOnce() {
+        assertThat(ledger.reserve("ORD-1", List.of(item("PROD-A", 3)))).isTrue();
+        assertThat(ledger.reserve("ORD-1", List.of(item("PROD-A", 3)))).isFalse();
+        
+        assertThat(ledger.getReserved("PROD-A")).isEqualTo(3);
+        assertThat(ledger.commit("ORD-1")).isTrue();
+        assertThat(ledger.release("ORD-1")).isFalse();
+        assertThat(ledger.getReserved("PROD-A")).isZero();
+        assertThat(ledger.getAvailable("PROD-A")).isEqualTo(997);
+    }
+    
+    @Test
+    void stockBeyondWhatTheLedgerCanCountIsRejected() {
+        assertThatThrownBy(() -> new StockLedger(null, null, null, new SimpleMeterRegistry(), 1,
+                StockLedger.MAX_STOCK + 1, List.of(), Duration.ZERO))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+    
+    private interface Step {
+        int apply(int thread, int i);
+    }
+    
+    /** Runs {@code step} {@code perThread} times on each of {@code THREADS} threads started together. */
+    private static List<Integer> run(int perThread, Step step) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            CyclicBarrier start = new CyclicBarrier(THREADS);
+            List<Future<Integer>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                int thread = t;
+                futures.add(executor.submit((Callable<Integer>) () -> {
+                    start.await();
+                    int sum = 0;
+                    for (int i = 0; i < perThread; i++) {
+                        sum += step.apply(thread, i);
+                    }
+                    return sum;
+                }));
+            }
+            List<Integer> results = new ArrayList<>();
+            for (Future<Integer> future : futures) {
+                results.add(future.get(60, TimeUnit.SECONDS));
+            }
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+    
+    private static OrderRequest.OrderItemRequest item(String productId, int quantity) {
+        return new OrderRequest.OrderItemRequest(productId, "Item", quantity, BigDecimal.ONE);
+    }
+}
@@ -0,0 +1,137 @@
+package com.example.ordersaga.outbox;
+
+import com.example.ordersaga.model.OrderLogPage;
+import com.example.ordersaga.model.OrderLogRecord;
+import com.example.ordersaga.model.OrderStatus;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Appends to an {@link OrderEventLog} in a temporary directory, reopens it the way a restart would
+ * and reads back what was recovered. Segments are 1KB and every record takes exactly a quarter of one.
+ */
+class OrderEventLogTest {
+    
+    private static final int SEGMENT = 1024;
+    private static final int RECORD = SEGMENT / 4;
+    
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+    private final List<OrderEventLog> logs = new ArrayList<>();
+    
+    @TempDir
+    Path directory;
+    
+    @AfterEach
+    void tearDown() {
+        logs.forEach(OrderEventLog::close);
+    }
+    
+    @Test
+    void recordsSurviveReopeningTheLog() throws IOException {
+        OrderEventLog eventLog = open(64);
+        List<OrderLogRecord> appended = records(1, 6);
+        eventLog.append(appended.subList(0, 2));
+        eventLog.append(appended.subList(2, 6));
+        
+        OrderEventLog reopened = open(64);
+        
+        assertThat(reopened.getEnd()).isEqualTo(eventLog.getEnd()).isEqualTo(6L * RECORD);
+        assertThat(reopened.read(0, 100).getRecords()).containsExactlyElementsOf(appended);
+        reopened.append(records(7, 1));
+        assertThat(reopened.read(6L * RECORD, 100).getRecords())
+                .extracting(OrderLogRecord::getEventId).containsExactly("EVT-7");
+    }
+    
+    @Test
+    void recordThatExactlyFillsASegmentIsFollowedByOneInTheNextSegment() throws IOException {
+        OrderEventLog eventLog = open(64);
+        eventLog.append(records(1, 4));
+        assertThat(eventLog.getEnd()).isEqualTo(SEGMENT);
+        eventLog.append(records(5, 1));
+        
+        OrderEventLog reopened = open(64);
+        
+        assertThat(reopened.getEnd()).isEqualTo(SEGMENT + RECORD);
+        OrderLogPage page = reopened.read(0, 100);
+        assertThat(page.getRecords()).extracting(OrderLogRecord::getOffset)
+                .containsExactly(0L, 256L, 512L, 768L, 1024L);
+        assertThat(page.getNextOffset()).isEqualTo(SEGMENT + RECORD);
+    }
+    
+    @Test
+    void filesThatAreNotSegmentsAreIgnoredOnRecovery() throws IOException {
+        open(64).append(records(1, 5));
+        for (String junk : List.of("notes.log", "-1024.log", "99999999999999999999.log",
+                String.format("%020d.log", SEGMENT + 100))) {
+            Files.writeString(directory.resolve(junk), "not a segment");
+        }
+        
+        OrderEventLog reopened = open(64);
+        
+        assertThat(reopened.getStart()).isZero();
+        assertThat(reopened.getEnd()).isEqualTo(SEGMENT + RECORD);
+        assertThat(reopened.read(0, 100).getRecords()).hasSize(5);
+    }
+    
+    @Test
+    void onlyTheNewestSegmentsAreKept() throws IOException {
+        OrderEventLog eventLog = open(2);
+        for (int i = 0; i < 14; i++) {
+            eventLog.append(records(i + 1, 1));
+        }
+        
+        assertThat(eventLog.getStart()).isEqualTo(2L * SEGMENT);
+        assertThat(segmentFiles()).containsExactly(String.format("%020d.log", 2 * SEGMENT),
+                String.format("%020d.log", 3 * SEGMENT));
+        assertThatThrownBy(() -> eventLog.read(0, 100))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining(String.valueOf(2 * SEGMENT));
+        assertThat(eventLog.read(2L * SEGMENT, 100).getRecords())
+                .extracting(OrderLogRecord::getEventId)
+                .containsExactly("EVT-9", "EVT-10", "EVT-11", "EVT-12", "EVT-13", "EVT-14");
+        
+        OrderEventLog reopened = open(2);
+        assertThat(reopened.getStart()).isEqualTo(2L * SEGMENT);
+        assertThat(reopened.getEnd()).isEqualTo(eventLog.getEnd());
+    }
+    
+    private OrderEventLog open(int retainedSegments) throws IOException {
+        OrderEventLog eventLog = new OrderEventLog(objectMapper, directory, DataSize.ofBytes(SEGMENT),
+                retainedSegments);
+        logs.add(eventLog);
+        return eventLog;
+    }
+    
+    private List<String> segmentFiles() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(file -> file.getFileName().toString()).sorted().toList();
+        }
+    }
+    
+    /** {@code count} records from event {@code first} on, each padded to {@code RECORD} bytes with its header. */
+    private List<OrderLogRecord> records(long first, int count) throws IOException {
+        List<OrderLogRecord> records = new ArrayList<>();
+        for (long id = first; id < first + count; id++) {
+            OrderLogRecord record = new OrderLogRecord(0, "EVT-" + id, "ORD-" + id, OrderStatus.CONFIRMED,
+                    LocalDateTime.of(2026, 1, 1, 12, 0));
+            int length = objectMapper.writeValueAsBytes(record).length;
+            record.setOrderId(record.getOrderId() + "-".repeat(RECORD - 8 - length));
+            records.add(record);
+        }
+        return records;
+    }
+}
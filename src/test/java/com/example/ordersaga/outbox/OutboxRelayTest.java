@@ -0,0 +1,78 @@
+package com.example.ordersaga.outbox;
+
+import com.example.ordersaga.id.SnowflakeIdGenerator;
+import com.example.ordersaga.model.OrderLogRecord;
+import com.example.ordersaga.model.OrderStatus;
+import com.example.ordersaga.model.OrderStatusEvent;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Relays outbox rows to an {@link OrderEventLog} in a temporary directory, across a restart that
+ * recreates the database but keeps the log.
+ */
+@DataJpaTest(showSql = false)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class OutboxRelayTest {
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    
+    @TempDir
+    Path directory;
+    
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("delete from order_outbox");
+    }
+    
+    @Test
+    void eventIdsStayUniqueWhenTheOutboxStartsOverAndTheLogDoesNot() throws IOException {
+        OrderOutbox outbox = new OrderOutbox(jdbcTemplate, transactionManager, new SnowflakeIdGenerator(1));
+        relayChanges(outbox, "ORD-1", "ORD-2");
+        // The in-memory database is recreated on restart: outbox ids begin again
+        jdbcTemplate.execute("alter table order_outbox alter column id restart with 1");
+        relayChanges(outbox, "ORD-3", "ORD-4");
+        
+        List<OrderLogRecord> records = eventLog().read(0, 100).getRecords();
+        
+        assertThat(records).extracting(OrderLogRecord::getOrderId).containsExactly("ORD-1", "ORD-2", "ORD-3", "ORD-4");
+        assertThat(records).extracting(OrderLogRecord::getEventId).doesNotContainNull().doesNotHaveDuplicates();
+    }
+    
+    private void relayChanges(OrderOutbox outbox, String... orderIds) throws IOException {
+        for (String orderId : orderIds) {
+            outbox.write(() -> OrderStatusEvent.moved(orderId, OrderStatus.CONFIRMED));
+        }
+        OrderEventLog eventLog = eventLog();
+        try {
+            new OutboxRelay(jdbcTemplate, eventLog, new SimpleMeterRegistry(), Duration.ZERO, 100).relayBatch();
+        } finally {
+            eventLog.close();
+        }
+    }
+    
+    private OrderEventLog eventLog() throws IOException {
+        return new OrderEventLog(new ObjectMapper().findAndRegisterModules(), directory, DataSize.ofKilobytes(64), 64);
+    }
+}
@@ -0,0 +1,116 @@
+package com.example.ordersaga.repository;
+
+import com.example.ordersaga.model.Order;
+import com.example.ordersaga.model.OrderCursor;
+import com.example.ordersaga.model.OrderStatus;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Walking {@code findPage} with cursors returns every order once, newest first, including orders
+ * created in the same instant, which are told apart by id.
+ */
+@DataJpaTest(showSql = false)
+class OrderKeysetPagingTest {
+    
+    private static final LocalDateTime BASE = LocalDateTime.of(2026, 1, 1, 12, 0);
+    
+    @Autowired
+    private OrderRepository orderRepository;
+    
+    @Autowired
+    private EntityManager entityManager;
+    
+    @Test
+    void pagesVisitEveryOrderOnceInCreatedAtThenIdOrder() {
+        List<Order> saved = saveOrders("CUST-1", 25, OrderStatus.PENDING);
+        saveOrders("CUST-2", 5, OrderStatus.PENDING);
+        
+        List<Long> expected = saved.stream()
+                .sorted(Comparator.comparing(Order::getCreatedAt).thenComparing(Order::getId).reversed())
+                .map(Order::getId)
+                .toList();
+        assertThat(walk(null, "CUST-1", 4)).containsExactlyElementsOf(expected);
+    }
+    
+    @Test
+    void pageSizeDividingTheResultLeavesNoEmptyLastPage() {
+        saveOrders("CUST-1", 12, OrderStatus.PENDING);
+        
+        List<Integer> sizes = new ArrayList<>();
+        pages(null, "CUST-1", 4, page -> sizes.add(page.size()));
+        assertThat(sizes).containsExactly(4, 4, 4);
+    }
+    
+    @Test
+    void cursorKeepsTheStatusFilter() {
+        saveOrders("CUST-1", 7, OrderStatus.PENDING);
+        List<Order> confirmed = saveOrders("CUST-1", 9, OrderStatus.CONFIRMED);
+        
+        assertThat(walk(OrderStatus.CONFIRMED, null, 2))
+                .containsExactlyInAnyOrderElementsOf(confirmed.stream().map(Order::getId).toList());
+    }
+    
+    @Test
+    void cursorSurvivesEncoding() {
+        OrderCursor cursor = new OrderCursor(BASE.plusNanos(123_000), 42L);
+        
+        assertThat(OrderCursor.decode(cursor.encode())).isEqualTo(cursor);
+        assertThatThrownBy(() -> OrderCursor.decode("not-a-cursor"))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+    
+    private List<Long> walk(OrderStatus status, String customerId, int limit) {
+        List<Long> ids = new ArrayList<>();
+        pages(status, customerId, limit, page -> page.forEach(order -> ids.add(order.getId())));
+        return ids;
+    }
+    
+    /** Pages the way {@code OrderService.getOrders} does, passing each cursor through its encoded form. */
+    private void pages(OrderStatus status, String customerId, int limit, Consumer<List<Order>> sink) {
+        String cursor = null;
+        do {
+            List<Order> orders = orderRepository.findPage(status, customerId,
+                    cursor == null ? null : OrderCursor.decode(cursor), limit + 1);
+            cursor = null;
+            if (orders.size() > limit) {
+                orders = orders.subList(0, limit);
+                cursor = OrderCursor.of(orders.get(limit - 1)).encode();
+            }
+            if (!orders.isEmpty()) {
+                sink.accept(orders);
+            }
+        } while (cursor != null);
+    }
+    
+    /** Saves orders three to a creation instant, so every page boundary can fall inside a tie. */
+    private List<Order> saveOrders(String customerId, int orders, OrderStatus status) {
+        List<Order> saved = new ArrayList<>();
+        for (int i = 0; i < orders; i++) {
+            Order order = new Order();
+            order.setOrderId(customerId + "-" + status + "-" + i);
+            order.setCustomerId(customerId);
+            order.setStatus(status);
+            order.setTotalAmount(new BigDecimal("10.00"));
+            order = orderRepository.save(order);
+            // Creation time is stamped on persist, so set it afterwards
+            order.setCreatedAt(BASE.plusMinutes(i / 3));
+            saved.add(order);
+        }
+        entityManager.flush();
+        entityManager.clear();
+        return saved;
+    }
+}
@@ -0,0 +1,135 @@
+package com.example.ordersaga.repository;
+
+import com.example.ordersaga.model.Order;
+import com.example.ordersaga.model.OrderItem;
+import com.example.ordersaga.model.OrderPage;
+import com.example.ordersaga.model.OrderStatus;
+import com.example.ordersaga.model.OrderView;
+import com.example.ordersaga.service.OrderService;
+import io.temporal.api.enums.v1.WorkflowIdReusePolicy;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The order read paths issue the same number of JDBC statements however many orders (and items)
+ * they return, counted with Hibernate's statistics.
+ */
+@DataJpaTest(showSql = false, properties = {
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "logging.level.org.hibernate.engine.internal.StatisticalLoggingSessionEventListener=WARN"
+})
+class OrderReadQueryCountTest {
+    
+    @Autowired
+    private OrderRepository orderRepository;
+    
+    @Autowired
+    private EntityManager entityManager;
+    
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    
+    private Statistics statistics;
+    private OrderService orderService;
+    
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        // Only the repository and entity manager are on the read paths
+        orderService = new OrderService(null, orderRepository, entityManager, null, null, null, null, null, null, 1,
+                WorkflowIdReusePolicy.WORKFLOW_ID_REUSE_POLICY_REJECT_DUPLICATE);
+        ReflectionTestUtils.setField(orderService, "maxPageSize", 500);
+    }
+    
+    @AfterEach
+    void tearDown() {
+        orderService.shutdown();
+    }
+    
+    @Test
+    void pageCostsTwoStatementsWhateverItsSize() {
+        assertThat(pageStatements("CUST-2", 2)).isEqualTo(2);
+        assertThat(pageStatements("CUST-40", 40)).isEqualTo(2);
+    }
+    
+    @Test
+    void streamCostsOneStatementWhateverItsSize() {
+        assertThat(streamStatements("CUST-2", 2)).isEqualTo(1);
+        assertThat(streamStatements("CUST-40", 40)).isEqualTo(1);
+    }
+    
+    @Test
+    void singleOrderCostsOneStatementWhateverItsItems() {
+        saveOrders("CUST-A", 1, 2);
+        saveOrders("CUST-B", 1, 30);
+        
+        assertThat(singleOrderStatements("CUST-A-0")).isEqualTo(1);
+        assertThat(singleOrderStatements("CUST-B-0")).isEqualTo(1);
+    }
+    
+    /** {@code OrderService.getOrders} for a page holding all of the customer's orders. */
+    private long pageStatements(String customerId, int orders) {
+        saveOrders(customerId, orders, 3);
+        return count(() -> {
+            OrderPage page = orderService.getOrders(null, customerId, null, orders);
+            assertThat(page.getNextCursor()).isNull();
+            assertThat(page.getOrders()).hasSize(orders).allSatisfy(view -> assertThat(view.getItems()).hasSize(3));
+        });
+    }
+    
+    private long streamStatements(String customerId, int orders) {
+        saveOrders(customerId, orders, 3);
+        return count(() -> {
+            List<OrderView> views = new ArrayList<>();
+            orderService.streamOrders(null, customerId, views::add);
+            assertThat(views).hasSize(orders).allSatisfy(view -> assertThat(view.getItems()).hasSize(3));
+        });
+    }
+    
+    private long singleOrderStatements(String orderId) {
+        return count(() -> assertThat(orderRepository.findWithItemsByOrderId(orderId).map(OrderView::of)).isPresent());
+    }
+    
+    private long count(Runnable reads) {
+        // Read from the database, not the persistence context
+        entityManager.flush();
+        entityManager.clear();
+        statistics.clear();
+        reads.run();
+        return statistics.getPrepareStatementCount();
+    }
+    
+    private void saveOrders(String customerId, int orders, int itemsPerOrder) {
+        for (int i = 0; i < orders; i++) {
+            Order order = new Order();
+            order.setOrderId(customerId + "-" + i);
+            order.setCustomerId(customerId);
+            order.setStatus(OrderStatus.PENDING);
+            order.setTotalAmount(new BigDecimal("10.00"));
+            for (int j = 0; j < itemsPerOrder; j++) {
+                OrderItem item = new OrderItem();
+                item.setProductId("PROD-" + j);
+                item.setProductName("Product " + j);
+                item.setQuantity(1);
+                item.setUnitPrice(new BigDecimal("10.00"));
+                item.setTotalPrice(new BigDecimal("10.00"));
+                order.addItem(item);
+            }
+            orderRepository.save(order);
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.example.ordersaga.service;
+
+import com.example.ordersaga.activities.OrderActivitiesImpl;
+import com.example.ordersaga.event.OrderEventBus;
+import com.example.ordersaga.id.SnowflakeIdGenerator;
+import com.example.ordersaga.model.Order;
+import com.example.ordersaga.model.OrderStatus;
+import com.example.ordersaga.model.PaymentCallback;
+import com.example.ordersaga.model.PaymentResult;
+import com.example.ordersaga.outbox.OrderOutbox;
+import com.example.ordersaga.repository.OrderRepository;
+import io.temporal.client.ActivityCompletionClient;
+import io.temporal.client.ActivityNotExistsException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+/**
+ * Posts payment callbacks for an order waiting on a gateway call, against the database, with the
+ * activity completion client mocked.
+ */
+@DataJpaTest(showSql = false)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class GatewayCallbackServiceTest {
+    
+    @Autowired
+    private OrderRepository orderRepository;
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    
+    private final ActivityCompletionClient completionClient = mock(ActivityCompletionClient.class);
+    private GatewayCallbackService callbackService;
+    
+    @BeforeEach
+    void setUp() {
+        SnowflakeIdGenerator idGenerator = new SnowflakeIdGenerator(1);
+        OrderActivitiesImpl activities = new OrderActivitiesImpl(orderRepository, null,
+                new OrderOutbox(jdbcTemplate, transactionManager, idGenerator), null, idGenerator, null, null,
+                new OrderEventBus(1), true, 0);
+        callbackService = new GatewayCallbackService(completionClient, activities);
+    }
+    
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("delete from order_outbox");
+        orderRepository.deleteAll();
+    }
+    
+    @Test
+    void callbackOfTheWaitingAttemptRecordsItsResultAndCompletesTheActivity() {
+        saveOrder("ORD-1", token("attempt-1"));
+        PaymentResult result = new PaymentResult(true, "PAY-1", "TXN-1", "ok");
+        
+        callbackService.paymentCompleted(new PaymentCallback(token("attempt-1"), "ORD-1", result));
+        
+        Order order = orderRepository.findByOrderId("ORD-1").orElseThrow();
+        assertThat(order.getStatus()).isEqualTo(OrderStatus.PAYMENT_AUTHORIZED);
+        assertThat(order.getPaymentId()).isEqualTo("PAY-1");
+        assertThat(order.getCallbackToken()).isNull();
+        verify(completionClient).complete(eq("attempt-1".getBytes(StandardCharsets.UTF_8)), any(PaymentResult.class));
+    }
+    
+    @Test
+    void lateCallbackOfARetriedAttemptChangesNothing() {
+        // The first attempt timed out and the retry is now waiting on its own token
+        saveOrder("ORD-1", token("attempt-2"));
+        PaymentResult late = new PaymentResult(true, "PAY-LATE", "TXN-LATE", "ok");
+        
+        assertThatThrownBy(() -> callbackService.paymentCompleted(new PaymentCallback(token("attempt-1"), "ORD-1", late)))
+                .isInstanceOf(ActivityNotExistsException.class);
+        
+        Order order = orderRepository.findByOrderId("ORD-1").orElseThrow();
+        assertThat(order.getStatus()).isEqualTo(OrderStatus.PENDING);
+        assertThat(order.getPaymentId()).isNull();
+        verifyNoInteractions(completionClient);
+    }
+    
+    @Test
+    void secondCallbackForAnAttemptAlreadyAnsweredChangesNothing() {
+        saveOrder("ORD-1", token("attempt-1"));
+        callbackService.paymentCompleted(new PaymentCallback(token("attempt-1"), "ORD-1",
+                new PaymentResult(true, "PAY-1", "TXN-1", "ok")));
+        
+        assertThatThrownBy(() -> callbackService.paymentCompleted(new PaymentCallback(token("attempt-1"), "ORD-1",
+                new PaymentResult(true, "PAY-2", "TXN-2", "ok"))))
+                .isInstanceOf(ActivityNotExistsException.class);
+        
+        assertThat(orderRepository.findByOrderId("ORD-1").orElseThrow().getPaymentId()).isEqualTo("PAY-1");
+    }
+    
+    private void saveOrder(String orderId, String callbackToken) {
+        Order order = new Order();
+        order.setOrderId(orderId);
+        order.setCustomerId("CUST-1");
+        order.setStatus(OrderStatus.PENDING);
+        order.setTotalAmount(new BigDecimal("10.00"));
+        order.setCallbackToken(callbackToken);
+        orderRepository.save(order);
+    }
+    
+    private static String token(String attempt) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(attempt.getBytes(StandardCharsets.UTF_8));
+    }
+}
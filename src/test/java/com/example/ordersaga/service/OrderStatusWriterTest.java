@@ -0,0 +1,223 @@
+package com.example.ordersaga.service;
+
+import com.example.ordersaga.event.OrderEventBus;
+import com.example.ordersaga.id.SnowflakeIdGenerator;
+import com.example.ordersaga.model.Order;
+import com.example.ordersaga.model.OrderStatus;
+import com.example.ordersaga.model.OrderStatusEvent;
+import com.example.ordersaga.model.SagaRoute;
+import com.example.ordersaga.outbox.OrderOutbox;
+import com.example.ordersaga.repository.OrderRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Runs {@link OrderStatusWriter} against the database, with the writer thread enabled and disabled.
+ * Each write commits in its own transaction, so the tests do not run inside one.
+ */
+@DataJpaTest(showSql = false)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class OrderStatusWriterTest {
+    
+    @Autowired
+    private OrderRepository orderRepository;
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    
+    private final List<OrderStatusWriter> writers = new ArrayList<>();
+    private final List<OrderStatusEvent> published = new CopyOnWriteArrayList<>();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    
+    @AfterEach
+    void tearDown() {
+        writers.forEach(OrderStatusWriter::shutdown);
+        jdbcTemplate.update("delete from order_outbox");
+        orderRepository.deleteAll();
+    }
+    
+    @ParameterizedTest
+    @ValueSource(booleans = {true, false})
+    void ordersWithoutAFraudCheckAreConfirmedStraightFromReservedInventory(boolean batched) {
+        OrderStatusWriter writer = writer(batched);
+        saveOrder("ORD-1", OrderStatus.INVENTORY_RESERVED, SagaRoute.NO_FRAUD_CHECK);
+        
+        assertThat(writer.transition("ORD-1", OrderStatus.CONFIRMED)).isEqualTo(1);
+        assertThat(status("ORD-1")).isEqualTo(OrderStatus.CONFIRMED);
+    }
+    
+    @ParameterizedTest
+    @ValueSource(booleans = {true, false})
+    void ordersOnOtherRoutesAreNotConfirmedBeforeTheFraudCheck(boolean batched) {
+        OrderStatusWriter writer = writer(batched);
+        saveOrder("ORD-FULL", OrderStatus.INVENTORY_RESERVED, SagaRoute.FULL);
+        saveOrder("ORD-PARALLEL", OrderStatus.INVENTORY_RESERVED, SagaRoute.PARALLEL_FRAUD_CHECK);
+        saveOrder("ORD-UNROUTED", OrderStatus.INVENTORY_RESERVED, null);
+        
+        assertThat(writer.transition("ORD-FULL", OrderStatus.CONFIRMED)).isZero();
+        assertThat(writer.transition("ORD-PARALLEL", OrderStatus.CONFIRMED)).isZero();
+        assertThat(writer.transition("ORD-UNROUTED", OrderStatus.CONFIRMED)).isZero();
+        assertThat(status("ORD-FULL")).isEqualTo(OrderStatus.INVENTORY_RESERVED);
+        assertThat(outboxStatuses("ORD-FULL")).isEmpty();
+    }
+    
+    @Test
+    void everyRouteIsConfirmedAfterThePassedFraudCheck() {
+        OrderStatusWriter writer = writer(true);
+        saveOrder("ORD-FULL", OrderStatus.FRAUD_CHECK_PASSED, SagaRoute.FULL);
+        saveOrder("ORD-NONE", OrderStatus.FRAUD_CHECK_PASSED, SagaRoute.NO_FRAUD_CHECK);
+        
+        assertThat(writer.transition("ORD-FULL", OrderStatus.CONFIRMED)).isEqualTo(1);
+        assertThat(writer.transition("ORD-NONE", OrderStatus.CONFIRMED)).isEqualTo(1);
+        assertThat(outboxStatuses("ORD-FULL")).containsExactly("CONFIRMED");
+    }
+    
+    @Test
+    void transitionsOfAnOrderInOneBatchAreCollapsedAndOnlyTheStatusReachedIsWritten() throws Exception {
+        OrderStatusWriter writer = writer(true, Duration.ofMillis(500), 500, Duration.ofSeconds(5));
+        saveOrder("ORD-1", OrderStatus.INVENTORY_RESERVED, SagaRoute.FULL);
+        
+        List<Integer> updated = inOneBatch(writer, "ORD-1",
+                OrderStatus.FRAUD_CHECK_PASSED, OrderStatus.FRAUD_CHECK_PASSED, OrderStatus.CONFIRMED,
+                OrderStatus.SHIPPING_ARRANGED);
+        
+        assertThat(updated).containsOnly(1);
+        assertThat(status("ORD-1")).isEqualTo(OrderStatus.SHIPPING_ARRANGED);
+        assertThat(outboxStatuses("ORD-1")).containsExactly("SHIPPING_ARRANGED");
+        assertThat(published).extracting(OrderStatusEvent::getStatus).containsExactly(OrderStatus.SHIPPING_ARRANGED);
+        assertThat(meterRegistry.counter("orders.status.writes.collapsed").count()).isEqualTo(3);
+    }
+    
+    @Test
+    void transitionThatCannotFollowTheEarlierOneIsAppliedInASecondRound() throws Exception {
+        OrderStatusWriter writer = writer(true, Duration.ofMillis(500), 500, Duration.ofSeconds(5));
+        saveOrder("ORD-1", OrderStatus.PAYMENT_AUTHORIZED, SagaRoute.NO_FRAUD_CHECK);
+        
+        List<Integer> updated = inOneBatch(writer, "ORD-1", OrderStatus.INVENTORY_RESERVED, OrderStatus.CONFIRMED);
+        
+        assertThat(updated).containsExactly(1, 1);
+        assertThat(outboxStatuses("ORD-1")).containsExactly("INVENTORY_RESERVED", "CONFIRMED");
+        assertThat(published).extracting(OrderStatusEvent::getStatus)
+                .containsExactly(OrderStatus.INVENTORY_RESERVED, OrderStatus.CONFIRMED);
+    }
+    
+    @Test
+    void callerGivesUpAfterTheTimeout() {
+        // The writer waits out its window before writing the first transition
+        OrderStatusWriter writer = writer(true, Duration.ofSeconds(2), 500, Duration.ofMillis(100));
+        saveOrder("ORD-1", OrderStatus.INVENTORY_RESERVED, SagaRoute.FULL);
+        
+        assertThatThrownBy(() -> writer.transition("ORD-1", OrderStatus.FRAUD_CHECK_PASSED))
+                .isInstanceOf(RuntimeException.class)
+                .hasMessageContaining("Timed out");
+    }
+    
+    @Test
+    void transitionsStillQueuedAtShutdownFail() throws Exception {
+        OrderStatusWriter writer = writer(true, Duration.ZERO, 1, Duration.ofSeconds(5));
+        for (int i = 0; i < 50; i++) {
+            saveOrder("ORD-" + i, OrderStatus.INVENTORY_RESERVED, SagaRoute.FULL);
+        }
+        ExecutorService callers = Executors.newFixedThreadPool(50);
+        try {
+            List<Future<Integer>> results = new ArrayList<>();
+            for (int i = 0; i < 50; i++) {
+                String orderId = "ORD-" + i;
+                results.add(callers.submit(() -> writer.transition(orderId, OrderStatus.FRAUD_CHECK_PASSED)));
+            }
+            writer.shutdown();
+            
+            // Every caller hears back: written before the shutdown, or failed by it
+            for (Future<Integer> result : results) {
+                try {
+                    assertThat(result.get(2, TimeUnit.SECONDS)).isEqualTo(1);
+                } catch (ExecutionException e) {
+                    assertThat(e.getCause()).isInstanceOf(IllegalStateException.class);
+                }
+            }
+        } finally {
+            callers.shutdownNow();
+        }
+        assertThatThrownBy(() -> writer.transition("ORD-0", OrderStatus.CONFIRMED))
+                .isInstanceOf(IllegalStateException.class);
+    }
+    
+    /** Enqueues the transitions in order, far enough apart to keep that order, within the writer's window. */
+    private static List<Integer> inOneBatch(OrderStatusWriter writer, String orderId, OrderStatus... statuses)
+            throws Exception {
+        ExecutorService callers = Executors.newFixedThreadPool(statuses.length);
+        try {
+            List<Future<Integer>> results = new ArrayList<>();
+            for (OrderStatus status : statuses) {
+                results.add(callers.submit(() -> writer.transition(orderId, status)));
+                Thread.sleep(50);
+            }
+            List<Integer> updated = new ArrayList<>();
+            for (Future<Integer> result : results) {
+                updated.add(result.get(5, TimeUnit.SECONDS));
+            }
+            return updated;
+        } finally {
+            callers.shutdownNow();
+        }
+    }
+    
+    private OrderStatusWriter writer(boolean enabled) {
+        return writer(enabled, Duration.ofMillis(50), 500, Duration.ofSeconds(5));
+    }
+    
+    private OrderStatusWriter writer(boolean enabled, Duration window, int maxBatch, Duration timeout) {
+        OrderEventBus eventBus = new OrderEventBus(1);
+        eventBus.addListener(published::add);
+        OrderStatusWriter writer = new OrderStatusWriter(orderRepository,
+                new OrderOutbox(jdbcTemplate, transactionManager, new SnowflakeIdGenerator(1)), eventBus, jdbcTemplate, transactionManager,
+                meterRegistry, enabled, window, maxBatch, 100, timeout);
+        writers.add(writer);
+        return writer;
+    }
+    
+    private void saveOrder(String orderId, OrderStatus status, SagaRoute route) {
+        Order order = new Order();
+        order.setOrderId(orderId);
+        order.setCustomerId("CUST-1");
+        order.setStatus(status);
+        order.setRoute(route);
+        order.setTotalAmount(new BigDecimal("10.00"));
+        orderRepository.save(order);
+    }
+    
+    private OrderStatus status(String orderId) {
+        return orderRepository.findByOrderId(orderId).orElseThrow().getStatus();
+    }
+    
+    private List<String> outboxStatuses(String orderId) {
+        return jdbcTemplate.queryForList("select status from order_outbox where order_id = ? order by id",
+                String.class, orderId);
+    }
+}
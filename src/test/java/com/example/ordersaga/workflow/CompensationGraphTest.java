@@ -0,0 +1,181 @@
+package com.example.ordersaga.workflow;
+
+import io.temporal.activity.ActivityInterface;
+import io.temporal.activity.ActivityOptions;
+import io.temporal.client.WorkflowFailedException;
+import io.temporal.client.WorkflowOptions;
+import io.temporal.common.RetryOptions;
+import io.temporal.failure.ActivityFailure;
+import io.temporal.failure.ApplicationFailure;
+import io.temporal.testing.TestWorkflowEnvironment;
+import io.temporal.worker.Worker;
+import io.temporal.workflow.Workflow;
+import io.temporal.workflow.WorkflowInterface;
+import io.temporal.workflow.WorkflowMethod;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Runs {@link CompensationGraph} inside a workflow on the in-memory Temporal service, with one
+ * activity per compensation that records when it starts and ends.
+ */
+class CompensationGraphTest {
+    
+    private static final String TASK_QUEUE = "compensation-graph-test";
+    
+    private TestWorkflowEnvironment env;
+    private final Undo undo = new Undo();
+    
+    @BeforeEach
+    void setUp() {
+        env = TestWorkflowEnvironment.newInstance();
+        Worker worker = env.newWorker(TASK_QUEUE);
+        worker.registerWorkflowImplementationFactory(GraphWorkflow.class, GraphWorkflowImpl::new);
+        worker.registerActivitiesImplementations(undo);
+        env.start();
+    }
+    
+    @AfterEach
+    void tearDown() {
+        env.close();
+    }
+    
+    @Test
+    void independentCompensationsRunConcurrentlyAndDependentsAfterTheirDependencies() {
+        run(true, List.of("payment", "inventory", "shipping:payment,inventory"), List.of());
+        
+        // payment and inventory both start before either ends
+        assertThat(undo.log.subList(0, 2)).containsExactlyInAnyOrder("start payment", "start inventory");
+        assertThat(undo.log.indexOf("start shipping"))
+                .isGreaterThan(undo.log.indexOf("end payment"))
+                .isGreaterThan(undo.log.indexOf("end inventory"));
+        assertThat(undo.log).hasSize(6);
+    }
+    
+    @Test
+    void reverseOrderRunsOneAtATimeLastRegisteredFirst() {
+        run(false, List.of("payment", "inventory", "shipping:payment,inventory"), List.of());
+        
+        assertThat(undo.log).containsExactly(
+                "start shipping", "end shipping",
+                "start inventory", "end inventory",
+                "start payment", "end payment");
+    }
+    
+    @Test
+    void dependenciesThatWereNeverRegisteredAreSkipped() {
+        run(true, List.of("payment:inventory", "shipping:payment,fraud"), List.of());
+        
+        assertThat(undo.log).containsExactly("start payment", "end payment", "start shipping", "end shipping");
+    }
+    
+    @Test
+    void failureIsRethrownAndItsDependentsDoNotRun() {
+        assertThatThrownBy(() -> run(true, List.of("payment", "inventory", "shipping:payment"), List.of("payment")))
+                .isInstanceOf(WorkflowFailedException.class)
+                .satisfies(e -> assertThat(failedCompensation(e)).isEqualTo("payment"));
+        
+        // inventory does not depend on payment, so it still runs
+        assertThat(undo.log).containsExactlyInAnyOrder("start payment", "start inventory", "end inventory");
+    }
+    
+    @Test
+    void firstRegisteredFailureIsRethrownWhenSeveralFail() {
+        assertThatThrownBy(() -> run(true, List.of("payment", "inventory"), List.of("payment", "inventory")))
+                .isInstanceOf(WorkflowFailedException.class)
+                .satisfies(e -> assertThat(failedCompensation(e)).isEqualTo("payment"));
+        
+        assertThat(undo.log).containsExactlyInAnyOrder("start payment", "start inventory");
+    }
+    
+    @Test
+    void reverseOrderStopsAtTheFirstFailure() {
+        assertThatThrownBy(() -> run(false, List.of("payment", "inventory", "shipping"), List.of("inventory")))
+                .isInstanceOf(WorkflowFailedException.class)
+                .satisfies(e -> assertThat(failedCompensation(e)).isEqualTo("inventory"));
+        
+        assertThat(undo.log).containsExactly("start shipping", "end shipping", "start inventory");
+    }
+    
+    private void run(boolean parallel, List<String> compensations, List<String> failing) {
+        GraphWorkflow workflow = env.getWorkflowClient().newWorkflowStub(GraphWorkflow.class,
+                WorkflowOptions.newBuilder().setTaskQueue(TASK_QUEUE).build());
+        workflow.compensate(parallel, compensations, failing);
+    }
+    
+    private static String failedCompensation(Throwable e) {
+        assertThat(e.getCause()).isInstanceOf(ActivityFailure.class);
+        assertThat(e.getCause().getCause()).isInstanceOf(ApplicationFailure.class);
+        return ((ApplicationFailure) e.getCause().getCause()).getOriginalMessage();
+    }
+    
+    @WorkflowInterface
+    public interface GraphWorkflow {
+        
+        /**
+         * Registers each compensation, written {@code name} or {@code name:after,after}, and runs them.
+         */
+        @WorkflowMethod
+        void compensate(boolean parallel, List<String> compensations, List<String> failing);
+    }
+    
+    public static class GraphWorkflowImpl implements GraphWorkflow {
+        
+        private final UndoActivities activities = Workflow.newActivityStub(UndoActivities.class,
+                ActivityOptions.newBuilder()
+                        .setStartToCloseTimeout(Duration.ofSeconds(10))
+                        .setRetryOptions(RetryOptions.newBuilder().setMaximumAttempts(1).build())
+                        .build());
+        
+        @Override
+        public void compensate(boolean parallel, List<String> compensations, List<String> failing) {
+            CompensationGraph graph = new CompensationGraph();
+            for (String compensation : compensations) {
+                String[] parts = compensation.split(":");
+                String name = parts[0];
+                String[] after = parts.length > 1 ? parts[1].split(",") : new String[0];
+                graph.add(name, () -> activities.undo(name, failing.contains(name)), after);
+            }
+            if (parallel) {
+                graph.compensate();
+            } else {
+                graph.compensateInReverse();
+            }
+        }
+    }
+    
+    @ActivityInterface
+    public interface UndoActivities {
+        
+        void undo(String name, boolean fail);
+    }
+    
+    public static class Undo implements UndoActivities {
+        
+        final List<String> log = Collections.synchronizedList(new ArrayList<>());
+        
+        @Override
+        public void undo(String name, boolean fail) {
+            log.add("start " + name);
+            if (fail) {
+                throw ApplicationFailure.newNonRetryableFailure(name, "CompensationFailed");
+            }
+            try {
+                // Long enough for a concurrent compensation to start first
+                Thread.sleep(200);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            log.add("end " + name);
+        }
+    }
+}
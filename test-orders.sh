@@ -4,6 +4,7 @@
 # This script creates sample orders and monitors their status
 
 API_URL="http://localhost:8181/api/orders"
+METRICS_URL="http://localhost:8181/actuator/metrics"
 
 echo "🚀 Order Saga Demo - Testing Script"
 echo "===================================="
@@ -14,14 +15,14 @@ create_order() {
     local file=$1
     local name=$2
     
-    echo "📦 Creating order: $name"
+    echo "📦 Creating order: $name" >&2
     response=$(curl -s -X POST $API_URL \
         -H "Content-Type: application/json" \
         -d @$file)
     
     order_id=$(echo $response | jq -r '.orderId')
-    echo "✅ Order created: $order_id"
-    echo ""
+    echo "✅ Order created: $order_id" >&2
+    echo "" >&2
     
     echo "$order_id"
 }
@@ -35,10 +36,15 @@ check_order() {
     echo ""
 }
 
+# Function to read the order cache's hit or miss count
+cache_gets() {
+    curl -s "$METRICS_URL/cache.gets?tag=cache:orderViews&tag=result:$1" | jq '(.measurements[0].value // 0) | floor'
+}
+
 # Function to list all orders
 list_all_orders() {
     echo "📋 All Orders:"
-    curl -s $API_URL | jq '.[] | {orderId, customerId, status, totalAmount}'
+    curl -s $API_URL | jq '.orders[] | {orderId, customerId, status, totalAmount}'
     echo ""
 }
 
@@ -58,8 +64,27 @@ sleep 2
 ORDER3=$(create_order "sample-requests/order-office.json" "Office Furniture Order")
 sleep 2
 
-echo "⏳ Waiting for workflows to complete (15 seconds)..."
-sleep 15
+# Poll the orders the way a storefront does until every saga has finished
+echo "⏳ Polling order status every 0.5 seconds until the workflows complete..."
+HITS_BEFORE=$(cache_gets hit)
+MISSES_BEFORE=$(cache_gets miss)
+POLLS=0
+for attempt in $(seq 1 120); do
+    pending=0
+    for order_id in $ORDER1 $ORDER2 $ORDER3; do
+        status=$(curl -s $API_URL/$order_id | jq -r '.status')
+        POLLS=$((POLLS + 1))
+        case $status in
+            COMPLETED|COMPENSATED) ;;
+            *) pending=$((pending + 1)) ;;
+        esac
+    done
+    [ $pending -eq 0 ] && break
+    sleep 0.5
+done
+HITS=$(( $(cache_gets hit) - HITS_BEFORE ))
+MISSES=$(( $(cache_gets miss) - MISSES_BEFORE ))
+echo "📈 $POLLS status polls: $HITS served from the order cache, $MISSES read from the database"
 
 echo ""
 echo "📊 Order Status Report"